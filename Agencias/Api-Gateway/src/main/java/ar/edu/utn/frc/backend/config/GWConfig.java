@@ -27,6 +27,9 @@ public class GWConfig {
                 // Ruteo al microservicio reportes
                 .route(p -> p.path("/api/reportes/**").uri(uriPruebas))
 
+                // Ruteo al stream de eventos en vivo (server-sent events) del microservicio pruebas
+                .route(p -> p.path("/api/eventos/**").uri(uriPruebas))
+
                 // Ruteo para desloguearse
                 .route((p -> p.path("/api/logout").uri(uriPruebas)))
                 .build();
@@ -0,0 +1,285 @@
+package ar.edu.utn.frc.backend.cola;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Cola local en disco, de solo agregado, entre Pruebas (escribe) y Notificaciones (lee), sin un broker externo.
+// Los registros se agregan a segmentos de tamaño fijo mapeados en memoria (cola-0000000000.dat, cola-0000000001.dat, ...).
+// Cada registro es [largo (int)][crc32 de los datos (int)][datos]; el largo se escribe al final, así un lector nunca
+// ve un registro a medias. Un largo -1 indica que el resto del segmento no se usa y se sigue en el próximo.
+// La posición de un registro es global: índice del segmento * tamaño del segmento + posición dentro del segmento.
+// El lector guarda por su cuenta la posición hasta la que leyó (offset del consumidor) y borra los segmentos ya leídos.
+// Al abrir para escribir se recorre el último segmento: lo que sigue al último registro válido (por ejemplo, un registro
+// cortado por una caída) se borra antes de seguir agregando.
+// Solo puede haber un escritor por directorio: al abrir para escribir se toma un bloqueo del sistema operativo sobre
+// cola.lock, que se mantiene hasta close() (o hasta que termina el proceso). Los lectores no lo necesitan.
+public class ColaEnArchivo implements Closeable {
+
+    private static final int ENCABEZADO = 8;
+    private static final int FIN_SEGMENTO = -1;
+    private static final String ARCHIVO_BLOQUEO = "cola.lock";
+
+    public record Registro(long posicion, long siguiente, byte[] datos) {
+    }
+
+    private final Path directorio;
+    private final int tamanioSegmento;
+    private final ReentrantLock escrituras = new ReentrantLock();
+
+    private FileLock bloqueo;
+
+    private MappedByteBuffer escritura;
+    private long indiceEscritura = -1;
+    private int posicionEscritura;
+
+    private MappedByteBuffer lectura;
+    private long indiceLectura = -1;
+
+    public ColaEnArchivo(Path directorio, int tamanioSegmento) {
+        if (tamanioSegmento <= ENCABEZADO) {
+            throw new IllegalArgumentException("El tamaño de segmento debe ser mayor a " + ENCABEZADO + " bytes.");
+        }
+        this.directorio = directorio;
+        this.tamanioSegmento = tamanioSegmento;
+    }
+
+    // Agrega los registros en orden y los baja a disco antes de volver. Devuelve la posición que sigue al último
+    public long agregar(List<byte[]> registros) throws IOException {
+        escrituras.lock();
+        try {
+            if (escritura == null) {
+                abrirEscritura();
+            }
+
+            int desde = posicionEscritura;
+            for (byte[] datos : registros) {
+                if (datos.length == 0 || ENCABEZADO + datos.length >= tamanioSegmento) {
+                    throw new IllegalArgumentException("Registro de " + datos.length + " bytes, el máximo es " + (tamanioSegmento - ENCABEZADO - 1) + ".");
+                }
+
+                // Un registro nunca termina justo en el final del segmento: la posición siguiente siempre cae en un
+                // segmento que existe, así el lector puede distinguir una posición válida de una cola recreada
+                if (posicionEscritura + ENCABEZADO + datos.length >= tamanioSegmento) {
+                    if (tamanioSegmento - posicionEscritura >= Integer.BYTES) {
+                        escritura.putInt(posicionEscritura, FIN_SEGMENTO);
+                    }
+                    escritura.force(desde, tamanioSegmento - desde);
+                    mapearEscritura(indiceEscritura + 1);
+                    desde = 0;
+                }
+
+                escritura.put(posicionEscritura + ENCABEZADO, datos);
+                escritura.putInt(posicionEscritura + Integer.BYTES, crc(datos));
+                escritura.putInt(posicionEscritura, datos.length);
+                posicionEscritura += ENCABEZADO + datos.length;
+            }
+
+            escritura.force(desde, posicionEscritura - desde);
+            return indiceEscritura * tamanioSegmento + posicionEscritura;
+
+        } finally {
+            escrituras.unlock();
+        }
+    }
+
+    // Lee hasta "maximo" registros desde la posición dada. Se detiene donde todavía no hay un registro completo
+    public List<Registro> leer(long desde, int maximo) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        long posicion = desde;
+
+        while (registros.size() < maximo) {
+            long indice = posicion / tamanioSegmento;
+            int enSegmento = (int) (posicion % tamanioSegmento);
+
+            MappedByteBuffer segmento = mapearLectura(indice);
+            if (segmento == null) {
+                break;
+            }
+
+            int largo = tamanioSegmento - enSegmento < ENCABEZADO ? FIN_SEGMENTO : segmento.getInt(enSegmento);
+            if (largo == FIN_SEGMENTO) {
+                // Solo se pasa al próximo segmento cuando ya existe
+                if (!Files.exists(archivo(indice + 1))) {
+                    break;
+                }
+                posicion = (indice + 1) * tamanioSegmento;
+                continue;
+            }
+            if (largo <= 0 || enSegmento + ENCABEZADO + largo > tamanioSegmento) {
+                break;
+            }
+
+            byte[] datos = new byte[largo];
+            segmento.get(enSegmento + ENCABEZADO, datos);
+            if (crc(datos) != segmento.getInt(enSegmento + Integer.BYTES)) {
+                break;
+            }
+
+            long siguiente = posicion + ENCABEZADO + largo;
+            registros.add(new Registro(posicion, siguiente, datos));
+            posicion = siguiente;
+        }
+        return registros;
+    }
+
+    // Borra los segmentos que terminan antes de la posición (ya leídos)
+    public void borrarAnteriores(long posicion) throws IOException {
+        long indiceActual = posicion / tamanioSegmento;
+        for (long indice : indices()) {
+            if (indice < indiceActual) {
+                Files.deleteIfExists(archivo(indice));
+            }
+        }
+    }
+
+    public boolean existeSegmento(long posicion) {
+        return Files.exists(archivo(posicion / tamanioSegmento));
+    }
+
+    // Posición de inicio del primer segmento que existe, o -1 si la cola está vacía
+    public long primeraPosicion() throws IOException {
+        List<Long> indices = indices();
+        if (indices.isEmpty()) {
+            return -1L;
+        }
+        return indices.stream().mapToLong(Long::longValue).min().getAsLong() * tamanioSegmento;
+    }
+
+    private void abrirEscritura() throws IOException {
+        Files.createDirectories(directorio);
+        if (bloqueo == null) {
+            bloquear();
+        }
+        long ultimo = indices().stream().mapToLong(Long::longValue).max().orElse(0L);
+        mapearEscritura(ultimo);
+
+        // Recuperación: se avanza por los registros válidos del último segmento
+        while (tamanioSegmento - posicionEscritura >= ENCABEZADO) {
+            int largo = escritura.getInt(posicionEscritura);
+            if (largo == FIN_SEGMENTO) {
+                mapearEscritura(indiceEscritura + 1);
+                continue;
+            }
+            if (largo <= 0 || posicionEscritura + ENCABEZADO + largo > tamanioSegmento) {
+                break;
+            }
+            byte[] datos = new byte[largo];
+            escritura.get(posicionEscritura + ENCABEZADO, datos);
+            if (crc(datos) != escritura.getInt(posicionEscritura + Integer.BYTES)) {
+                break;
+            }
+            posicionEscritura += ENCABEZADO + largo;
+        }
+
+        // Lo que quede después (un registro cortado) se pone en cero para que nadie lo lea como un largo
+        byte[] ceros = new byte[Math.min(64 * 1024, tamanioSegmento)];
+        for (int p = posicionEscritura; p < tamanioSegmento; p += ceros.length) {
+            escritura.put(p, ceros, 0, Math.min(ceros.length, tamanioSegmento - p));
+        }
+        escritura.force();
+    }
+
+    // El ReentrantLock solo ordena los hilos de esta instancia: otro proceso (u otra instancia sobre el mismo directorio)
+    // escribiría en las mismas posiciones y se pisarían los registros
+    private void bloquear() throws IOException {
+        FileChannel canal = FileChannel.open(directorio.resolve(ARCHIVO_BLOQUEO), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock tomado;
+        try {
+            tomado = canal.tryLock();
+        } catch (OverlappingFileLockException e) {
+            tomado = null;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        if (tomado == null) {
+            canal.close();
+            throw new IOException("La cola en " + directorio + " ya está abierta para escritura por otro proceso.");
+        }
+        bloqueo = tomado;
+    }
+
+    private void mapearEscritura(long indice) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo(indice),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            escritura = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanioSegmento);
+        }
+        indiceEscritura = indice;
+        posicionEscritura = 0;
+    }
+
+    // Devuelve null si el segmento todavía no existe (o el que escribe aún no le dio su tamaño)
+    private MappedByteBuffer mapearLectura(long indice) throws IOException {
+        if (indice == indiceLectura) {
+            return lectura;
+        }
+
+        Path archivo = archivo(indice);
+        lectura = null;
+        indiceLectura = -1;
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() < tamanioSegmento) {
+                return null;
+            }
+            lectura = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanioSegmento);
+        }
+        indiceLectura = indice;
+        return lectura;
+    }
+
+    private List<Long> indices() throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return List.of();
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(archivo -> archivo.getFileName().toString())
+                    .filter(nombre -> nombre.matches("cola-\\d{10}\\.dat"))
+                    .map(nombre -> Long.parseLong(nombre.substring(5, 15)))
+                    .toList();
+        }
+    }
+
+    private Path archivo(long indice) {
+        return directorio.resolve(String.format("cola-%010d.dat", indice));
+    }
+
+    private static int crc(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+
+    // Los segmentos mapeados se liberan cuando el recolector de basura descarta los buffers; el bloqueo de escritura
+    // se suelta acá
+    @Override
+    public void close() throws IOException {
+        escrituras.lock();
+        try {
+            escritura = null;
+            lectura = null;
+            indiceLectura = -1;
+            if (bloqueo != null) {
+                FileChannel canal = bloqueo.channel();
+                bloqueo = null;
+                canal.close();
+            }
+        } finally {
+            escrituras.unlock();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ar.edu.utn.frc.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteOpenMode;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+// Dos pools sobre la misma base: el de escritura (spring.datasource.hikari.*, con los PRAGMA de la base como
+// propiedades del driver) y uno de solo lectura, abierto en modo read-only, para las consultas.
+// Las transacciones readOnly (@Transactional(readOnly = true) y las consultas de los repositorios de Spring Data)
+// toman una conexión de lectura; el resto usa el pool de escritura. En modo WAL las lecturas no esperan al escritor.
+@Configuration
+public class BaseDeDatosConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource escrituraDataSource(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public HikariDataSource lecturaDataSource(@Qualifier("escrituraDataSource") HikariDataSource escritura,
+                                              @Value("${tpintegrador.sqlite.conexiones-lectura}") int conexiones) {
+        // Los PRAGMA de la conexión (cache, mmap, busy_timeout) son los mismos; journal_mode y synchronous los fija el escritor
+        Properties propiedades = new Properties();
+        propiedades.putAll(escritura.getDataSourceProperties());
+        propiedades.remove("journal_mode");
+        propiedades.remove("synchronous");
+        propiedades.setProperty("open_mode", String.valueOf(SQLiteOpenMode.READONLY.flag));
+
+        HikariDataSource lectura = new HikariDataSource();
+        lectura.setPoolName("sqlite-lectura");
+        lectura.setJdbcUrl(escritura.getJdbcUrl());
+        lectura.setDriverClassName(escritura.getDriverClassName());
+        lectura.setDataSourceProperties(propiedades);
+        lectura.setReadOnly(true);
+        lectura.setMaximumPoolSize(conexiones);
+        return lectura;
+    }
+
+    // La conexión real se pide recién al ejecutar la primera sentencia, cuando ya se sabe si la transacción es de solo lectura
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("escrituraDataSource") DataSource escritura,
+                                 @Qualifier("lecturaDataSource") DataSource lectura) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(escritura);
+        dataSource.setReadOnlyDataSource(lectura);
+        return dataSource;
+    }
+}
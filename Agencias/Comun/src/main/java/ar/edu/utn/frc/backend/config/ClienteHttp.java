@@ -0,0 +1,181 @@
+package ar.edu.utn.frc.backend.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Cliente HTTP para las llamadas a otros servicios. Todas las llamadas comparten un pool de conexiones persistentes,
+// y cada destino (por nombre) tiene sus propios timeouts, un límite de llamadas simultáneas (bulkhead) y un
+// circuit breaker: si el destino falla o está saturado se responde enseguida con el respaldo, en lugar de dejar
+// hilos de Tomcat esperando a un servicio lento.
+// La configuración general está en tpintegrador.http.* y se puede cambiar por destino en tpintegrador.http.destinos.<destino>.*
+@Slf4j
+@Component
+public class ClienteHttp {
+
+    private static final String PREFIJO = "tpintegrador.http.";
+
+    private final Environment environment;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final MeterRegistry meterRegistry;
+    private final PoolingHttpClientConnectionManager conexiones;
+    private final TimeValue tiempoInactiva;
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+    private final Map<String, Destino> destinos = new ConcurrentHashMap<>();
+
+    private record Destino(RestTemplate restTemplate, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+    }
+
+    @Autowired
+    public ClienteHttp(Environment environment, RestTemplateBuilder restTemplateBuilder, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.meterRegistry = meterRegistry;
+
+        this.tiempoInactiva = TimeValue.ofMilliseconds(environment.getProperty(PREFIJO + "conexion-inactiva-ms", Long.class, 30000L));
+        this.conexiones = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(environment.getProperty(PREFIJO + "conexiones-maximas", Integer.class, 200))
+                .setMaxConnPerRoute(environment.getProperty(PREFIJO + "conexiones-por-destino", Integer.class, 50))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    // Ejecuta la llamada contra el destino; si falla, el circuito está abierto o no hay lugar en el bulkhead, devuelve el respaldo
+    public <T> T ejecutar(String destino, Function<RestTemplate, T> llamada, Function<Exception, T> respaldo) {
+        Destino d = destinos.computeIfAbsent(destino, this::crearDestino);
+        Supplier<T> protegida = Bulkhead.decorateSupplier(d.bulkhead(),
+                CircuitBreaker.decorateSupplier(d.circuitBreaker(), () -> llamada.apply(d.restTemplate())));
+
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String resultado = "exito";
+        try {
+            return protegida.get();
+
+        } catch (CallNotPermittedException e) {
+            resultado = "circuito_abierto";
+            return respaldo.apply(e);
+
+        } catch (BulkheadFullException e) {
+            resultado = "saturado";
+            return respaldo.apply(e);
+
+        } catch (Exception e) {
+            resultado = "error";
+            return respaldo.apply(e);
+
+        } finally {
+            muestra.stop(Timer.builder("http.cliente.llamadas")
+                    .description("Llamadas a otros servicios por destino y resultado")
+                    .tag("destino", destino)
+                    .tag("resultado", resultado)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    // Igual que la anterior, pero sin respaldo: el error se propaga a quien llama
+    public <T> T ejecutar(String destino, Function<RestTemplate, T> llamada) {
+        return ejecutar(destino, llamada, e -> {
+            throw e instanceof RuntimeException r ? r : new IllegalStateException(e);
+        });
+    }
+
+    private Destino crearDestino(String destino) {
+        long timeoutConexionMs = propiedad(destino, "timeout-conexion-ms", 1000L);
+        long timeoutRespuestaMs = propiedad(destino, "timeout-respuesta-ms", 3000L);
+
+        // Cada destino tiene su cliente con sus timeouts, pero todos usan el mismo pool de conexiones
+        RequestConfig configuracion = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(timeoutConexionMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(timeoutRespuestaMs))
+                .build();
+        HttpComponentsClientHttpRequestFactory fabrica = new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(conexiones)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(configuracion)
+                .build());
+        fabrica.setConnectTimeout(Duration.ofMillis(timeoutConexionMs));
+        RestTemplate restTemplate = restTemplateBuilder.requestFactory(() -> fabrica).build();
+
+        // Los errores 4xx son del pedido, no del destino: no abren el circuito
+        CircuitBreakerConfig circuito = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(propiedad(destino, "circuito.llamadas-minimas", 10L).intValue())
+                .failureRateThreshold(propiedad(destino, "circuito.umbral-fallas", 50L).floatValue())
+                .slowCallDurationThreshold(Duration.ofMillis(timeoutRespuestaMs))
+                .waitDurationInOpenState(Duration.ofMillis(propiedad(destino, "circuito.espera-abierto-ms", 10000L)))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build();
+
+        BulkheadConfig bulkhead = BulkheadConfig.custom()
+                .maxConcurrentCalls(propiedad(destino, "llamadas-concurrentes", 20L).intValue())
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(destino, circuito);
+        circuitBreaker.getEventPublisher().onStateTransition(evento ->
+                log.warn("Circuito hacia {}: {}", destino, evento.getStateTransition()));
+
+        log.info("Destino HTTP {}: timeout de conexión {} ms, de respuesta {} ms.", destino, timeoutConexionMs, timeoutRespuestaMs);
+        return new Destino(restTemplate, circuitBreaker, bulkheads.bulkhead(destino, bulkhead));
+    }
+
+    // Primero la propiedad del destino y después la general
+    private Long propiedad(String destino, String nombre, Long porDefecto) {
+        Long general = environment.getProperty(PREFIJO + nombre, Long.class, porDefecto);
+        return environment.getProperty(PREFIJO + "destinos." + destino + "." + nombre, Long.class, general);
+    }
+
+    // Cierra las conexiones que quedaron sin uso o vencidas, para no reutilizar una que el otro servicio ya cerró
+    @Scheduled(fixedDelayString = "${tpintegrador.http.conexion-inactiva-ms:30000}")
+    public void cerrarInactivas() {
+        conexiones.closeExpired();
+        conexiones.closeIdle(tiempoInactiva);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        conexiones.close();
+    }
+}
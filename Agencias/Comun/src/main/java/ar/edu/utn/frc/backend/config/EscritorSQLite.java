@@ -0,0 +1,278 @@
+package ar.edu.utn.frc.backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Único escritor de la base. SQLite admite una sola transacción de escritura a la vez: en lugar de que muchos hilos
+// compitan por ese bloqueo (y esperen busy_timeout), las escrituras se encolan y las graba un solo hilo.
+// Ese hilo toma todas las que estén esperando (hasta tamanio-grupo) y las confirma juntas en una única transacción
+// (group commit), así con mucha carga se hace un commit cada muchas escrituras y no uno por cada una.
+// Las tareas escriben por JDBC o con entidades de id conocido: un id generado por Hibernate (tabla de secuencia) se
+// pide por otra conexión, que quedaría esperando el bloqueo que tiene la transacción del grupo. Los ids nuevos se
+// reservan con reservarIds, dentro de la misma escritura.
+// Las tareas tienen que ser solo trabajo de base: si falla el grupo se deshacen y se repiten de a una, así que lo que
+// hagan fuera de la base (un registro en memoria, una métrica) quedaría hecho dos veces o sin su escritura. Eso se
+// deja para después del commit con despuesDeConfirmar.
+// Limitaciones: el escritor es único dentro de un proceso. Pruebas y Notificaciones abren la misma agencia.db y cada
+// uno tiene el suyo, así que entre los dos procesos las escrituras siguen compitiendo por el bloqueo de SQLite
+// (esperan busy_timeout). Y las migraciones de esquema del arranque escriben por su cuenta, antes de que haya tráfico.
+// Hay dos colas: las escrituras de prioridad ALTA (las de siempre; en Notificaciones, las alertas) siempre pasan antes
+// que las BAJA (promociones de Notificaciones), y una escritura BAJA se confirma sola en su transacción, así una
+// escritura ALTA espera como mucho a un lote de promoción.
+@Slf4j
+@Component
+public class EscritorSQLite {
+
+    public enum Prioridad {
+        ALTA, BAJA
+    }
+
+    private record Escritura(Supplier<?> tarea, CompletableFuture<Object> resultado, long encolada, Prioridad prioridad) {
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Escritura> cola;
+    private final BlockingQueue<Escritura> colaBaja;
+    // Un permiso por escritura encolada en cualquiera de las dos colas: el hilo escritor espera sobre este semáforo
+    private final Semaphore encoladas = new Semaphore(0);
+    private final int tamanioGrupo;
+    private final Thread hilo;
+    private volatile boolean activo = true;
+
+    private final Timer espera;
+    private final Timer esperaBaja;
+    private final DistributionSummary grupos;
+
+    @Autowired
+    public EscritorSQLite(TransactionTemplate transactionTemplate,
+                          JdbcTemplate jdbcTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${tpintegrador.sqlite.capacidad-cola}") int capacidadCola,
+                          @Value("${tpintegrador.sqlite.tamanio-grupo}") int tamanioGrupo) {
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cola = new LinkedBlockingQueue<>(capacidadCola);
+        this.colaBaja = new LinkedBlockingQueue<>(capacidadCola);
+        this.tamanioGrupo = tamanioGrupo;
+        this.hilo = new Thread(this::escribir, "escritor-sqlite");
+        this.hilo.setDaemon(true);
+
+        this.espera = Timer.builder("sqlite.escrituras.espera")
+                .description("Tiempo desde que se encola una escritura hasta que se confirma")
+                .tag("prioridad", "alta")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.esperaBaja = Timer.builder("sqlite.escrituras.espera")
+                .description("Tiempo desde que se encola una escritura hasta que se confirma")
+                .tag("prioridad", "baja")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.grupos = DistributionSummary.builder("sqlite.escrituras.grupo")
+                .description("Escrituras confirmadas en cada transacción")
+                .register(meterRegistry);
+        Gauge.builder("sqlite.escrituras.cola", cola, BlockingQueue::size).tag("prioridad", "alta").register(meterRegistry);
+        Gauge.builder("sqlite.escrituras.cola", colaBaja, BlockingQueue::size).tag("prioridad", "baja").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        hilo.start();
+    }
+
+    // Encola la escritura y espera a que se confirme su grupo. Si la cola está llena, quien llama espera (contrapresión).
+    // Desde el hilo escritor o dentro de una transacción ya abierta se ejecuta en el momento, en esa transacción
+    // (si es de solo lectura falla enseguida: su conexión no puede escribir)
+    public <T> T ejecutar(Supplier<T> tarea) {
+        return ejecutar(tarea, Prioridad.ALTA);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(Supplier<T> tarea, Prioridad prioridad) {
+        if (enEscritura()) {
+            return tarea.get();
+        }
+        if (!activo) {
+            throw new IllegalStateException("El escritor de la base está detenido.");
+        }
+
+        Escritura escritura = new Escritura(tarea, new CompletableFuture<>(), System.nanoTime(), prioridad);
+        try {
+            (prioridad == Prioridad.ALTA ? cola : colaBaja).put(escritura);
+            encoladas.release();
+            return (T) escritura.resultado().get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera de la escritura.", e);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void escribir(Runnable tarea) {
+        escribir(tarea, Prioridad.ALTA);
+    }
+
+    public void escribir(Runnable tarea, Prioridad prioridad) {
+        ejecutar(() -> {
+            tarea.run();
+            return null;
+        }, prioridad);
+    }
+
+    // Reserva de una vez un bloque de ids en la tabla de secuencia, que guarda el próximo id libre igual que para Hibernate,
+    // y devuelve el primero. Se actualiza primero para tomar el bloqueo de escritura antes de leer; por eso solo se
+    // puede llamar dentro de una escritura (en el hilo escritor o en una transacción ya abierta)
+    public long reservarIds(String secuencia, int cantidad) {
+        if (!enEscritura()) {
+            throw new IllegalStateException("Los ids de " + secuencia + " se reservan dentro de una escritura.");
+        }
+        jdbcTemplate.update("UPDATE " + secuencia + " SET next_val = next_val + ?", cantidad);
+        return jdbcTemplate.queryForObject("SELECT next_val FROM " + secuencia, Long.class) - cantidad;
+    }
+
+    // Deja para después del commit lo que la tarea hace fuera de la base: si la escritura se deshace no se ejecuta, y si
+    // se repite se registra de nuevo. Un error de la acción solo se informa, la escritura ya está confirmada
+    public void despuesDeConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Las acciones posteriores al commit se registran dentro de una escritura.");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    accion.run();
+                } catch (RuntimeException e) {
+                    log.error("Error en una acción posterior al commit: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private boolean enEscritura() {
+        if (Thread.currentThread() == hilo) {
+            return true;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("No se puede escribir dentro de una transacción de solo lectura.");
+        }
+        return true;
+    }
+
+    private void escribir() {
+        List<Escritura> grupo = new ArrayList<>(tamanioGrupo);
+        while (activo || encoladas.availablePermits() > 0) {
+            try {
+                if (!encoladas.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                // Primero las de prioridad alta, todas las que haya; una baja solo si no hay ninguna alta esperando
+                Escritura primera = cola.poll();
+                if (primera != null) {
+                    grupo.add(primera);
+                    int tomadas = cola.drainTo(grupo, tamanioGrupo - 1);
+                    encoladas.acquire(tomadas);
+                } else {
+                    grupo.add(colaBaja.poll());
+                }
+                confirmar(grupo);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+
+            } catch (Throwable e) {
+                // El hilo escritor no puede terminar por un error: se informa a las escrituras del grupo y se sigue
+                log.error("Error inesperado del escritor de la base: {}", e.getMessage(), e);
+                grupo.forEach(escritura -> escritura.resultado().completeExceptionally(e));
+
+            } finally {
+                grupo.clear();
+            }
+        }
+
+        // Si se detuvo con escrituras encoladas, quienes esperan reciben un error en lugar de quedar bloqueados
+        List<Escritura> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        colaBaja.drainTo(restantes);
+        restantes.forEach(escritura -> escritura.resultado().completeExceptionally(
+                new IllegalStateException("El escritor de la base se detuvo antes de confirmar la escritura.")));
+    }
+
+    private void confirmar(List<Escritura> grupo) {
+        grupos.record(grupo.size());
+        try {
+            List<Object> resultados = transactionTemplate.execute(status -> {
+                List<Object> lista = new ArrayList<>(grupo.size());
+                for (Escritura escritura : grupo) {
+                    lista.add(escritura.tarea().get());
+                }
+                return lista;
+            });
+            for (int i = 0; i < grupo.size(); i++) {
+                completar(grupo.get(i), resultados.get(i));
+            }
+
+        } catch (RuntimeException e) {
+            if (grupo.size() == 1) {
+                fallar(grupo.get(0), e);
+                return;
+            }
+
+            // Una escritura que falla deshace todo el grupo: se repiten de a una para que falle solo esa
+            log.warn("Falló un grupo de {} escrituras, se reintentan por separado: {}", grupo.size(), e.getMessage());
+            for (Escritura escritura : grupo) {
+                try {
+                    completar(escritura, transactionTemplate.execute(status -> escritura.tarea().get()));
+                } catch (RuntimeException error) {
+                    fallar(escritura, error);
+                }
+            }
+        }
+    }
+
+    private void completar(Escritura escritura, Object resultado) {
+        (escritura.prioridad() == Prioridad.ALTA ? espera : esperaBaja).record(System.nanoTime() - escritura.encolada(), TimeUnit.NANOSECONDS);
+        escritura.resultado().complete(resultado);
+    }
+
+    private void fallar(Escritura escritura, Exception error) {
+        (escritura.prioridad() == Prioridad.ALTA ? espera : esperaBaja).record(System.nanoTime() - escritura.encolada(), TimeUnit.NANOSECONDS);
+        escritura.resultado().completeExceptionally(error);
+    }
+
+    // Termina de grabar lo que ya está en la cola antes de cerrar las conexiones
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        hilo.join(10000);
+    }
+}
@@ -0,0 +1,37 @@
+package ar.edu.utn.frc.backend.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// Las fechas se guardan como milisegundos desde epoch; el texto "yyyy-MM-dd HH:mm:ss" (hora local)
+// queda solo para lo que entra y sale por la API
+public final class Fechas {
+
+    public static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Fechas() {
+    }
+
+    public static long aMilisegundos(String fechaHora) {
+        try {
+            return aMilisegundos(LocalDateTime.parse(fechaHora, FORMATO));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha y hora inválida: " + fechaHora + ", se espera el formato yyyy-MM-dd HH:mm:ss.");
+        }
+    }
+
+    public static long aMilisegundos(LocalDateTime fechaHora) {
+        return fechaHora.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime aFecha(long milisegundos) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(milisegundos), ZoneId.systemDefault());
+    }
+
+    public static String formatear(Long milisegundos) {
+        return milisegundos == null ? null : aFecha(milisegundos).format(FORMATO);
+    }
+}
@@ -0,0 +1,110 @@
+package ar.edu.utn.frc.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Carril de ejecución para un tipo de tráfico: pool de hilos propio y cola acotada, así un tipo de tráfico no ocupa
+// los hilos ni la cola de otro. Si la cola está llena la tarea se rechaza enseguida (RejectedExecutionException)
+// en lugar de esperar: quien llama decide si responde "ocupado" o reintenta.
+// Métricas por carril: espera en la cola, latencia total (cola + ejecución), tareas en cola y rechazadas.
+// Los hilos de todos los carriles tienen la misma prioridad (la del sistema operativo no se puede fijar en Linux);
+// la prioridad de las alertas sobre las promociones está solo en el escritor de la base (colas ALTA y BAJA).
+public class Carril {
+
+    private final String nombre;
+    private final ThreadPoolExecutor executor;
+    private final Timer espera;
+    private final Timer latencia;
+    private final Counter rechazadas;
+
+    public Carril(String nombre, int hilos, int capacidadCola, MeterRegistry meterRegistry) {
+        this.nombre = nombre;
+
+        AtomicInteger numero = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), r -> {
+                    Thread hilo = new Thread(r, nombre + "-" + numero.getAndIncrement());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.espera = Timer.builder("carriles.espera")
+                .description("Tiempo que una tarea espera en la cola del carril")
+                .tag("carril", nombre)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.latencia = Timer.builder("carriles.latencia")
+                .description("Tiempo desde que una tarea entra al carril hasta que termina")
+                .tag("carril", nombre)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rechazadas = Counter.builder("carriles.rechazadas").tag("carril", nombre).register(meterRegistry);
+        Gauge.builder("carriles.cola", executor, e -> e.getQueue().size()).tag("carril", nombre).register(meterRegistry);
+        Gauge.builder("carriles.activas", executor, ThreadPoolExecutor::getActiveCount).tag("carril", nombre).register(meterRegistry);
+    }
+
+    // Encola la tarea sin esperar a que termine
+    public void enviar(Runnable tarea) {
+        enviarConMedicion(() -> {
+            tarea.run();
+            return null;
+        });
+    }
+
+    // Ejecuta la tarea en el carril y espera el resultado; los errores de la tarea se propagan tal cual
+    public <T> T ejecutar(Callable<T> tarea) {
+        try {
+            return enviarConMedicion(tarea).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la espera de la tarea del carril " + nombre + ".", e);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Tareas esperando en la cola más las que se están ejecutando
+    public int pendientes() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    private <T> Future<T> enviarConMedicion(Callable<T> tarea) {
+        long recibida = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                espera.record(System.nanoTime() - recibida, TimeUnit.NANOSECONDS);
+                try {
+                    return tarea.call();
+                } finally {
+                    latencia.record(System.nanoTime() - recibida, TimeUnit.NANOSECONDS);
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            throw new RejectedExecutionException("El carril " + nombre + " está lleno.", e);
+        }
+    }
+
+    public void detener() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
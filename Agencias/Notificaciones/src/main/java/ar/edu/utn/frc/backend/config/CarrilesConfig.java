@@ -0,0 +1,28 @@
+package ar.edu.utn.frc.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Un carril para las alertas de zona (/crear, /crear-lote y la cola en disco) y otro para los envíos de promociones,
+// cada uno con sus hilos y su cola. La prioridad de las alertas la da el escritor de la base (ALTA antes que BAJA);
+// además tienen un destino HTTP propio hacia Pruebas
+@Configuration
+public class CarrilesConfig {
+
+    @Bean(destroyMethod = "detener")
+    public Carril carrilAlertas(MeterRegistry meterRegistry,
+                                @Value("${tpintegrador.alertas.hilos}") int hilos,
+                                @Value("${tpintegrador.alertas.capacidad-cola}") int capacidadCola) {
+        return new Carril("alertas", hilos, capacidadCola, meterRegistry);
+    }
+
+    // Control de admisión: si ya hay capacidad-cola envíos esperando, los nuevos se rechazan
+    @Bean(destroyMethod = "detener")
+    public Carril carrilPromociones(MeterRegistry meterRegistry,
+                                    @Value("${tpintegrador.promociones.hilos}") int hilos,
+                                    @Value("${tpintegrador.promociones.capacidad-cola}") int capacidadCola) {
+        return new Carril("promociones", hilos, capacidadCola, meterRegistry);
+    }
+}
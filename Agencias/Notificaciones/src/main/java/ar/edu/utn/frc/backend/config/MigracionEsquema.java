@@ -0,0 +1,121 @@
+package ar.edu.utn.frc.backend.config;
+
+import ar.edu.utn.frc.backend.utils.Fechas;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cambios de esquema sobre la base SQLite existente. Corre después de que Hibernate crea las tablas que falten
+// y cada cambio se aplica una sola vez.
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class MigracionEsquema {
+
+    private static final int TAMANIO_LOTE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EscritorSQLite escritorSQLite;
+
+    @Autowired
+    public MigracionEsquema(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, EscritorSQLite escritorSQLite) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.escritorSQLite = escritorSQLite;
+    }
+
+    @PostConstruct
+    public void migrar() {
+        migrarNotificacionesAMensajes();
+    }
+
+    private boolean existeTabla(String tabla) {
+        return !jdbcTemplate.query("PRAGMA table_info(" + tabla + ")", (rs, fila) -> rs.getString("name")).isEmpty();
+    }
+
+    // Tabla Notificaciones (texto y fecha de texto repetidos en cada fila) -> Mensajes + Destinatarios.
+    // Las filas con el mismo texto y fecha pasan a ser un único mensaje. Cada lote se mueve en una transacción corta
+    // (se inserta en las tablas nuevas y se borra de la vieja), así si se corta a mitad de camino en el próximo
+    // inicio sigue con las que quedaron; al terminar se borra la tabla vieja y su secuencia.
+    // Los mensajes que ya están en Mensajes (de un inicio anterior cortado a mitad de camino) se cargan primero, así
+    // las filas que quedaron se suman a su mensaje en vez de crear uno repetido. Una fecha que no se pudo convertir
+    // se guarda como 0 y con ese mismo valor se arma la clave.
+    private void migrarNotificacionesAMensajes() {
+        if (!existeTabla("Notificaciones")) {
+            return;
+        }
+
+        Map<String, Long> mensajes = new HashMap<>();
+        jdbcTemplate.query("SELECT ID, TEXTO, FECHA_HORA_ENVIO_MS FROM Mensajes",
+                rs -> { mensajes.putIfAbsent(clave(rs.getLong(3), rs.getString(2)), rs.getLong(1)); });
+        int existentes = mensajes.size();
+        int migradas = 0;
+        while (true) {
+            List<Object[]> lote = jdbcTemplate.query("SELECT ID, MENSAJE, FECHA_HORA_ENVIO, NRO_TELEFONO FROM Notificaciones ORDER BY ID LIMIT " + TAMANIO_LOTE,
+                    (rs, fila) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)});
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> destinatarios = new ArrayList<>(lote.size());
+                Map<Long, Integer> agregados = new HashMap<>();
+                for (Object[] notificacion : lote) {
+                    Long convertida = convertir((String) notificacion[2]);
+                    long fechaHora = convertida != null ? convertida : 0L;
+                    Long mensajeId = mensajes.computeIfAbsent(clave(fechaHora, (String) notificacion[1]), clave -> {
+                        long id = escritorSQLite.reservarIds("mensajes_seq", 1);
+                        jdbcTemplate.update("INSERT INTO Mensajes (ID, TEXTO, FECHA_HORA_ENVIO_MS, DESTINATARIOS) VALUES (?, ?, ?, 0)",
+                                id, notificacion[1], fechaHora);
+                        return id;
+                    });
+                    agregados.merge(mensajeId, 1, Integer::sum);
+                    destinatarios.add(new Object[]{null, mensajeId, notificacion[3]});
+                }
+
+                long id = escritorSQLite.reservarIds("destinatarios_seq", destinatarios.size());
+                for (Object[] destinatario : destinatarios) {
+                    destinatario[0] = id++;
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO Destinatarios (ID, MENSAJE_ID, NRO_TELEFONO) VALUES (?, ?, ?)", destinatarios);
+
+                List<Object[]> cantidades = new ArrayList<>(agregados.size());
+                agregados.forEach((mensajeId, cantidad) -> cantidades.add(new Object[]{cantidad, mensajeId}));
+                jdbcTemplate.batchUpdate("UPDATE Mensajes SET DESTINATARIOS = DESTINATARIOS + ? WHERE ID = ?", cantidades);
+
+                jdbcTemplate.update("DELETE FROM Notificaciones WHERE ID <= ?", lote.get(lote.size() - 1)[0]);
+            });
+            migradas += lote.size();
+        }
+
+        jdbcTemplate.execute("DROP TABLE Notificaciones");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS notificaciones_seq");
+        log.info("Esquema actualizado: {} notificaciones migradas a mensajes con sus destinatarios ({} mensajes nuevos).", migradas, mensajes.size() - existentes);
+    }
+
+    private static String clave(long fechaHora, String texto) {
+        return fechaHora + "|" + texto;
+    }
+
+    // Las fechas de texto se guardaron en hora local; se aceptan también con "T" o con fracción de segundos
+    private Long convertir(String fechaHora) {
+        try {
+            return fechaHora == null ? null : Fechas.aMilisegundos(LocalDateTime.parse(fechaHora.trim().replace(' ', 'T')));
+        } catch (DateTimeParseException e) {
+            log.warn("No se pudo convertir la fecha '{}' de una notificación; queda con fecha 0.", fechaHora);
+            return null;
+        }
+    }
+}
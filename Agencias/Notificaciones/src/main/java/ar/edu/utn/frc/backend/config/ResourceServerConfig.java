@@ -24,6 +24,11 @@ public class ResourceServerConfig {
 
                         // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de empleado
                         .requestMatchers("/api/notificaciones/crear-promocion").hasRole("EMPLEADO")
+                        .requestMatchers(HttpMethod.GET, "/api/notificaciones/promociones/**").hasRole("EMPLEADO")
+                        .requestMatchers(HttpMethod.GET, "/api/notificaciones/por-telefono/**", "/api/notificaciones/por-fecha").hasRole("EMPLEADO")
+
+                        // La invalidación de la cache de teléfonos la hace quien administra los datos de los empleados
+                        .requestMatchers(HttpMethod.DELETE, "/api/notificaciones/cache-telefonos/**").hasRole("ADMIN")
 
                         // Cualquier otra peticion
                         .anyRequest().permitAll()
@@ -1,14 +1,26 @@
 package ar.edu.utn.frc.backend.controllers;
 
+import ar.edu.utn.frc.backend.config.Carril;
+import ar.edu.utn.frc.backend.dto.EnvioPromocionDTO;
+import ar.edu.utn.frc.backend.dto.MensajeDTO;
 import ar.edu.utn.frc.backend.dto.NotificacionDTO;
+import ar.edu.utn.frc.backend.dto.NotificacionEnviadaDTO;
 import ar.edu.utn.frc.backend.dto.NotificacionPromocionDTO;
 import ar.edu.utn.frc.backend.services.NotificacionService;
+import ar.edu.utn.frc.backend.services.PromocionService;
+import ar.edu.utn.frc.backend.services.TelefonosEmpleadosService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/notificaciones")
@@ -17,27 +29,68 @@ public class NotificacionController {
     @Autowired
     private NotificacionService notificacionService;
 
+    @Autowired
+    private PromocionService promocionService;
+
+    @Autowired
+    private TelefonosEmpleadosService telefonosEmpleadosService;
+
+    @Autowired
+    @Qualifier("carrilAlertas")
+    private Carril carrilAlertas;
+
     @GetMapping("/saludo")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Hola!");
     }
 
-    // Enpoint para crear una notificacion de zona restringida o fuera del radio de la agencia
+    // Enpoint para crear una notificacion de zona restringida o fuera del radio de la agencia.
+    // Las alertas se procesan en su propio carril, separado del de las promociones, y se responde recién cuando quedó grabada
     @PostMapping("/crear")
     public ResponseEntity<String> crearNotificacion(@RequestBody NotificacionDTO notificacionDTO) {
         try {
-            notificacionService.crearNotificacion(notificacionDTO.getMensaje(), notificacionDTO.getLegajo());
+            notificacionService.validar(List.of(notificacionDTO));
+            carrilAlertas.ejecutar(() -> notificacionService.crearNotificaciones(List.of(notificacionDTO)));
             return ResponseEntity.ok("Notificacion enviada!");
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+
+        } catch (RejectedExecutionException e) {
+            return ocupado(e);
+
         } catch (Exception e) {
             log.error("Error al crear la notificacion: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
-    // Endpoint para crear una notificacion de promocion
+    // Endpoint para crear varias notificaciones de zona restringida en una sola llamada (lo usa el despacho de Pruebas).
+    // Se guardan todas o ninguna y se responde después de grabarlas: si falla (5xx), el que envía reintenta el lote completo
+    @PostMapping("/crear-lote")
+    public ResponseEntity<String> crearNotificaciones(@RequestBody List<NotificacionDTO> notificaciones) {
+        try {
+            notificacionService.validar(notificaciones);
+            int creadas = carrilAlertas.ejecutar(() -> notificacionService.crearNotificaciones(notificaciones));
+            return ResponseEntity.ok("Notificaciones creadas: " + creadas);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+
+        } catch (RejectedExecutionException e) {
+            return ocupado(e);
+
+        } catch (Exception e) {
+            log.error("Error al crear el lote de notificaciones: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // Endpoint para crear una notificacion de promocion: el envío a todos los empleados se procesa en segundo plano
+    // y se responde enseguida (202) con el id del envío, para consultar el avance en /promociones/{id}.
+    // Si ya hay demasiados envíos esperando se responde 503 y el envío no se inicia
     @PostMapping("/crear-promocion")
-    public ResponseEntity<String> crearNotificacionesDePromocion(@RequestBody NotificacionPromocionDTO notificacionPromocionDTO) {
+    public ResponseEntity<?> crearNotificacionesDePromocion(@RequestBody NotificacionPromocionDTO notificacionPromocionDTO) {
         if (notificacionPromocionDTO.getMensaje() == null || notificacionPromocionDTO.getMensaje().trim().isEmpty()) {
 
             log.warn("Mensaje de promoción no proporcionado.");
@@ -45,12 +98,80 @@ public class NotificacionController {
         }
 
         try {
-            notificacionService.enviarNotificacionPromocion(notificacionPromocionDTO.getMensaje());
-            return ResponseEntity.ok("Notificaciones de promoción enviadas correctamente.");
+            EnvioPromocionDTO envio = promocionService.iniciar(notificacionPromocionDTO.getMensaje());
+            return ResponseEntity.accepted().body(envio);
+
+        } catch (RejectedExecutionException e) {
+            return ocupado(e);
 
         } catch (Exception e) {
-            log.error("Error al crear notificaciones de promoción: ", e);
+            log.error("Error al iniciar el envío de notificaciones de promoción: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al enviar las notificaciones de promoción.");
         }
     }
+
+    // Avance de un envío de promoción (los envíos terminados se conservan durante tpintegrador.promociones.retencion-ms)
+    @GetMapping("/promociones/{id}")
+    public ResponseEntity<EnvioPromocionDTO> obtenerAvancePromocion(@PathVariable String id) {
+        return promocionService.obtenerAvance(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Notificaciones enviadas a un teléfono, por páginas: para la siguiente se pasa en despuesDe el id de la última recibida
+    @GetMapping("/por-telefono/{nroTelefono}")
+    public ResponseEntity<List<NotificacionEnviadaDTO>> obtenerPorTelefono(@PathVariable String nroTelefono,
+                                                                           @RequestParam(required = false) Long despuesDe,
+                                                                           @RequestParam(defaultValue = "100") int tamanio) {
+        try {
+            return ResponseEntity.ok(notificacionService.obtenerPorTelefono(nroTelefono, despuesDe, tamanio));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
+
+        } catch (Exception e) {
+            log.error("Error al obtener las notificaciones del teléfono {}: {}", nroTelefono, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+        }
+    }
+
+    // Mensajes enviados desde "desde" (y antes de "hasta", si se indica), fechas con formato yyyy-MM-dd HH:mm:ss,
+    // por páginas: para la siguiente se pasa en despuesDe el id del último mensaje recibido
+    @GetMapping("/por-fecha")
+    public ResponseEntity<List<MensajeDTO>> obtenerPorFecha(@RequestParam String desde,
+                                                            @RequestParam(required = false) String hasta,
+                                                            @RequestParam(required = false) Long despuesDe,
+                                                            @RequestParam(defaultValue = "100") int tamanio) {
+        try {
+            return ResponseEntity.ok(notificacionService.obtenerPorFecha(desde, hasta, despuesDe, tamanio));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
+
+        } catch (Exception e) {
+            log.error("Error al obtener los mensajes por fecha: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+        }
+    }
+
+    // Invalidación de la cache de teléfonos, para cuando cambian los datos de un empleado (o de todos)
+    @DeleteMapping("/cache-telefonos/{legajo}")
+    public ResponseEntity<Void> invalidarTelefono(@PathVariable Long legajo) {
+        telefonosEmpleadosService.invalidar(legajo);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/cache-telefonos")
+    public ResponseEntity<Void> invalidarTelefonos() {
+        telefonosEmpleadosService.invalidarTodo();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Carril lleno: se responde 503 para que quien llama reintente más tarde (el despacho de Pruebas ya lo hace)
+    private ResponseEntity<String> ocupado(RejectedExecutionException e) {
+        log.warn("{}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
 }
@@ -0,0 +1,24 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Avance de un envío de promoción: estado EN_CURSO, FINALIZADO, FALLIDO (si no se pudieron obtener los teléfonos)
+// o INTERRUMPIDO (quedó en curso al reiniciar y no se pudo reanudar).
+// mensajeId es el mensaje guardado para la promoción (null hasta que el envío empieza)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvioPromocionDTO {
+
+    private String id;
+    private Long mensajeId;
+    private String estado;
+    private int paginas;
+    private long enviadas;
+    private long fallidas;
+    private String fechaHoraInicio;
+    private String fechaHoraFin;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Mensaje enviado, con la cantidad de teléfonos a los que se envió
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MensajeDTO {
+
+    private Long id;
+    private String mensaje;
+    private String fechaHoraEnvio;
+    private long destinatarios;
+}
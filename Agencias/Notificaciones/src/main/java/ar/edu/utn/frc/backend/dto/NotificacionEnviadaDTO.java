@@ -0,0 +1,18 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Notificación enviada a un teléfono; el id es el del destinatario y sirve como "despuesDe" para pedir la página siguiente
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificacionEnviadaDTO {
+
+    private Long id;
+    private Long mensajeId;
+    private String mensaje;
+    private String fechaHoraEnvio;
+    private String nroTelefono;
+}
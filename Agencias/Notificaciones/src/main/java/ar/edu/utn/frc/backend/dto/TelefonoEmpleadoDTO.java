@@ -0,0 +1,14 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelefonoEmpleadoDTO {
+
+    private Long legajo;
+    private String telefono;
+}
@@ -0,0 +1,30 @@
+package ar.edu.utn.frc.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Teléfono al que se envió un mensaje: una fila chica por destinatario, que referencia al texto en Mensajes
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "Destinatarios", indexes = {
+        @Index(name = "IDX_DESTINATARIOS_TELEFONO", columnList = "NRO_TELEFONO, ID"),
+        @Index(name = "IDX_DESTINATARIOS_MENSAJE", columnList = "MENSAJE_ID, ID")
+})
+public class Destinatario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "destinatario_generator")
+    @SequenceGenerator(name = "destinatario_generator", sequenceName = "destinatarios_seq", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "MENSAJE_ID", nullable = false)
+    private Long mensajeId;
+
+    @Column(name = "NRO_TELEFONO", nullable = false)
+    private String nroTelefono;
+}
@@ -0,0 +1,33 @@
+package ar.edu.utn.frc.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Texto de una notificación, guardado una sola vez aunque se envíe a muchos teléfonos (ver Destinatario).
+// La fecha de envío se guarda en milisegundos desde epoch y la cantidad de destinatarios se mantiene al agregarlos
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "Mensajes", indexes = {
+        @Index(name = "IDX_MENSAJES_FECHA_HORA_ENVIO", columnList = "FECHA_HORA_ENVIO_MS, ID")
+})
+public class Mensaje {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mensaje_generator")
+    @SequenceGenerator(name = "mensaje_generator", sequenceName = "mensajes_seq", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "TEXTO", nullable = false)
+    private String texto;
+
+    @Column(name = "FECHA_HORA_ENVIO_MS", nullable = false)
+    private Long fechaHoraEnvio;
+
+    @Column(name = "DESTINATARIOS", nullable = false)
+    private Long destinatarios;
+}
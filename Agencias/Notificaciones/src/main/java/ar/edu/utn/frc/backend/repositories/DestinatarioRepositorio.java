@@ -0,0 +1,13 @@
+package ar.edu.utn.frc.backend.repositories;
+
+import ar.edu.utn.frc.backend.entities.Destinatario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface DestinatarioRepositorio extends CrudRepository<Destinatario, Long> {
+
+    // Paginación por clave sobre el índice (NRO_TELEFONO, ID)
+    List<Destinatario> findByNroTelefonoAndIdGreaterThanOrderByIdAsc(String nroTelefono, Long despuesDe, Pageable pageable);
+}
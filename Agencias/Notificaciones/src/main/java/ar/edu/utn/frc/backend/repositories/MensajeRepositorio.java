@@ -0,0 +1,22 @@
+package ar.edu.utn.frc.backend.repositories;
+
+import ar.edu.utn.frc.backend.entities.Mensaje;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MensajeRepositorio extends CrudRepository<Mensaje, Long> {
+
+    // Paginación por clave sobre el índice (FECHA_HORA_ENVIO_MS, ID): la página sigue a (fechaHora, id) del último mensaje leído
+    @Query("SELECT m FROM Mensaje m WHERE m.fechaHoraEnvio >= :desde AND m.fechaHoraEnvio < :hasta " +
+            "AND (m.fechaHoraEnvio > :despuesDeFechaHora OR (m.fechaHoraEnvio = :despuesDeFechaHora AND m.id > :despuesDeId)) " +
+            "ORDER BY m.fechaHoraEnvio, m.id")
+    List<Mensaje> findEnviadosEntre(@Param("desde") long desde,
+                                    @Param("hasta") long hasta,
+                                    @Param("despuesDeFechaHora") long despuesDeFechaHora,
+                                    @Param("despuesDeId") long despuesDeId,
+                                    Pageable pageable);
+}
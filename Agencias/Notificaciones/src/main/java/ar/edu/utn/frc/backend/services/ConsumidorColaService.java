@@ -0,0 +1,149 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.cola.ColaEnArchivo;
+import ar.edu.utn.frc.backend.config.Carril;
+import ar.edu.utn.frc.backend.dto.NotificacionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lee de a lotes la cola en disco que escribe Pruebas (ver ColaEnArchivo) y crea las notificaciones.
+// La posición hasta la que se leyó (offset del consumidor) se guarda en la tabla consumidores_cola en la misma
+// transacción que las notificaciones del lote: si Notificaciones se cae, al reiniciar sigue desde el último lote
+// confirmado, sin perder ni repetir notificaciones. Los segmentos ya leídos se borran.
+// Cada lote se graba en el carril de alertas, igual que las que llegan por HTTP; el consumidor espera a que termine
+// para seguir en orden, y si el carril está lleno lo reintenta en la próxima ejecución.
+@Slf4j
+@Service
+public class ConsumidorColaService {
+
+    private static final String CONSUMIDOR = "notificaciones";
+
+    private final ColaEnArchivo colaNotificaciones;
+    private final NotificacionService notificacionService;
+    private final Carril carrilAlertas;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean habilitada;
+    private final int tamanioLote;
+
+    private final Counter consumidas;
+    private final Counter invalidas;
+    private final AtomicLong posicion = new AtomicLong(-1);
+
+    @Autowired
+    public ConsumidorColaService(ColaEnArchivo colaNotificaciones,
+                                 NotificacionService notificacionService,
+                                 @Qualifier("carrilAlertas") Carril carrilAlertas,
+                                 JdbcTemplate jdbcTemplate,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${tpintegrador.cola.habilitada}") boolean habilitada,
+                                 @Value("${tpintegrador.cola.tamanio-lote}") int tamanioLote) {
+        this.colaNotificaciones = colaNotificaciones;
+        this.notificacionService = notificacionService;
+        this.carrilAlertas = carrilAlertas;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.habilitada = habilitada;
+        this.tamanioLote = tamanioLote;
+
+        this.consumidas = Counter.builder("cola.notificaciones").tag("resultado", "consumida").register(meterRegistry);
+        this.invalidas = Counter.builder("cola.notificaciones").tag("resultado", "invalida").register(meterRegistry);
+        Gauge.builder("cola.notificaciones.posicion", posicion, AtomicLong::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void crearTabla() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS consumidores_cola (NOMBRE TEXT PRIMARY KEY, POSICION INTEGER NOT NULL)");
+    }
+
+    // Consume lotes mientras haya registros; si un lote falla se vuelve a leer desde la misma posición en la próxima ejecución
+    @Scheduled(fixedDelayString = "${tpintegrador.cola.intervalo-ms}")
+    public void consumir() {
+        if (!habilitada) {
+            return;
+        }
+
+        try {
+            long desde = posicionInicial();
+            List<ColaEnArchivo.Registro> registros;
+            do {
+                registros = colaNotificaciones.leer(desde, tamanioLote);
+                if (registros.isEmpty()) {
+                    break;
+                }
+
+                List<NotificacionDTO> notificaciones = new ArrayList<>(registros.size());
+                for (ColaEnArchivo.Registro registro : registros) {
+                    NotificacionDTO notificacion = convertir(registro);
+                    if (notificacion != null) {
+                        notificaciones.add(notificacion);
+                    }
+                }
+
+                long siguiente = registros.get(registros.size() - 1).siguiente();
+                carrilAlertas.ejecutar(() -> notificacionService.crearNotificaciones(notificaciones, () -> guardarPosicion(siguiente)));
+                posicion.set(siguiente);
+                desde = siguiente;
+                consumidas.increment(notificaciones.size());
+
+                colaNotificaciones.borrarAnteriores(siguiente);
+            } while (registros.size() == tamanioLote);
+
+        } catch (Exception e) {
+            log.warn("No se pudo consumir la cola de notificaciones, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    // La posición guardada se lee una sola vez; si su segmento ya no existe (la cola se borró o se volvió a crear)
+    // se sigue desde el primer segmento que haya
+    private long posicionInicial() throws Exception {
+        if (posicion.get() < 0) {
+            List<Long> guardada = jdbcTemplate.queryForList(
+                    "SELECT POSICION FROM consumidores_cola WHERE NOMBRE = ?", Long.class, CONSUMIDOR);
+            posicion.set(guardada.isEmpty() ? 0L : guardada.get(0));
+        }
+
+        long primera = colaNotificaciones.primeraPosicion();
+        if (primera >= 0 && !colaNotificaciones.existeSegmento(posicion.get())) {
+            log.warn("La posición {} de la cola de notificaciones ya no existe, se sigue desde {}.", posicion.get(), primera);
+            posicion.set(primera);
+        }
+        return posicion.get();
+    }
+
+    private void guardarPosicion(long siguiente) {
+        jdbcTemplate.update("INSERT INTO consumidores_cola (NOMBRE, POSICION) VALUES (?, ?) "
+                + "ON CONFLICT (NOMBRE) DO UPDATE SET POSICION = excluded.POSICION", CONSUMIDOR, siguiente);
+    }
+
+    // Un registro que no se puede leer se saltea (y se informa) para que no detenga al resto de la cola
+    private NotificacionDTO convertir(ColaEnArchivo.Registro registro) {
+        try {
+            NotificacionDTO notificacion = objectMapper.readValue(registro.datos(), NotificacionDTO.class);
+            if (notificacion.getMensaje() != null && notificacion.getLegajo() != null) {
+                return notificacion;
+            }
+        } catch (Exception e) {
+            log.debug("Registro de la cola ilegible: {}", e.getMessage());
+        }
+
+        invalidas.increment();
+        log.error("Registro inválido en la posición {} de la cola de notificaciones, se descarta.", registro.posicion());
+        return null;
+    }
+}
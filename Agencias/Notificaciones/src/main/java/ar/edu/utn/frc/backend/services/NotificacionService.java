@@ -1,117 +1,185 @@
 package ar.edu.utn.frc.backend.services;
 
-import ar.edu.utn.frc.backend.entities.Notificacion;
-import ar.edu.utn.frc.backend.repositories.NotificacionRepositorio;
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.dto.MensajeDTO;
+import ar.edu.utn.frc.backend.dto.NotificacionDTO;
+import ar.edu.utn.frc.backend.dto.NotificacionEnviadaDTO;
+import ar.edu.utn.frc.backend.entities.Destinatario;
+import ar.edu.utn.frc.backend.entities.Mensaje;
+import ar.edu.utn.frc.backend.repositories.DestinatarioRepositorio;
+import ar.edu.utn.frc.backend.repositories.MensajeRepositorio;
+import ar.edu.utn.frc.backend.utils.Fechas;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
+// Las notificaciones se guardan normalizadas: el texto una vez en Mensajes y cada teléfono en Destinatarios, que
+// referencia al mensaje. Una promoción a N teléfonos es un mensaje y N filas chicas, en lugar de N copias del texto.
 @Slf4j
 @Service
 public class NotificacionService {
 
-    private final NotificacionRepositorio notificacionRepositorio;
-    private final RestTemplate restTemplate;
-    private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TAMANIO_MAXIMO_PAGINA = 1000;
 
-    // URL del microservicio de Pruebas para obtener los números de teléfono
-    private static final String PRUEBAS_URL = "http://localhost:8082/api/pruebas";
+    private static final String INSERT_MENSAJE =
+            "INSERT INTO Mensajes (ID, TEXTO, FECHA_HORA_ENVIO_MS, DESTINATARIOS) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_DESTINATARIO =
+            "INSERT INTO Destinatarios (ID, MENSAJE_ID, NRO_TELEFONO) VALUES (?, ?, ?)";
+
+    private final TelefonosEmpleadosService telefonosEmpleadosService;
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
+    private final MensajeRepositorio mensajeRepositorio;
+    private final DestinatarioRepositorio destinatarioRepositorio;
 
     @Autowired
-    public NotificacionService(NotificacionRepositorio notificacionRepositorio, RestTemplate restTemplate) {
-        this.notificacionRepositorio = notificacionRepositorio;
-        this.restTemplate = restTemplate;
+    public NotificacionService(TelefonosEmpleadosService telefonosEmpleadosService, EscritorSQLite escritorSQLite,
+                               JdbcTemplate jdbcTemplate, MensajeRepositorio mensajeRepositorio,
+                               DestinatarioRepositorio destinatarioRepositorio) {
+        this.telefonosEmpleadosService = telefonosEmpleadosService;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
+        this.mensajeRepositorio = mensajeRepositorio;
+        this.destinatarioRepositorio = destinatarioRepositorio;
     }
 
-    public void crearNotificacion(String mensaje, Long legajo) {
-        LocalDateTime fechaHora = LocalDateTime.now();
-        String fechaHoraFormateada = fechaHora.format(formatter);
-
-        String nroTelefono = obtenerNroTelefono(legajo);
+    public int crearNotificaciones(List<NotificacionDTO> notificaciones) {
+        return crearNotificaciones(notificaciones, () -> {});
+    }
 
-        Notificacion notificacion = new Notificacion();
-        notificacion.setMensaje(mensaje);
-        notificacion.setFechaHoraEnvio(fechaHoraFormateada);
-        notificacion.setNroTelefono(nroTelefono);
+    // Los teléfonos se buscan antes de grabar, así la escritura del lote no queda esperando a Pruebas.
+    // Las notificaciones del lote con el mismo texto comparten un único mensaje.
+    // "enLaMismaEscritura" se confirma en la misma transacción que las notificaciones (ConsumidorColaService guarda ahí su posición)
+    public int crearNotificaciones(List<NotificacionDTO> notificaciones, Runnable enLaMismaEscritura) {
+        validar(notificaciones);
 
-        notificacionRepositorio.save(notificacion);
+        Map<String, List<String>> telefonosPorMensaje = new LinkedHashMap<>();
+        for (NotificacionDTO dto : notificaciones) {
+            telefonosPorMensaje.computeIfAbsent(dto.getMensaje(), m -> new ArrayList<>())
+                    .add(telefonosEmpleadosService.obtener(dto.getLegajo()));
+        }
 
-        log.info("Notificación creada: " + mensaje + " para el número: " + nroTelefono);
+        guardar(telefonosPorMensaje, System.currentTimeMillis(), enLaMismaEscritura);
+        log.info("Lote de notificaciones creado: {} notificaciones, {} mensajes.", notificaciones.size(), telefonosPorMensaje.size());
+        return notificaciones.size();
     }
 
-    // Metodo para obtener el número de telefono, de acuerdo con el tipo de endpoint
-    private String obtenerNroTelefono(Long legajo) {
-        try {
-            String url = PRUEBAS_URL + "/nro-telefono/" + legajo;
-            return restTemplate.getForObject(url, String.class);
-        } catch (Exception e) {
-            log.error("Error al obtener el número de teléfono para el legajo de empleado: " + legajo, e);
-            return "Número no disponible";
+    // Se valida antes de pasar al carril, así un lote mal armado se rechaza (400) sin ocupar un hilo de alertas
+    public void validar(List<NotificacionDTO> notificaciones) {
+        if (notificaciones == null) {
+            throw new IllegalArgumentException("El lote de notificaciones no puede ser nulo.");
+        }
+        for (NotificacionDTO dto : notificaciones) {
+            if (dto == null || dto.getMensaje() == null || dto.getLegajo() == null) {
+                throw new IllegalArgumentException("Cada notificación debe tener mensaje y legajo.");
+            }
         }
     }
 
-    private List<String> obtenerNrosTelefonos() {
-        try {
-            String url = PRUEBAS_URL + "/nros-telefono";
-
-            ResponseEntity<List<String>> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    new ParameterizedTypeReference<List<String>>() {}
-            );
+    // Mensaje de una promoción, todavía sin destinatarios (se agregan de a lotes con agregarDestinatarios).
+    // Las escrituras de promociones van con prioridad baja: las alertas que estén esperando al escritor pasan antes
+    public long crearMensaje(String texto, long fechaHoraEnvio) {
+        return escritorSQLite.ejecutar(() -> {
+            long id = escritorSQLite.reservarIds("mensajes_seq", 1);
+            jdbcTemplate.update(INSERT_MENSAJE, id, texto, fechaHoraEnvio, 0L);
+            return id;
+        }, EscritorSQLite.Prioridad.BAJA);
+    }
 
-            // Retornamos la lista de números de teléfono
-            return response.getBody();
+    public void agregarDestinatarios(long mensajeId, List<String> telefonos) {
+        escritorSQLite.escribir(() -> {
+            insertarDestinatarios(mensajeId, telefonos);
+            jdbcTemplate.update("UPDATE Mensajes SET DESTINATARIOS = DESTINATARIOS + ? WHERE ID = ?", telefonos.size(), mensajeId);
+        }, EscritorSQLite.Prioridad.BAJA);
+    }
 
-        } catch (Exception e) {
-            log.error("Error al obtener los números de teléfono: ", e);
-            return Collections.emptyList();
+    // Notificaciones enviadas a un teléfono, de la más vieja a la más nueva; la página sigue al destinatario "despuesDe"
+    @Transactional(readOnly = true)
+    public List<NotificacionEnviadaDTO> obtenerPorTelefono(String nroTelefono, Long despuesDe, int tamanio) {
+        validarTamanio(tamanio);
+        List<Destinatario> destinatarios = destinatarioRepositorio.findByNroTelefonoAndIdGreaterThanOrderByIdAsc(
+                nroTelefono, despuesDe != null ? despuesDe : 0L, PageRequest.of(0, tamanio));
+
+        Set<Long> idsMensajes = new HashSet<>();
+        destinatarios.forEach(destinatario -> idsMensajes.add(destinatario.getMensajeId()));
+        Map<Long, Mensaje> mensajes = new HashMap<>();
+        mensajeRepositorio.findAllById(idsMensajes).forEach(mensaje -> mensajes.put(mensaje.getId(), mensaje));
+
+        List<NotificacionEnviadaDTO> resultado = new ArrayList<>(destinatarios.size());
+        for (Destinatario destinatario : destinatarios) {
+            Mensaje mensaje = mensajes.get(destinatario.getMensajeId());
+            resultado.add(new NotificacionEnviadaDTO(destinatario.getId(), destinatario.getMensajeId(),
+                    mensaje != null ? mensaje.getTexto() : null,
+                    mensaje != null ? Fechas.formatear(mensaje.getFechaHoraEnvio()) : null,
+                    destinatario.getNroTelefono()));
         }
+        return resultado;
     }
 
-    public void enviarNotificacionPromocion(String mensaje) {
-        LocalDateTime fechaHora = LocalDateTime.now();
-        String fechaHoraFormateada = fechaHora.format(formatter);
-
-        // Obtener la lista de números de teléfono
-        List<String> numeros = this.obtenerNrosTelefonos();
-
-        // Si no hay números, no es necesario continuar
-        if (numeros.isEmpty()) {
-            log.warn("No se encontraron números de teléfono para enviar la promoción.");
-            return;
+    // Mensajes enviados en [desde, hasta), por fecha de envío; la página sigue al mensaje "despuesDe"
+    @Transactional(readOnly = true)
+    public List<MensajeDTO> obtenerPorFecha(String desde, String hasta, Long despuesDe, int tamanio) {
+        validarTamanio(tamanio);
+        long desdeMs = Fechas.aMilisegundos(desde);
+        long hastaMs = hasta != null ? Fechas.aMilisegundos(hasta) : Long.MAX_VALUE;
+
+        long despuesDeFechaHora = Long.MIN_VALUE;
+        long despuesDeId = 0L;
+        if (despuesDe != null) {
+            Mensaje ultimo = mensajeRepositorio.findById(despuesDe)
+                    .orElseThrow(() -> new IllegalArgumentException("No existe el mensaje " + despuesDe + "."));
+            despuesDeFechaHora = ultimo.getFechaHoraEnvio();
+            despuesDeId = ultimo.getId();
         }
 
-        // Iniciar el conteo de notificaciones enviadas
-        int notificacionesEnviadas = 0;
-        int notificacionesFallidas = 0;
-
-        for (String telefono : numeros) {
-            try {
-                Notificacion notificacion = new Notificacion();
-                notificacion.setMensaje(mensaje);
-                notificacion.setFechaHoraEnvio(fechaHoraFormateada);
-                notificacion.setNroTelefono(telefono);
+        return mensajeRepositorio.findEnviadosEntre(desdeMs, hastaMs, despuesDeFechaHora, despuesDeId, PageRequest.of(0, tamanio))
+                .stream()
+                .map(mensaje -> new MensajeDTO(mensaje.getId(), mensaje.getTexto(),
+                        Fechas.formatear(mensaje.getFechaHoraEnvio()), mensaje.getDestinatarios()))
+                .toList();
+    }
 
-                // Guardar la notificación
-                notificacionRepositorio.save(notificacion);
-                notificacionesEnviadas++;
+    private void validarTamanio(int tamanio) {
+        if (tamanio < 1 || tamanio > TAMANIO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + TAMANIO_MAXIMO_PAGINA + ".");
+        }
+    }
 
-            } catch (Exception e) {
-                log.error("Error al guardar la notificación para el número: {}", telefono, e);
-                notificacionesFallidas++;
+    // Graba los mensajes y sus destinatarios con batch JDBC en el escritor de la base (los lotes que llegan a la vez
+    // se confirman juntos). Las alertas se graban con prioridad alta
+    private void guardar(Map<String, List<String>> telefonosPorMensaje, long fechaHoraEnvio, Runnable enLaMismaEscritura) {
+        escritorSQLite.escribir(() -> {
+            if (!telefonosPorMensaje.isEmpty()) {
+                long id = escritorSQLite.reservarIds("mensajes_seq", telefonosPorMensaje.size());
+                List<Object[]> mensajes = new ArrayList<>(telefonosPorMensaje.size());
+                for (Map.Entry<String, List<String>> entrada : telefonosPorMensaje.entrySet()) {
+                    mensajes.add(new Object[]{id++, entrada.getKey(), fechaHoraEnvio, (long) entrada.getValue().size()});
+                }
+                jdbcTemplate.batchUpdate(INSERT_MENSAJE, mensajes);
+
+                int i = 0;
+                for (List<String> telefonos : telefonosPorMensaje.values()) {
+                    insertarDestinatarios((Long) mensajes.get(i++)[0], telefonos);
+                }
             }
+            enLaMismaEscritura.run();
+        }, EscritorSQLite.Prioridad.ALTA);
+    }
+
+    private void insertarDestinatarios(long mensajeId, List<String> telefonos) {
+        if (telefonos.isEmpty()) {
+            return;
+        }
+        long id = escritorSQLite.reservarIds("destinatarios_seq", telefonos.size());
+        List<Object[]> filas = new ArrayList<>(telefonos.size());
+        for (String telefono : telefonos) {
+            filas.add(new Object[]{id++, mensajeId, telefono});
         }
-        log.info("Notificaciones procesadas: {} enviadas correctamente, {} fallidas.", notificacionesEnviadas, notificacionesFallidas);
+        jdbcTemplate.batchUpdate(INSERT_DESTINATARIO, filas);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,297 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.Carril;
+import ar.edu.utn.frc.backend.config.ClienteHttp;
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.dto.EnvioPromocionDTO;
+import ar.edu.utn.frc.backend.dto.TelefonoEmpleadoDTO;
+import ar.edu.utn.frc.backend.utils.Fechas;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+// Envío de una promoción a todos los empleados en segundo plano. El texto se guarda una sola vez (un Mensaje), los
+// teléfonos se piden a Pruebas de a una página (ordenados por legajo) y cada página se guarda como destinatarios
+// del mensaje en lotes con el escritor de la base, así la lista completa nunca está en memoria. Quien inicia el envío recibe enseguida su id y consulta el avance mientras se procesa.
+// Los envíos corren en el carril de promociones (si su cola está llena se rechazan), piden los teléfonos por un destino
+// HTTP propio (pruebas-promociones) y graban con prioridad baja, así no demoran a las alertas.
+// Una página que no se puede obtener se reintenta con espera exponencial antes de dar el envío por fallido.
+// El avance se guarda en la tabla envios_promocion en la misma transacción que cada lote de destinatarios (el último
+// legajo guardado): al reiniciar, los envíos que quedaron en curso siguen desde ahí, sin repetir ni saltear teléfonos,
+// y si el carril no los admite quedan INTERRUMPIDO.
+@Slf4j
+@Service
+public class PromocionService {
+
+    private static final String SELECT_ENVIO = "SELECT ID, TEXTO, FECHA_HORA_MS, MENSAJE_ID, ULTIMO_LEGAJO, ESTADO, PAGINAS, "
+            + "ENVIADAS, FALLIDAS, FECHA_HORA_FIN_MS, ERROR FROM envios_promocion";
+
+    private final NotificacionService notificacionService;
+    private final ClienteHttp clienteHttp;
+    private final Carril carrilPromociones;
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
+    private final String url;
+    private final int tamanioPagina;
+    private final int tamanioLote;
+    private final long retencionMs;
+    private final int reintentos;
+    private final long esperaInicialMs;
+    private final Map<String, EnvioPromocion> estados = new ConcurrentHashMap<>();
+
+    // Estado de un envío: lo actualiza solo el hilo que lo procesa y se lee desde los pedidos de avance
+    private static class EnvioPromocion {
+        private final String id;
+        private final String texto;
+        private final long fechaHora;
+        private volatile Long mensajeId;
+        private volatile long ultimoLegajo;
+        private volatile String estado = "EN_CURSO";
+        private volatile int paginas;
+        private volatile long enviadas;
+        private volatile long fallidas;
+        private volatile String fechaHoraFin;
+        private volatile String error;
+        private volatile long finalizado;
+
+        private EnvioPromocion(String id, String texto, long fechaHora) {
+            this.id = id;
+            this.texto = texto;
+            this.fechaHora = fechaHora;
+        }
+
+        private EnvioPromocionDTO aDTO() {
+            return new EnvioPromocionDTO(id, mensajeId, estado, paginas, enviadas, fallidas, Fechas.formatear(fechaHora), fechaHoraFin, error);
+        }
+    }
+
+    @Autowired
+    public PromocionService(NotificacionService notificacionService,
+                            ClienteHttp clienteHttp,
+                            @Qualifier("carrilPromociones") Carril carrilPromociones,
+                            EscritorSQLite escritorSQLite,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${tpintegrador.pruebas.url}") String pruebasUrl,
+                            @Value("${tpintegrador.promociones.tamanio-pagina}") int tamanioPagina,
+                            @Value("${tpintegrador.promociones.tamanio-lote}") int tamanioLote,
+                            @Value("${tpintegrador.promociones.retencion-ms}") long retencionMs,
+                            @Value("${tpintegrador.promociones.reintentos}") int reintentos,
+                            @Value("${tpintegrador.promociones.espera-inicial-ms}") long esperaInicialMs) {
+        this.notificacionService = notificacionService;
+        this.clienteHttp = clienteHttp;
+        this.carrilPromociones = carrilPromociones;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
+        this.url = pruebasUrl + "/nros-telefono/pagina?despuesDe={despuesDe}&tamanio={tamanio}";
+        this.tamanioPagina = tamanioPagina;
+        this.tamanioLote = tamanioLote;
+        this.retencionMs = retencionMs;
+        this.reintentos = reintentos;
+        this.esperaInicialMs = esperaInicialMs;
+    }
+
+    @PostConstruct
+    public void reanudar() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS envios_promocion (ID TEXT PRIMARY KEY, TEXTO TEXT NOT NULL, "
+                + "FECHA_HORA_MS INTEGER NOT NULL, MENSAJE_ID INTEGER, ULTIMO_LEGAJO INTEGER NOT NULL, ESTADO TEXT NOT NULL, "
+                + "PAGINAS INTEGER NOT NULL, ENVIADAS INTEGER NOT NULL, FALLIDAS INTEGER NOT NULL, FECHA_HORA_FIN_MS INTEGER, ERROR TEXT)");
+
+        for (EnvioPromocion envio : jdbcTemplate.query(SELECT_ENVIO + " WHERE ESTADO = 'EN_CURSO'", (fila, i) -> leer(fila))) {
+            estados.put(envio.id, envio);
+            try {
+                carrilPromociones.enviar(() -> procesar(envio));
+                log.info("Envío de promoción {} reanudado después del legajo {}.", envio.id, envio.ultimoLegajo);
+            } catch (RejectedExecutionException e) {
+                terminar(envio, "INTERRUMPIDO", "No se pudo reanudar al iniciar: " + e.getMessage());
+                log.warn("Envío de promoción {} interrumpido: {}", envio.id, e.getMessage());
+            }
+        }
+    }
+
+    // Registra el envío y lo procesa en segundo plano; devuelve el estado inicial con el id para consultar el avance.
+    // Si el carril de promociones está lleno lanza RejectedExecutionException y el envío no se registra
+    public EnvioPromocionDTO iniciar(String mensaje) {
+        EnvioPromocion envio = new EnvioPromocion(UUID.randomUUID().toString(), mensaje, System.currentTimeMillis());
+        escritorSQLite.escribir(() -> jdbcTemplate.update("INSERT INTO envios_promocion (ID, TEXTO, FECHA_HORA_MS, ULTIMO_LEGAJO, "
+                + "ESTADO, PAGINAS, ENVIADAS, FALLIDAS) VALUES (?, ?, ?, 0, 'EN_CURSO', 0, 0, 0)", envio.id, mensaje, envio.fechaHora));
+        estados.put(envio.id, envio);
+        try {
+            carrilPromociones.enviar(() -> procesar(envio));
+        } catch (RejectedExecutionException e) {
+            estados.remove(envio.id);
+            escritorSQLite.escribir(() -> jdbcTemplate.update("DELETE FROM envios_promocion WHERE ID = ?", envio.id));
+            throw e;
+        }
+
+        log.info("Envío de promoción {} iniciado.", envio.id);
+        return envio.aDTO();
+    }
+
+    // Los envíos que ya no están en memoria (por ejemplo, de antes de reiniciar) se buscan en la tabla
+    public Optional<EnvioPromocionDTO> obtenerAvance(String id) {
+        EnvioPromocion envio = estados.get(id);
+        if (envio == null) {
+            envio = jdbcTemplate.query(SELECT_ENVIO + " WHERE ID = ?", (fila, i) -> leer(fila), id).stream().findFirst().orElse(null);
+        }
+        return Optional.ofNullable(envio).map(EnvioPromocion::aDTO);
+    }
+
+    private void procesar(EnvioPromocion envio) {
+        try {
+            // El mensaje se crea en la misma escritura que lo anota en el envío, así al reanudar no se crea otro
+            if (envio.mensajeId == null) {
+                envio.mensajeId = escritorSQLite.ejecutar(() -> {
+                    long mensajeId = notificacionService.crearMensaje(envio.texto, envio.fechaHora);
+                    jdbcTemplate.update("UPDATE envios_promocion SET MENSAJE_ID = ? WHERE ID = ?", mensajeId, envio.id);
+                    return mensajeId;
+                }, EscritorSQLite.Prioridad.BAJA);
+            }
+
+            List<TelefonoEmpleadoDTO> pagina;
+            do {
+                pagina = obtenerPaginaConReintentos(envio.ultimoLegajo);
+                if (pagina.isEmpty()) {
+                    break;
+                }
+
+                guardarEnLotes(envio, pagina);
+                envio.paginas++;
+            } while (pagina.size() == tamanioPagina);
+
+            terminar(envio, "FINALIZADO", null);
+            log.info("Envío de promoción {} finalizado: {} notificaciones enviadas, {} fallidas.", envio.id, envio.enviadas, envio.fallidas);
+
+        } catch (InterruptedException e) {
+            // Se está deteniendo el servicio: el envío queda en curso y se reanuda al reiniciar
+            Thread.currentThread().interrupt();
+            log.warn("Envío de promoción {} detenido tras {} notificaciones, se reanuda al reiniciar.", envio.id, envio.enviadas);
+
+        } catch (Exception e) {
+            // Sin la página de teléfonos no se puede seguir: lo ya guardado queda y el envío se marca como fallido
+            terminar(envio, "FALLIDO", e.getMessage());
+            log.error("Envío de promoción {} interrumpido tras {} notificaciones: {}", envio.id, envio.enviadas, e.getMessage());
+        }
+    }
+
+    // Cada lote se guarda junto con el avance del envío. Si un lote falla se cuentan como fallidas solo sus
+    // notificaciones y se sigue con el resto
+    private void guardarEnLotes(EnvioPromocion envio, List<TelefonoEmpleadoDTO> pagina) {
+        for (int desde = 0; desde < pagina.size(); desde += tamanioLote) {
+            int hasta = Math.min(desde + tamanioLote, pagina.size());
+            List<String> telefonos = new ArrayList<>(hasta - desde);
+            for (TelefonoEmpleadoDTO empleado : pagina.subList(desde, hasta)) {
+                telefonos.add(empleado.getTelefono());
+            }
+            long ultimoLegajo = pagina.get(hasta - 1).getLegajo();
+
+            try {
+                long enviadas = envio.enviadas + telefonos.size();
+                escritorSQLite.escribir(() -> {
+                    notificacionService.agregarDestinatarios(envio.mensajeId, telefonos);
+                    jdbcTemplate.update("UPDATE envios_promocion SET ULTIMO_LEGAJO = ?, PAGINAS = ?, ENVIADAS = ?, FALLIDAS = ? WHERE ID = ?",
+                            ultimoLegajo, envio.paginas, enviadas, envio.fallidas, envio.id);
+                }, EscritorSQLite.Prioridad.BAJA);
+                envio.enviadas = enviadas;
+
+            } catch (Exception e) {
+                log.error("Envío de promoción {}: no se pudo guardar un lote de {} notificaciones: {}", envio.id, telefonos.size(), e.getMessage());
+                envio.fallidas += telefonos.size();
+            }
+            envio.ultimoLegajo = ultimoLegajo;
+        }
+    }
+
+    // Si el estado final no se puede guardar, al reiniciar el envío se reanuda desde el último lote guardado
+    private void terminar(EnvioPromocion envio, String estado, String error) {
+        long ahora = System.currentTimeMillis();
+        try {
+            escritorSQLite.escribir(() -> jdbcTemplate.update("UPDATE envios_promocion SET ESTADO = ?, ULTIMO_LEGAJO = ?, PAGINAS = ?, "
+                            + "ENVIADAS = ?, FALLIDAS = ?, FECHA_HORA_FIN_MS = ?, ERROR = ? WHERE ID = ?",
+                    estado, envio.ultimoLegajo, envio.paginas, envio.enviadas, envio.fallidas, ahora, error, envio.id),
+                    EscritorSQLite.Prioridad.BAJA);
+        } catch (Exception e) {
+            log.error("Envío de promoción {}: no se pudo guardar el estado {}: {}", envio.id, estado, e.getMessage());
+        }
+        envio.error = error;
+        envio.estado = estado;
+        envio.fechaHoraFin = Fechas.formatear(ahora);
+        envio.finalizado = ahora;
+    }
+
+    // Una falla de la página (tiempo agotado, circuito abierto) se reintenta hasta "reintentos" veces, duplicando la espera
+    private List<TelefonoEmpleadoDTO> obtenerPaginaConReintentos(long despuesDe) throws InterruptedException {
+        long espera = esperaInicialMs;
+        for (int intento = 0; ; intento++) {
+            try {
+                return obtenerPagina(despuesDe);
+
+            } catch (RuntimeException e) {
+                if (intento >= reintentos) {
+                    throw e;
+                }
+                log.warn("No se pudo obtener la página de teléfonos después del legajo {}, se reintenta en {} ms: {}",
+                        despuesDe, espera, e.getMessage());
+                Thread.sleep(espera);
+                espera *= 2;
+            }
+        }
+    }
+
+    // Una página vacía (o 204 sin cuerpo) indica que no hay más teléfonos
+    private List<TelefonoEmpleadoDTO> obtenerPagina(long despuesDe) {
+        List<TelefonoEmpleadoDTO> pagina = clienteHttp.ejecutar("pruebas-promociones", restTemplate -> restTemplate.exchange(
+                url, HttpMethod.GET, null, new ParameterizedTypeReference<List<TelefonoEmpleadoDTO>>() {},
+                despuesDe, tamanioPagina).getBody());
+        return pagina != null ? pagina : List.of();
+    }
+
+    private EnvioPromocion leer(ResultSet fila) throws SQLException {
+        EnvioPromocion envio = new EnvioPromocion(fila.getString("ID"), fila.getString("TEXTO"), fila.getLong("FECHA_HORA_MS"));
+        envio.mensajeId = leerLong(fila, "MENSAJE_ID");
+        envio.ultimoLegajo = fila.getLong("ULTIMO_LEGAJO");
+        envio.estado = fila.getString("ESTADO");
+        envio.paginas = fila.getInt("PAGINAS");
+        envio.enviadas = fila.getLong("ENVIADAS");
+        envio.fallidas = fila.getLong("FALLIDAS");
+        Long fin = leerLong(fila, "FECHA_HORA_FIN_MS");
+        envio.fechaHoraFin = fin != null ? Fechas.formatear(fin) : null;
+        envio.finalizado = fin != null ? fin : 0L;
+        envio.error = fila.getString("ERROR");
+        return envio;
+    }
+
+    private static Long leerLong(ResultSet fila, String columna) throws SQLException {
+        long valor = fila.getLong(columna);
+        return fila.wasNull() ? null : valor;
+    }
+
+    // Los envíos terminados se conservan un tiempo para poder consultar cómo terminaron
+    @Scheduled(fixedDelayString = "${tpintegrador.promociones.retencion-ms}")
+    public void limpiarFinalizados() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        estados.values().removeIf(envio -> envio.finalizado > 0 && envio.finalizado < limite);
+        try {
+            escritorSQLite.escribir(() -> jdbcTemplate.update("DELETE FROM envios_promocion WHERE ESTADO <> 'EN_CURSO' "
+                    + "AND FECHA_HORA_FIN_MS < ?", limite), EscritorSQLite.Prioridad.BAJA);
+        } catch (Exception e) {
+            log.warn("No se pudieron borrar los envíos de promoción terminados: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.ClienteHttp;
+import ar.edu.utn.frc.backend.dto.TelefonoEmpleadoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache en memoria de legajo -> teléfono, para no consultar a Pruebas en cada notificación.
+// Se precarga al iniciar (y se refresca periódicamente) con todos los teléfonos, de a una página; cada entrada vence
+// a los ttl-ms y la cantidad de entradas está acotada. Si Pruebas no responde se usa la última entrada conocida
+// aunque esté vencida. Los empleados no se modifican por la API de Pruebas (no hay un aviso de cambio que escuchar):
+// el ttl-ms es corto (un minuto) y es lo más que tarda en usarse un teléfono cambiado en la base; para que se use
+// enseguida se invalida con invalidar(legajo) o invalidarTodo() (DELETE /cache-telefonos).
+@Slf4j
+@Service
+public class TelefonosEmpleadosService {
+
+    public static final String NUMERO_NO_DISPONIBLE = "Número no disponible";
+
+    private final ClienteHttp clienteHttp;
+    private final String urlLegajo;
+    private final String urlPagina;
+    private final long ttlMs;
+    private final int maximoEntradas;
+    private final int tamanioPagina;
+    private final Map<Long, Entrada> porLegajo = new ConcurrentHashMap<>();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter vencidas;
+
+    private record Entrada(String telefono, long vence) {
+    }
+
+    @Autowired
+    public TelefonosEmpleadosService(ClienteHttp clienteHttp,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${tpintegrador.pruebas.url}") String pruebasUrl,
+                                     @Value("${tpintegrador.telefonos.ttl-ms}") long ttlMs,
+                                     @Value("${tpintegrador.telefonos.maximo-entradas}") int maximoEntradas,
+                                     @Value("${tpintegrador.telefonos.tamanio-pagina}") int tamanioPagina) {
+        this.clienteHttp = clienteHttp;
+        this.urlLegajo = pruebasUrl + "/nro-telefono/{legajo}";
+        this.urlPagina = pruebasUrl + "/nros-telefono/pagina?despuesDe={despuesDe}&tamanio={tamanio}";
+        this.ttlMs = ttlMs;
+        this.maximoEntradas = maximoEntradas;
+        this.tamanioPagina = tamanioPagina;
+
+        this.aciertos = Counter.builder("telefonos.cache").tag("resultado", "acierto").register(meterRegistry);
+        this.fallos = Counter.builder("telefonos.cache").tag("resultado", "fallo").register(meterRegistry);
+        this.vencidas = Counter.builder("telefonos.cache").tag("resultado", "vencida").register(meterRegistry);
+        Gauge.builder("telefonos.cache.entradas", porLegajo, Map::size).register(meterRegistry);
+    }
+
+    // Teléfono del empleado: desde la cache si está vigente; si no, se pide a Pruebas y se guarda
+    public String obtener(Long legajo) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = porLegajo.get(legajo);
+        if (entrada != null && entrada.vence() > ahora) {
+            aciertos.increment();
+            return entrada.telefono();
+        }
+
+        fallos.increment();
+        String telefono = clienteHttp.ejecutar("pruebas", restTemplate -> restTemplate.getForObject(urlLegajo, String.class, legajo), e -> {
+            log.error("Error al obtener el número de teléfono para el legajo de empleado: {}: {}", legajo, e.toString());
+            return null;
+        });
+
+        if (telefono != null) {
+            guardar(legajo, telefono, ahora);
+            return telefono;
+        }
+
+        // Pruebas no respondió: mejor el último teléfono conocido que ninguno
+        if (entrada != null) {
+            vencidas.increment();
+            return entrada.telefono();
+        }
+        return NUMERO_NO_DISPONIBLE;
+    }
+
+    public void invalidar(Long legajo) {
+        porLegajo.remove(legajo);
+    }
+
+    public void invalidarTodo() {
+        porLegajo.clear();
+    }
+
+    // Precarga al iniciar y refresco periódico de todos los teléfonos (hasta maximo-entradas). Si Pruebas no
+    // responde se deja la cache como está y se vuelve a intentar en la próxima ejecución
+    @Scheduled(initialDelay = 0, fixedDelayString = "${tpintegrador.telefonos.intervalo-precarga-ms}")
+    public void precargar() {
+        try {
+            long despuesDe = 0L;
+            int cargados = 0;
+            List<TelefonoEmpleadoDTO> pagina;
+            do {
+                long desde = despuesDe;
+                pagina = clienteHttp.ejecutar("pruebas", restTemplate -> restTemplate.exchange(urlPagina, HttpMethod.GET, null,
+                        new ParameterizedTypeReference<List<TelefonoEmpleadoDTO>>() {}, desde, tamanioPagina).getBody());
+                if (pagina == null || pagina.isEmpty()) {
+                    break;
+                }
+
+                long ahora = System.currentTimeMillis();
+                for (TelefonoEmpleadoDTO empleado : pagina) {
+                    guardar(empleado.getLegajo(), empleado.getTelefono(), ahora);
+                }
+                cargados += pagina.size();
+                despuesDe = pagina.get(pagina.size() - 1).getLegajo();
+            } while (pagina.size() == tamanioPagina && cargados < maximoEntradas);
+
+            log.info("Cache de teléfonos precargada: {} empleados.", cargados);
+
+        } catch (Exception e) {
+            log.warn("No se pudo precargar la cache de teléfonos: {}", e.getMessage());
+        }
+    }
+
+    private void guardar(Long legajo, String telefono, long ahora) {
+        porLegajo.put(legajo, new Entrada(telefono, ahora + ttlMs));
+        if (porLegajo.size() > maximoEntradas) {
+            desalojar(ahora);
+        }
+    }
+
+    // Primero se sacan las vencidas y, si no alcanza, las que vencen antes, hasta dejar un 10% de lugar libre
+    private void desalojar(long ahora) {
+        porLegajo.values().removeIf(entrada -> entrada.vence() <= ahora);
+
+        int sobrantes = porLegajo.size() - maximoEntradas * 9 / 10;
+        if (sobrantes <= 0) {
+            return;
+        }
+        List<Map.Entry<Long, Entrada>> entradas = new ArrayList<>(porLegajo.entrySet());
+        entradas.sort(Comparator.comparingLong(e -> e.getValue().vence()));
+        for (int i = 0; i < sobrantes && i < entradas.size(); i++) {
+            porLegajo.remove(entradas.get(i).getKey(), entradas.get(i).getValue());
+        }
+    }
+}
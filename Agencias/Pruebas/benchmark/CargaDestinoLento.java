@@ -0,0 +1,131 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prueba de carga del servicio de Pruebas con un destino lento: levanta una API externa falsa que demora cada
+// respuesta y dispara pedidos concurrentes a GET /posiciones/configuracion, que la consulta de forma sincrónica.
+// Informa pedidos por segundo y latencias (p50, p99, máxima) para comparar hilos de plataforma y virtuales.
+//
+// Uso (sin Maven, con el lanzador de archivos fuente de Java):
+//   java CargaDestinoLento.java [pedidos] [concurrencia] [demoraMs] [puertoFalso] [url]
+//   por defecto: 2000 400 200 9099 http://localhost:8082/posiciones/configuracion
+//
+// Pruebas se arranca apuntando a la API falsa, con un pool de Tomcat chico para que el límite se note, sin el
+// bulkhead del cliente HTTP ni el límite del pool de conexiones (que si no rechazarían o harían esperar a las llamadas de más):
+//   --tpintegrador.api-externa.url=http://localhost:9099/ --server.tomcat.threads.max=50
+//   --tpintegrador.http.destinos.api-externa.llamadas-concurrentes=10000 --tpintegrador.http.conexiones-por-destino=1000
+//   --tpintegrador.http.conexiones-maximas=1000
+// y se corre dos veces: una así y otra (en Java 21) agregando --spring.threads.virtual.enabled=true
+public class CargaDestinoLento {
+
+    private static final String CONFIGURACION =
+            "{\"coordenadasAgencia\":{\"lat\":42.50886738457441,\"lon\":1.5347139324337429},"
+                    + "\"radioAdmitidoKm\":5,\"zonasRestringidas\":[]}";
+
+    public static void main(String[] args) throws Exception {
+        int pedidos = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int concurrencia = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        long demoraMs = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        int puertoFalso = args.length > 3 ? Integer.parseInt(args[3]) : 9099;
+        String url = args.length > 4 ? args[4] : "http://localhost:8082/posiciones/configuracion";
+
+        HttpServer apiFalsa = iniciarApiFalsa(puertoFalso, demoraMs);
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(concurrencia))
+                .build();
+        HttpRequest pedido = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).GET().build();
+
+        try {
+            // Calentamiento: conexiones, JIT y el primer acceso a cada destino
+            correr(cliente, pedido, Math.min(200, pedidos), Math.min(50, concurrencia));
+
+            long inicio = System.nanoTime();
+            Resultado resultado = correr(cliente, pedido, pedidos, concurrencia);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+
+            long[] latencias = resultado.latenciasNs();
+            Arrays.sort(latencias);
+            System.out.printf("Pedidos: %d (concurrencia %d, demora del destino %d ms)%n", pedidos, concurrencia, demoraMs);
+            System.out.printf("Errores: %d%n", resultado.errores());
+            System.out.printf("Pedidos por segundo: %.1f%n", pedidos / segundos);
+            System.out.printf("Latencia p50: %.1f ms, p99: %.1f ms, máxima: %.1f ms%n",
+                    percentil(latencias, 0.50), percentil(latencias, 0.99), latencias[latencias.length - 1] / 1e6);
+
+        } finally {
+            apiFalsa.stop(0);
+            System.exit(0);
+        }
+    }
+
+    private record Resultado(long[] latenciasNs, long errores) {
+    }
+
+    // Cada uno de los "concurrencia" clientes manda un pedido, espera la respuesta y manda el siguiente
+    private static Resultado correr(HttpClient cliente, HttpRequest pedido, int pedidos, int concurrencia) throws InterruptedException {
+        long[] latencias = new long[pedidos];
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicLong errores = new AtomicLong();
+
+        ExecutorService clientes = Executors.newFixedThreadPool(concurrencia);
+        for (int c = 0; c < concurrencia; c++) {
+            clientes.execute(() -> {
+                int i;
+                while ((i = siguiente.getAndIncrement()) < pedidos) {
+                    long inicio = System.nanoTime();
+                    try {
+                        HttpResponse<Void> respuesta = cliente.send(pedido, HttpResponse.BodyHandlers.discarding());
+                        if (respuesta.statusCode() != 200) {
+                            errores.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    }
+                    latencias[i] = System.nanoTime() - inicio;
+                }
+            });
+        }
+        clientes.shutdown();
+        clientes.awaitTermination(1, TimeUnit.HOURS);
+        return new Resultado(latencias, errores.get());
+    }
+
+    private static HttpServer iniciarApiFalsa(int puerto, long demoraMs) throws Exception {
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(puerto), 1000);
+        byte[] cuerpo = CONFIGURACION.getBytes(StandardCharsets.UTF_8);
+        servidor.createContext("/", intercambio -> {
+            try {
+                Thread.sleep(demoraMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            intercambio.getResponseHeaders().add("Content-Type", "application/json");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        });
+        // La API falsa no tiene que ser el cuello de botella
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.start();
+        return servidor;
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+}
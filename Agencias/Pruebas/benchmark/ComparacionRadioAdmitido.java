@@ -0,0 +1,114 @@
+import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.distancias.RadioAdmitido;
+
+import java.util.Random;
+
+// Compara RadioAdmitido.contiene (distancia equirectangular al cuadrado) con haversine: cuánto se corre el borde del
+// círculo y cuánto tarda cada verificación.
+//   - Error: en cada dirección busca (por bisección) la distancia haversine a la que contiene cambia de resultado
+//     y la compara con el radio. Informa el máximo en metros y relativo, y la cota tan|latitud|·r/2R.
+//   - Tiempo: verifica los mismos puntos al azar (en un cuadrado del doble del radio) con contiene y con el
+//     cálculo de haversine completo, varias rondas después de un calentamiento, e informa ns por verificación.
+//
+// Uso (sin Maven, con el lanzador de archivos fuente de Java, sobre las clases compiladas de Pruebas):
+//   mvn -q compile
+//   java -cp target/classes benchmark/ComparacionRadioAdmitido.java [latitud] [longitud] [radioKm] [puntos]
+//   por defecto: 42.50886738457441 1.5347139324337429 5 1000000 (la agencia de la configuración de la cátedra)
+public class ComparacionRadioAdmitido {
+
+    private static final double RADIO_TIERRA_KM = 6371.0;
+
+    public static void main(String[] args) {
+        double latitud = args.length > 0 ? Double.parseDouble(args[0]) : 42.50886738457441;
+        double longitud = args.length > 1 ? Double.parseDouble(args[1]) : 1.5347139324337429;
+        double radioKm = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+        int puntos = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+
+        RadioAdmitido radio = new RadioAdmitido(latitud, longitud, radioKm);
+        medirError(radio, latitud, longitud, radioKm);
+        medirTiempo(radio, latitud, longitud, radioKm, puntos);
+    }
+
+    private static void medirError(RadioAdmitido radio, double latitud, double longitud, double radioKm) {
+        double errorMaximoKm = 0;
+        for (int grados = 0; grados < 360; grados++) {
+            double rumbo = Math.toRadians(grados);
+            double adentro = 0;
+            double afuera = radioKm * 1.5;
+            for (int i = 0; i < 60; i++) {
+                double medio = (adentro + afuera) / 2;
+                double[] punto = destino(latitud, longitud, rumbo, medio);
+                if (radio.contiene(punto[0], punto[1])) {
+                    adentro = medio;
+                } else {
+                    afuera = medio;
+                }
+            }
+            errorMaximoKm = Math.max(errorMaximoKm, Math.abs(adentro - radioKm));
+        }
+
+        double cota = Math.abs(Math.tan(Math.toRadians(latitud))) * radioKm / (2 * RADIO_TIERRA_KM);
+        System.out.printf("Borde: error máximo %.3f m (relativo %.2e), cota tan|lat|·r/2R = %.2e%n",
+                errorMaximoKm * 1000, errorMaximoKm / radioKm, cota);
+    }
+
+    private static void medirTiempo(RadioAdmitido radio, double latitud, double longitud, double radioKm, int cantidad) {
+        Random azar = new Random(42);
+        double gradosLatitud = Math.toDegrees(radioKm / RADIO_TIERRA_KM);
+        double gradosLongitud = gradosLatitud / Math.cos(Math.toRadians(latitud));
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            latitudes[i] = latitud + (azar.nextDouble() * 2 - 1) * gradosLatitud;
+            longitudes[i] = longitud + (azar.nextDouble() * 2 - 1) * gradosLongitud;
+        }
+
+        int distintos = 0;
+        for (int i = 0; i < cantidad; i++) {
+            if (radio.contiene(latitudes[i], longitudes[i]) != haversine(latitud, longitud, radioKm, latitudes[i], longitudes[i])) {
+                distintos++;
+            }
+        }
+        System.out.printf("Puntos con distinto resultado que haversine: %d de %d%n", distintos, cantidad);
+
+        for (int ronda = 0; ronda < 8; ronda++) {
+            long inicio = System.nanoTime();
+            int adentro = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (radio.contiene(latitudes[i], longitudes[i])) {
+                    adentro++;
+                }
+            }
+            long contiene = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            int adentroHaversine = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (haversine(latitud, longitud, radioKm, latitudes[i], longitudes[i])) {
+                    adentroHaversine++;
+                }
+            }
+            long completo = System.nanoTime() - inicio;
+
+            // Las primeras rondas son de calentamiento
+            if (ronda >= 3) {
+                System.out.printf("Ronda %d: contiene %.1f ns, haversine %.1f ns por punto (%d / %d adentro)%n",
+                        ronda - 2, (double) contiene / cantidad, (double) completo / cantidad, adentro, adentroHaversine);
+            }
+        }
+    }
+
+    private static boolean haversine(double latitud, double longitud, double radioKm, double latitudPunto, double longitudPunto) {
+        return ObtenerDistancia.distanciaKm(latitud, longitud, latitudPunto, longitudPunto) <= radioKm;
+    }
+
+    // Punto a la distancia y rumbo dados sobre la esfera
+    private static double[] destino(double latitud, double longitud, double rumbo, double distanciaKm) {
+        double angulo = distanciaKm / RADIO_TIERRA_KM;
+        double lat1 = Math.toRadians(latitud);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angulo) + Math.cos(lat1) * Math.sin(angulo) * Math.cos(rumbo));
+        double lon2 = Math.toRadians(longitud) + Math.atan2(Math.sin(rumbo) * Math.sin(angulo) * Math.cos(lat1),
+                Math.cos(angulo) - Math.sin(lat1) * Math.sin(lat2));
+        return new double[]{Math.toDegrees(lat2), Math.toDegrees(lon2)};
+    }
+}
@@ -2,8 +2,10 @@ package ar.edu.utn.frc.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PruebasApplication {
 
 	public static void main(String[] args) {
@@ -1,15 +0,0 @@
-package ar.edu.utn.frc.backend.config;
-
-import org.hibernate.service.spi.ServiceException;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
-
-@Configuration
-public class AppConfig {
-
-    @Bean
-    public RestTemplate restTemplate() throws ServiceException {
-        return new RestTemplate();
-    }
-}
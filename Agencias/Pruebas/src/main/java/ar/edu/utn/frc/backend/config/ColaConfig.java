@@ -0,0 +1,20 @@
+package ar.edu.utn.frc.backend.config;
+
+import ar.edu.utn.frc.backend.cola.ColaEnArchivo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+// Cola en disco compartida con Notificaciones: los dos servicios deben apuntar al mismo directorio y usar el mismo
+// tamaño de segmento. Pruebas solo agrega; el directorio se crea con el primer registro
+@Configuration
+public class ColaConfig {
+
+    @Bean(destroyMethod = "close")
+    public ColaEnArchivo colaNotificaciones(@Value("${tpintegrador.cola.directorio}") String directorio,
+                                           @Value("${tpintegrador.cola.tamanio-segmento}") int tamanioSegmento) {
+        return new ColaEnArchivo(Path.of(directorio), tamanioSegmento);
+    }
+}
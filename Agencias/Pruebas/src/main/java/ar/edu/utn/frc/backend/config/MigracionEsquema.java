@@ -0,0 +1,133 @@
+package ar.edu.utn.frc.backend.config;
+
+import ar.edu.utn.frc.backend.utils.Fechas;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cambios de esquema sobre la base SQLite existente. Con este dialecto ddl-auto=update no detecta las tablas
+// ya creadas (intenta crearlas de nuevo y falla), así que nunca les agrega columnas nuevas.
+// Corre después de que Hibernate crea las tablas que falten, y cada cambio se aplica una sola vez;
+// los servicios que leen estas tablas al iniciar dependen de este bean.
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class MigracionEsquema {
+
+    private static final int TAMANIO_LOTE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public MigracionEsquema(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void migrar() {
+        agregarColumnaSiFalta("Pruebas", "KM_RECORRIDOS", "REAL");
+        crearIndiceSiFalta("IDX_PRUEBAS_VEHICULO", "Pruebas", "ID_VEHICULO, ID");
+
+        // Fechas guardadas como texto "yyyy-MM-dd HH:mm:ss" -> milisegundos desde epoch
+        migrarFechaAMilisegundos("Posiciones", "FECHA_HORA", "FECHA_HORA_MS");
+        migrarFechaAMilisegundos("Pruebas", "FECHA_HORA_INICIO", "FECHA_HORA_INICIO_MS");
+        migrarFechaAMilisegundos("Pruebas", "FECHA_HORA_FIN", "FECHA_HORA_FIN_MS");
+        crearIndiceSiFalta("IDX_POSICIONES_VEHICULO_FECHA", "Posiciones", "ID_VEHICULO, FECHA_HORA_MS");
+        crearIndiceSiFalta("IDX_PRUEBAS_VEHICULO_INICIO", "Pruebas", "ID_VEHICULO, FECHA_HORA_INICIO_MS");
+    }
+
+    private List<String> obtenerColumnas(String tabla) {
+        return jdbcTemplate.query("PRAGMA table_info(" + tabla + ")", (rs, fila) -> rs.getString("name"));
+    }
+
+    private boolean contiene(List<String> columnas, String columna) {
+        return columnas.stream().anyMatch(c -> c.equalsIgnoreCase(columna));
+    }
+
+    private void agregarColumnaSiFalta(String tabla, String columna, String tipo) {
+        List<String> columnas = obtenerColumnas(tabla);
+
+        // Si la tabla todavía no existe la crea Hibernate con todas sus columnas
+        if (columnas.isEmpty() || contiene(columnas, columna)) {
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + tabla + " ADD COLUMN " + columna + " " + tipo);
+        log.info("Esquema actualizado: columna {} agregada a la tabla {}.", columna, tabla);
+    }
+
+    private void crearIndiceSiFalta(String indice, String tabla, String columnas) {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + indice + " ON " + tabla + " (" + columnas + ")");
+    }
+
+    // Copia la columna de texto a una columna INTEGER en lotes chicos (cada lote es una transacción corta,
+    // así no se bloquea la base) y recién al terminar borra la columna vieja. Si se corta a mitad de camino,
+    // en el próximo inicio sigue desde las filas que quedaron sin convertir.
+    // Si alguna fecha no se puede convertir la columna vieja no se borra: se informa cuántas quedaron y se vuelve
+    // a intentar en el próximo inicio, después de corregirlas a mano.
+    private void migrarFechaAMilisegundos(String tabla, String columnaTexto, String columnaMilisegundos) {
+        if (!contiene(obtenerColumnas(tabla), columnaTexto)) {
+            return;
+        }
+
+        agregarColumnaSiFalta(tabla, columnaMilisegundos, "INTEGER");
+
+        String seleccion = "SELECT ID, " + columnaTexto + " FROM " + tabla + " WHERE " + columnaMilisegundos + " IS NULL AND "
+                + columnaTexto + " IS NOT NULL AND ID > ? ORDER BY ID LIMIT " + TAMANIO_LOTE;
+        String actualizacion = "UPDATE " + tabla + " SET " + columnaMilisegundos + " = ? WHERE ID = ?";
+
+        long ultimoId = Long.MIN_VALUE;
+        int convertidas = 0;
+        while (true) {
+            List<Object[]> lote = jdbcTemplate.query(seleccion, (rs, fila) -> new Object[]{rs.getLong(1), rs.getString(2)}, ultimoId);
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> filas = new ArrayList<>(lote.size());
+            for (Object[] registro : lote) {
+                Long milisegundos = convertir((String) registro[1]);
+                if (milisegundos == null) {
+                    log.warn("No se pudo convertir la fecha '{}' de la fila {} de {}.", registro[1], registro[0], tabla);
+                    continue;
+                }
+                filas.add(new Object[]{milisegundos, registro[0]});
+            }
+
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(actualizacion, filas));
+            convertidas += filas.size();
+            ultimoId = (Long) lote.get(lote.size() - 1)[0];
+        }
+
+        Long sinConvertir = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabla + " WHERE " + columnaMilisegundos
+                + " IS NULL AND " + columnaTexto + " IS NOT NULL", Long.class);
+        if (sinConvertir != null && sinConvertir > 0) {
+            log.error("Migración de {}.{} incompleta: {} filas con fechas que no se pudieron convertir. La columna {} se conserva hasta corregirlas.",
+                    tabla, columnaTexto, sinConvertir, columnaTexto);
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + tabla + " DROP COLUMN " + columnaTexto);
+        log.info("Esquema actualizado: {}.{} migrada a {} ({} filas).", tabla, columnaTexto, columnaMilisegundos, convertidas);
+    }
+
+    // Las fechas de texto se guardaron en hora local; se aceptan también con "T" o con fracción de segundos
+    private Long convertir(String fechaHora) {
+        try {
+            return Fechas.aMilisegundos(LocalDateTime.parse(fechaHora.trim().replace(' ', 'T')));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -28,12 +28,21 @@ public class ResourceServerConfig {
                         // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de empleado
                         .requestMatchers("/api/posiciones/verificar").hasRole("EMPLEADO")
 
+                        // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de empleado
+                        .requestMatchers(HttpMethod.GET,"/api/posiciones/ultima/**").hasRole("EMPLEADO")
+
                         // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de vehiculo
                         .requestMatchers(HttpMethod.PATCH,"/api/posiciones/actualizar").hasRole("VEHICULO")
 
+                        // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de vehiculo
+                        .requestMatchers(HttpMethod.POST,"/api/posiciones/agregar-lote").hasRole("VEHICULO")
+
                         // Esta ruta puede ser accedida únicamente por usuarios autenticados con el rol de admin
                         .requestMatchers("/api/reportes/**").hasRole("ADMIN")
 
+                        // El stream de eventos en vivo es para los tableros de empleados y administradores
+                        .requestMatchers(HttpMethod.GET,"/api/eventos/**").hasAnyRole("EMPLEADO", "ADMIN")
+
                         // Cualquier otra peticion
                         .anyRequest().permitAll()
                 )
@@ -0,0 +1,38 @@
+package ar.edu.utn.frc.backend.controllers;
+
+import ar.edu.utn.frc.backend.services.EventosEnVivoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/eventos")
+
+public class EventosController {
+
+    private final EventosEnVivoService eventosEnVivoService;
+
+    @Autowired
+    public EventosController(EventosEnVivoService eventosEnVivoService) {
+        this.eventosEnVivoService = eventosEnVivoService;
+    }
+
+    // Stream (server-sent events) de posiciones, cambios de estado respecto de las zonas e inicio / fin de pruebas.
+    // Se puede filtrar por patente y/o por legajo del empleado a cargo de la prueba
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribir(@RequestParam(required = false) String patente,
+                                                @RequestParam(required = false) Long legajo) {
+        try {
+            return ResponseEntity.ok(eventosEnVivoService.suscribir(patente, legajo));
+
+        } catch (IllegalStateException e) {
+            log.warn("No se aceptó la suscripción a eventos: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
@@ -2,21 +2,31 @@ package ar.edu.utn.frc.backend.controllers;
 
 import ar.edu.utn.frc.backend.dto.DTOActualizarPosicion;
 import ar.edu.utn.frc.backend.dto.DTOPosicionVehiculo;
-import ar.edu.utn.frc.backend.dtosApiExterna.DTOPosicionAPI;
+import ar.edu.utn.frc.backend.dto.DTOResultadoIngesta;
+import ar.edu.utn.frc.backend.dto.DTOUltimaPosicion;
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.distancias.Coordenada;
 import ar.edu.utn.frc.backend.entities.Posicion;
 import ar.edu.utn.frc.backend.entities.Vehiculo;
-import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
 import ar.edu.utn.frc.backend.repositorios.VehiculoRepositorio;
+import ar.edu.utn.frc.backend.services.ConfiguracionZonasService;
+import ar.edu.utn.frc.backend.services.IngestaPosicionesService;
 import ar.edu.utn.frc.backend.services.PosicionService;
+import ar.edu.utn.frc.backend.services.UltimaPosicionService;
+import ar.edu.utn.frc.backend.services.VerificacionPosicionService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.service.spi.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -25,14 +35,22 @@ import java.util.Optional;
 public class PosicionController {
 
     private final PosicionService posicionService;
-    private final PosicionRepositorio posicionRepositorio;
     private final VehiculoRepositorio vehiculoRepositorio;
+    private final ConfiguracionZonasService configuracionZonasService;
+    private final IngestaPosicionesService ingestaPosicionesService;
+    private final VerificacionPosicionService verificacionPosicionService;
+    private final UltimaPosicionService ultimaPosicionService;
 
     @Autowired
-    public PosicionController(PosicionService posicionService, PosicionRepositorio posicionRepositorio, VehiculoRepositorio vehiculoRepositorio) {
+    public PosicionController(PosicionService posicionService, VehiculoRepositorio vehiculoRepositorio,
+                              ConfiguracionZonasService configuracionZonasService, IngestaPosicionesService ingestaPosicionesService,
+                              VerificacionPosicionService verificacionPosicionService, UltimaPosicionService ultimaPosicionService) {
         this.posicionService = posicionService;
-        this.posicionRepositorio = posicionRepositorio;
         this.vehiculoRepositorio = vehiculoRepositorio;
+        this.configuracionZonasService = configuracionZonasService;
+        this.ingestaPosicionesService = ingestaPosicionesService;
+        this.verificacionPosicionService = verificacionPosicionService;
+        this.ultimaPosicionService = ultimaPosicionService;
     }
 
     // Endpoint para verificar si un punto esta dentro de las coordenadas
@@ -40,26 +58,24 @@ public class PosicionController {
     public ResponseEntity<Boolean> verificarPunto(@RequestBody DTOPosicionVehiculo dtoPosicionVehiculo) {
         try {
             boolean estaDentro;
-            // Cargamos las zonas de la api a los DTOs
-            DTOPosicionAPI dtoPosicionAPI = posicionService.cargarZonasDesdeAPI();
+            // Obtenemos la configuración de zonas vigente (ya cargada en memoria, sin esperar a la API externa)
+            ConfiguracionZonas configuracion = configuracionZonasService.obtenerConfiguracion();
 
-            // Buscamos el id del vehiculo asociado a la patente ingresada
-            Long vehiculoId = vehiculoRepositorio.findIdByPatente(dtoPosicionVehiculo.getPatente());
-            Optional<Vehiculo> vehiculo = vehiculoRepositorio.findById(vehiculoId);
+            // Buscamos la última posición conocida del vehículo (en memoria, sin consultar el historial)
+            Optional<DTOUltimaPosicion> posicion = ultimaPosicionService.obtenerPorPatente(dtoPosicionVehiculo.getPatente());
 
-            // Buscamos la posicion asociada al id del vehiculo
-            Posicion posicion = posicionRepositorio.findFirstByVehiculoOrderByFechaHoraDesc(vehiculo);
-
-            if (posicion == null) {
-                log.error("No se encontró la posición para el vehículo con ID: {}", vehiculoId);
+            if (posicion.isEmpty()) {
+                log.error("No se encontró la posición para el vehículo con patente: {}", dtoPosicionVehiculo.getPatente());
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);  // O el código adecuado
             }
 
-            if (dtoPosicionAPI != null) {
-                estaDentro = posicionService.verificarPunto(posicion, dtoPosicionAPI, vehiculoId);
+            if (configuracion != null) {
+                Coordenada punto = new Coordenada(posicion.get().getLatitud(), posicion.get().getLongitud());
+                estaDentro = verificacionPosicionService.verificarPunto(posicion.get().getVehiculoId(), punto, configuracion);
             } else {
-                log.error("Datos inválidos: posición o datos de API no disponibles.");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+                // Todavía no se cargó la configuración de zonas (ni desde el disco ni desde la API externa)
+                log.warn("Configuración de zonas no disponible todavía.");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(null);
             }
             return ResponseEntity.ok(estaDentro);
 
@@ -77,7 +93,7 @@ public class PosicionController {
     public ResponseEntity<String> agregarPosicion(@RequestBody DTOActualizarPosicion dtoActualizarPosicion) {
         try {
             // Buscar el vehículo por patente
-            Long vehiculoId = vehiculoRepositorio.findIdByPatente(dtoActualizarPosicion.getPatente());
+            Long vehiculoId = ultimaPosicionService.buscarIdPorPatente(dtoActualizarPosicion.getPatente());
             if (vehiculoId == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Vehículo no encontrado.");
             }
@@ -97,9 +113,46 @@ public class PosicionController {
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(404).body(e.getMessage());
 
+        } catch (RejectedExecutionException e) {
+            // La posición no se guardó: la cola de verificación está llena
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Cola de verificación llena, reintentar más tarde.");
+
         } catch (Exception e) {
             log.error("Error inesperado: {}", e.getMessage(), e);  // Esto te dará el stack trace completo
             return ResponseEntity.status(500).body("Error interno del servidor.");
         }
     }
-}
\ No newline at end of file
+
+    // Endpoint para consultar la última posición conocida de un vehículo
+    @GetMapping("/ultima/{patente}")
+    public ResponseEntity<DTOUltimaPosicion> obtenerUltimaPosicion(@PathVariable String patente) {
+        try {
+            return ultimaPosicionService.obtenerPorPatente(patente)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+
+        } catch (Exception e) {
+            log.error("Error al obtener la última posición del vehículo {}: {}", patente, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // Endpoint para agregar muchas posiciones (de uno o varios vehículos) en una sola solicitud.
+    // Acepta un arreglo JSON o NDJSON y responde el resultado de cada posición
+    @PostMapping(value = "/agregar-lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<DTOResultadoIngesta> agregarPosiciones(InputStream cuerpo) {
+        try {
+            DTOResultadoIngesta resultado = ingestaPosicionesService.ingerir(cuerpo);
+            if (resultado.isSaturada()) {
+                // Las posiciones aceptadas ya se guardaron; el cliente reintenta las rechazadas con "Cola de verificación llena"
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(resultado);
+            }
+            return ResponseEntity.ok(resultado);
+
+        } catch (Exception e) {
+            log.error("Error inesperado en la ingesta de posiciones: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+}
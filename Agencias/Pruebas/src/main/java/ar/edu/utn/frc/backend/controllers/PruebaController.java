@@ -2,7 +2,10 @@ package ar.edu.utn.frc.backend.controllers;
 
 import ar.edu.utn.frc.backend.dto.DTOCrearPrueba;
 import ar.edu.utn.frc.backend.dto.DTOPruebaEnCurso;
+import ar.edu.utn.frc.backend.dto.DTOTelefonoEmpleado;
+import ar.edu.utn.frc.backend.dto.DTOVehiculoEnFlota;
 import ar.edu.utn.frc.backend.entities.Prueba;
+import ar.edu.utn.frc.backend.services.FlotaEnVivoService;
 import ar.edu.utn.frc.backend.services.PruebaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +25,8 @@ public class PruebaController {
 
     @Autowired
     private PruebaService pruebaService;
+    @Autowired
+    private FlotaEnVivoService flotaEnVivoService;
     private static final Logger log = LoggerFactory.getLogger(PruebaController.class);
 
     @GetMapping("/saludo")
@@ -70,6 +75,19 @@ public class PruebaController {
         }
     }
 
+    // Endpoint para el mapa en vivo: cada prueba en curso con su última posición, distancia a la agencia y estado de zona.
+    // Se arma con lo que está en memoria, sin consultar la base
+    @GetMapping("/en-curso/flota")
+    public ResponseEntity<List<DTOVehiculoEnFlota>> obtenerFlotaEnVivo() {
+        try {
+            return ResponseEntity.ok(flotaEnVivoService.obtenerFlota());
+
+        } catch (Exception e) {
+            log.error("Error al obtener la flota en vivo: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     // Endpoint para finalizar una prueba
     @PutMapping("/finalizar")
     public ResponseEntity<Prueba> finalizarPrueba(@RequestParam Long idPrueba,
@@ -110,6 +128,23 @@ public class PruebaController {
         }
     }
 
+    // Teléfonos de los empleados por páginas, ordenados por legajo (lo usa el envío de promociones de Notificaciones).
+    // Para la página siguiente se pasa en despuesDe el último legajo recibido; una página vacía indica el final
+    @GetMapping("/nros-telefono/pagina")
+    public ResponseEntity<List<DTOTelefonoEmpleado>> obtenerNrosTelefono(@RequestParam(required = false) Long despuesDe,
+                                                                        @RequestParam(defaultValue = "1000") int tamanio) {
+        try {
+            return ResponseEntity.ok(pruebaService.obtenerNrosTelefono(despuesDe, tamanio));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
+
+        } catch (Exception e) {
+            log.error("Error al obtener la página de números de teléfono: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+        }
+    }
+
     // Endpoint para obtener el número de teléfono de un empleado por su legajo
     @GetMapping("/nro-telefono/{legajo}")
     public ResponseEntity<String> obtenerNroTelefono(@PathVariable Long legajo) {
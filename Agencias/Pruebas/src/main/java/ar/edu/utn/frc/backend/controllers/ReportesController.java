@@ -7,10 +7,14 @@ import ar.edu.utn.frc.backend.dto.DTOReporteKilometrosRecorridos;
 import ar.edu.utn.frc.backend.services.ReporteService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
@@ -25,20 +29,39 @@ public class ReportesController {
         this.reporteService = reporteService;
     }
 
-    // Endpoint para obtener el reporte de incidentes
+    // Endpoint para obtener el reporte de incidentes (paginado, del más reciente al más antiguo)
     @GetMapping("/incidentes")
-    public ResponseEntity<List<DTOReporteIncidente>> obtenerIncidentes() {
-        List<DTOReporteIncidente> incidentes = reporteService.obtenerTodosLosIncidentes();
-        return ResponseEntity.ok(incidentes);
+    public ResponseEntity<?> obtenerIncidentes(
+            @RequestParam(required = false) String patente,
+            @RequestParam(required = false) String fechaHoraDesde,
+            @RequestParam(required = false) String fechaHoraHasta,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "100") int tamanio) {
+        try {
+            List<DTOReporteIncidente> incidentes = reporteService.obtenerIncidentes(patente, fechaHoraDesde, fechaHoraHasta, pagina, tamanio);
+            return ResponseEntity.ok(incidentes);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
     }
 
     @GetMapping("/empleado")
-    public ResponseEntity<List<DTOReporteIncidenteEmpleado>> obtenerIncidentesPorEmpleado(
+    public ResponseEntity<?> obtenerIncidentesPorEmpleado(
             @RequestParam String nombreEmpleado,
-            @RequestParam String apellidoEmpleado) {
+            @RequestParam String apellidoEmpleado,
+            @RequestParam(required = false) String fechaHoraDesde,
+            @RequestParam(required = false) String fechaHoraHasta,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "100") int tamanio) {
+        try {
+            List<DTOReporteIncidenteEmpleado> incidentes = reporteService.obtenerIncidentesPorEmpleado(
+                    nombreEmpleado, apellidoEmpleado, fechaHoraDesde, fechaHoraHasta, pagina, tamanio);
+            return ResponseEntity.ok(incidentes);
 
-        List<DTOReporteIncidenteEmpleado> incidentes = reporteService.obtenerIncidentesPorEmpleado(nombreEmpleado, apellidoEmpleado);
-        return ResponseEntity.ok(incidentes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
     }
 
     @GetMapping("/distancia")
@@ -61,11 +84,66 @@ public class ReportesController {
         }
     }
 
+    // Endpoint para recalcular los km de todas las pruebas desde sus posiciones
+    @PostMapping("/distancia/recalcular")
+    public ResponseEntity<String> recalcularKmRecorridos() {
+        try {
+            int pruebasActualizadas = reporteService.recalcularKmRecorridos();
+            return ResponseEntity.ok("Km recalculados para " + pruebasActualizadas + " pruebas finalizadas.");
+
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error interno del servidor.");
+        }
+    }
+
+    // Endpoint para archivar y simplificar los recorridos pendientes sin esperar la ejecución periódica
+    @PostMapping("/recorridos/compactar")
+    public ResponseEntity<String> compactarRecorridos() {
+        try {
+            int pruebasCompactadas = reporteService.compactarRecorridos();
+            return ResponseEntity.ok("Recorridos compactados: " + pruebasCompactadas + " pruebas.");
+
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error interno del servidor.");
+        }
+    }
+
+    // Endpoint para descargar el recorrido de una prueba en formato binario (ver distancias/Trayecto)
+    @GetMapping("/recorridos/{idPrueba}")
+    public ResponseEntity<StreamingResponseBody> exportarRecorrido(@PathVariable Long idPrueba) {
+        try {
+            StreamingResponseBody recorrido = reporteService.exportarRecorrido(idPrueba);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"recorrido-" + idPrueba + ".trk\"")
+                    .body(recorrido);
+
+        } catch (EntityNotFoundException e) {
+            return mensaje(HttpStatus.NOT_FOUND, e.getMessage());
+
+        } catch (Exception e) {
+            return mensaje(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno del servidor.");
+        }
+    }
+
+    // Los errores de un endpoint que devuelve un stream también se escriben como stream
+    private ResponseEntity<StreamingResponseBody> mensaje(HttpStatus estado, String texto) {
+        return ResponseEntity.status(estado)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(salida -> salida.write(texto.getBytes(StandardCharsets.UTF_8)));
+    }
+
     // Endpoint para obtener el detalle de las pruebas realizadas por vehículo
+    // (paginado: para la página siguiente se pasa en despuesDe el último pruebaId recibido)
     @GetMapping("/detalle-pruebas/{idVehiculo}")
-    public ResponseEntity<?> obtenerDetalleDePruebas(@PathVariable Long idVehiculo) {
+    public ResponseEntity<?> obtenerDetalleDePruebas(@PathVariable Long idVehiculo,
+                                                     @RequestParam(required = false) Long despuesDe,
+                                                     @RequestParam(required = false) String fechaHoraDesde,
+                                                     @RequestParam(required = false) String fechaHoraHasta,
+                                                     @RequestParam(defaultValue = "100") int tamanio) {
         try {
-            List<DTOReporteDetallePruebaVehiculo> reportePruebas = reporteService.obtenerDetalleDePruebasPorVehiculo(idVehiculo);
+            List<DTOReporteDetallePruebaVehiculo> reportePruebas = reporteService.obtenerDetalleDePruebasPorVehiculo(
+                    idVehiculo, despuesDe, fechaHoraDesde, fechaHoraHasta, tamanio);
 
             // Si no hay pruebas, respondemos con una lista vacía (HTTP 200)
             if (reportePruebas.isEmpty()) {
@@ -75,6 +153,9 @@ public class ReportesController {
             // Si hay pruebas, respondemos con la lista de detalles (HTTP 200)
             return ResponseEntity.ok(reportePruebas);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+
         } catch (EntityNotFoundException e) {
             // Si no se encuentra el recurso, respondemos con un 404 y un mensaje descriptivo
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -0,0 +1,78 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOPosicionAPI;
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOZonaRestringida;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+// Foto inmutable de la configuración de la API externa, con las zonas ya indexadas.
+// Se construye una vez por cada configuración descargada y se comparte entre todas las verificaciones.
+// No guarda el DTO de origen ni expone objetos modificables (Coordenada, Zona y Area son @Data): la agencia se
+// devuelve como copia y las zonas solo se consultan, así nadie puede desincronizar el índice ya armado.
+@Getter
+public final class ConfiguracionZonas {
+
+    @Getter(AccessLevel.NONE)
+    private final Coordenada coordenadasAgencia;
+    private final Double radioAdmitidoKm;
+    // Umbral del radio ya precalculado (null si la API no informó la agencia o el radio)
+    private final RadioAdmitido radioAdmitido;
+    @Getter(AccessLevel.NONE)
+    private final Zona zona;
+    private final long cargadaEn;
+
+    private ConfiguracionZonas(Coordenada coordenadasAgencia, Double radioAdmitidoKm,
+                               RadioAdmitido radioAdmitido, Zona zona, long cargadaEn) {
+        this.coordenadasAgencia = coordenadasAgencia;
+        this.radioAdmitidoKm = radioAdmitidoKm;
+        this.radioAdmitido = radioAdmitido;
+        this.zona = zona;
+        this.cargadaEn = cargadaEn;
+    }
+
+    public static ConfiguracionZonas desde(DTOPosicionAPI configuracion) {
+        if (configuracion == null || configuracion.getZonasRestringidas() == null) {
+            throw new IllegalArgumentException("La configuración de la API externa es nula o inválida.");
+        }
+
+        for (DTOZonaRestringida zona : configuracion.getZonasRestringidas()) {
+            if (zona.getNoroeste() == null || zona.getSureste() == null) {
+                throw new IllegalArgumentException("Zona restringida con coordenadas nulas.");
+            }
+        }
+
+        // La zona se carga (e indexa) acá y no se vuelve a modificar
+        Zona zona = new Zona();
+        zona.cargarZonasDesdeAPI(configuracion);
+
+        Coordenada agencia = null;
+        if (configuracion.getCoordenadasAgencia() != null) {
+            agencia = new Coordenada(configuracion.getCoordenadasAgencia().getLatitud(), configuracion.getCoordenadasAgencia().getLongitud());
+        }
+
+        RadioAdmitido radioAdmitido = null;
+        if (agencia != null && agencia.getLatitud() != null && agencia.getLongitud() != null && configuracion.getRadioAdmitidoKm() != null) {
+            radioAdmitido = new RadioAdmitido(agencia.getLatitud(), agencia.getLongitud(), configuracion.getRadioAdmitidoKm());
+        }
+
+        return new ConfiguracionZonas(agencia, configuracion.getRadioAdmitidoKm(), radioAdmitido, zona, System.currentTimeMillis());
+    }
+
+    // Copia de las coordenadas de la agencia (null si la API no las informó)
+    public Coordenada getCoordenadasAgencia() {
+        return coordenadasAgencia != null ? new Coordenada(coordenadasAgencia.getLatitud(), coordenadasAgencia.getLongitud()) : null;
+    }
+
+    public boolean dentroDeZonaRestringida(Coordenada punto) {
+        return zona.buscarZona(punto).isPresent();
+    }
+
+    // True si el punto está dentro de alguna zona restringida o a menos de margenKm de su borde
+    public boolean cercaDeZonaRestringida(Coordenada punto, double margenKm) {
+        return zona.cercaDeZona(punto, margenKm);
+    }
+
+    public int cantidadZonas() {
+        return zona.getZonas().size();
+    }
+}
@@ -0,0 +1,168 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// R-tree empaquetado (Sort-Tile-Recursive) de solo lectura sobre los rectángulos de las áreas restringidas.
+// Se construye una única vez por configuración de zonas y responde una consulta de punto en O(log n + aciertos).
+public class IndiceEspacial {
+
+    // Cantidad máxima de hijos por nodo
+    private static final int CAPACIDAD_NODO = 16;
+
+    // Áreas en el orden original de carga (el índice de cada una define la prioridad ante varios aciertos)
+    private final List<Area> areas;
+
+    // niveles.get(0) son las hojas (una caja por área, en orden STR); el último nivel contiene solo la raíz.
+    // Cada caja ocupa 4 posiciones: latMin, latMax, lonMin, lonMax
+    private final List<double[]> niveles = new ArrayList<>();
+
+    // Posición original (en "areas") de cada hoja, según el orden STR
+    private final int[] ordenHojas;
+
+    public IndiceEspacial(List<Area> areas) {
+        this.areas = List.copyOf(areas);
+        this.ordenHojas = ordenarSTR(this.areas);
+
+        if (ordenHojas.length == 0) {
+            return;
+        }
+
+        double[] hojas = new double[ordenHojas.length * 4];
+        for (int i = 0; i < ordenHojas.length; i++) {
+            Area area = this.areas.get(ordenHojas[i]);
+            double latA = area.getNoroeste().getLatitud();
+            double latB = area.getSureste().getLatitud();
+            double lonA = area.getNoroeste().getLongitud();
+            double lonB = area.getSureste().getLongitud();
+            hojas[i * 4] = Math.min(latA, latB);
+            hojas[i * 4 + 1] = Math.max(latA, latB);
+            hojas[i * 4 + 2] = Math.min(lonA, lonB);
+            hojas[i * 4 + 3] = Math.max(lonA, lonB);
+        }
+        niveles.add(hojas);
+
+        // Se agrupan de a CAPACIDAD_NODO cajas consecutivas hasta llegar a una única raíz
+        double[] nivelActual = hojas;
+        while (nivelActual.length > 4) {
+            int cantidad = nivelActual.length / 4;
+            int cantidadPadres = (cantidad + CAPACIDAD_NODO - 1) / CAPACIDAD_NODO;
+            double[] padres = new double[cantidadPadres * 4];
+
+            for (int p = 0; p < cantidadPadres; p++) {
+                int desde = p * CAPACIDAD_NODO;
+                int hasta = Math.min(desde + CAPACIDAD_NODO, cantidad);
+                padres[p * 4] = Double.POSITIVE_INFINITY;
+                padres[p * 4 + 1] = Double.NEGATIVE_INFINITY;
+                padres[p * 4 + 2] = Double.POSITIVE_INFINITY;
+                padres[p * 4 + 3] = Double.NEGATIVE_INFINITY;
+
+                for (int h = desde; h < hasta; h++) {
+                    padres[p * 4] = Math.min(padres[p * 4], nivelActual[h * 4]);
+                    padres[p * 4 + 1] = Math.max(padres[p * 4 + 1], nivelActual[h * 4 + 1]);
+                    padres[p * 4 + 2] = Math.min(padres[p * 4 + 2], nivelActual[h * 4 + 2]);
+                    padres[p * 4 + 3] = Math.max(padres[p * 4 + 3], nivelActual[h * 4 + 3]);
+                }
+            }
+            niveles.add(padres);
+            nivelActual = padres;
+        }
+    }
+
+    public int cantidadAreas() {
+        return areas.size();
+    }
+
+    // Devuelve la primera área (según el orden de carga) que contiene el punto, o null si ninguna lo contiene
+    public Area buscar(double latitud, double longitud) {
+        return buscar(latitud, longitud, 0, 0);
+    }
+
+    // Igual que la anterior, pero con cada área agrandada por un margen en grados hacia todos los lados
+    public Area buscar(double latitud, double longitud, double margenLatitud, double margenLongitud) {
+        if (niveles.isEmpty()) {
+            return null;
+        }
+
+        int mejor = buscarEnNodo(niveles.size() - 1, 0, latitud, longitud, margenLatitud, margenLongitud, Integer.MAX_VALUE);
+        return mejor == Integer.MAX_VALUE ? null : areas.get(mejor);
+    }
+
+    private int buscarEnNodo(int nivel, int nodo, double latitud, double longitud,
+                             double margenLatitud, double margenLongitud, int mejor) {
+        double[] cajas = niveles.get(nivel);
+        if (!cajaContiene(cajas, nodo, latitud, longitud, margenLatitud, margenLongitud)) {
+            return mejor;
+        }
+
+        if (nivel == 0) {
+            int posicionOriginal = ordenHojas[nodo];
+            Area area = areas.get(posicionOriginal);
+            // Sin margen la caja es solo un filtro: la respuesta final la decide Area.contiene, igual que la búsqueda lineal.
+            // Con margen alcanza con la caja agrandada, salvo que el área tenga las esquinas invertidas: esa no contiene
+            // ningún punto, así que tampoco tiene puntos cerca
+            boolean contiene = margenLatitud > 0 || margenLongitud > 0
+                    ? bienOrientada(area)
+                    : area.contiene(new Coordenada(latitud, longitud));
+            return posicionOriginal < mejor && contiene ? posicionOriginal : mejor;
+        }
+
+        int cantidadHijos = niveles.get(nivel - 1).length / 4;
+        int desde = nodo * CAPACIDAD_NODO;
+        int hasta = Math.min(desde + CAPACIDAD_NODO, cantidadHijos);
+        for (int hijo = desde; hijo < hasta; hijo++) {
+            mejor = buscarEnNodo(nivel - 1, hijo, latitud, longitud, margenLatitud, margenLongitud, mejor);
+        }
+        return mejor;
+    }
+
+    // Igual criterio que Area.contiene: el noroeste tiene que estar al norte y al oeste del sureste
+    private static boolean bienOrientada(Area area) {
+        return area.getNoroeste().getLatitud() >= area.getSureste().getLatitud()
+                && area.getNoroeste().getLongitud() <= area.getSureste().getLongitud();
+    }
+
+    private static boolean cajaContiene(double[] cajas, int i, double latitud, double longitud,
+                                        double margenLatitud, double margenLongitud) {
+        return latitud >= cajas[i * 4] - margenLatitud && latitud <= cajas[i * 4 + 1] + margenLatitud
+                && longitud >= cajas[i * 4 + 2] - margenLongitud && longitud <= cajas[i * 4 + 3] + margenLongitud;
+    }
+
+    // Orden Sort-Tile-Recursive: franjas verticales por longitud y, dentro de cada franja, orden por latitud
+    private static int[] ordenarSTR(List<Area> areas) {
+        int n = areas.size();
+        Integer[] indices = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+
+        Comparator<Integer> porLongitud = Comparator.comparingDouble(i -> centroLongitud(areas.get(i)));
+        Comparator<Integer> porLatitud = Comparator.comparingDouble(i -> centroLatitud(areas.get(i)));
+
+        Arrays.sort(indices, porLongitud);
+
+        int cantidadHojas = (n + CAPACIDAD_NODO - 1) / CAPACIDAD_NODO;
+        int cantidadFranjas = (int) Math.ceil(Math.sqrt(cantidadHojas));
+        int tamanioFranja = Math.max(1, cantidadFranjas * CAPACIDAD_NODO);
+
+        for (int desde = 0; desde < n; desde += tamanioFranja) {
+            Arrays.sort(indices, desde, Math.min(desde + tamanioFranja, n), porLatitud);
+        }
+
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = indices[i];
+        }
+        return orden;
+    }
+
+    private static double centroLatitud(Area area) {
+        return (area.getNoroeste().getLatitud() + area.getSureste().getLatitud()) / 2;
+    }
+
+    private static double centroLongitud(Area area) {
+        return (area.getNoroeste().getLongitud() + area.getSureste().getLongitud()) / 2;
+    }
+}
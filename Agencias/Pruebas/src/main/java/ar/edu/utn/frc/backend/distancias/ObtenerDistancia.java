@@ -8,19 +8,76 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class ObtenerDistancia {
 
-    private static final Double radioTierra = 6371.0; // Radio de la Tierra en kilómetros
+    private static final double radioTierra = 6371.0; // Radio de la Tierra en kilómetros
 
     public static Double calcularDistancia(Coordenada coord1, Coordenada coord2) {
+        return distanciaKm(coord1.getLatitud(), coord1.getLongitud(), coord2.getLatitud(), coord2.getLongitud());
+    }
+
+    // Haversine sobre primitivos (sin Coordenada ni Double), en kilómetros
+    public static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        double latRad1 = Math.toRadians(lat1);
+        double latRad2 = Math.toRadians(lat2);
+        return haversine(latRad1, Math.cos(latRad1), latRad2, Math.cos(latRad2), Math.toRadians(lon2 - lon1));
+    }
+
+    // Aproximación equirectangular: un solo coseno y una raíz, sin atan2.
+    // El error relativo frente a haversine crece con el cuadrado del tramo: para tramos de hasta 10 km con
+    // latitudes de hasta 70° es menor a 1e-6 (menos de 1 mm por km), y para tramos de hasta 100 km menor a 1e-4.
+    // No sirve para tramos largos ni cerca de los polos o del antimeridiano.
+    public static double distanciaKmRapida(double lat1, double lon1, double lat2, double lon2) {
+        double latRad1 = Math.toRadians(lat1);
+        double latRad2 = Math.toRadians(lat2);
+        double x = Math.toRadians(lon2 - lon1) * Math.cos((latRad1 + latRad2) / 2);
+        double y = latRad2 - latRad1;
+        return radioTierra * Math.sqrt(x * x + y * y);
+    }
 
-        double latDistance = Math.toRadians(coord2.getLatitud() - coord1.getLatitud());
-        double lonDistance = Math.toRadians(coord2.getLongitud() - coord1.getLongitud());
+    // Longitud total de un recorrido en una sola pasada sobre los arreglos, sin crear objetos.
+    // Si se pasa tramos (de al menos cantidad - 1 elementos), en tramos[i] queda la distancia entre el punto i y el i + 1.
+    // Cada coseno de latitud se calcula una sola vez y se reutiliza en los dos tramos que comparten el punto.
+    public static double longitudRecorrido(double[] latitudes, double[] longitudes, int cantidad, double[] tramos, boolean rapido) {
+        if (cantidad < 2) {
+            return 0;
+        }
 
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+        double total = 0;
+        double latRadAnterior = Math.toRadians(latitudes[0]);
+        double cosLatAnterior = Math.cos(latRadAnterior);
 
-                + Math.cos(Math.toRadians(coord1.getLatitud())) * Math.cos(Math.toRadians(coord2.getLatitud()))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        for (int i = 1; i < cantidad; i++) {
+            double latRad = Math.toRadians(latitudes[i]);
+            double deltaLon = Math.toRadians(longitudes[i] - longitudes[i - 1]);
+            double tramo;
+
+            if (rapido) {
+                double x = deltaLon * Math.cos((latRadAnterior + latRad) / 2);
+                double y = latRad - latRadAnterior;
+                tramo = radioTierra * Math.sqrt(x * x + y * y);
+                latRadAnterior = latRad;
+            } else {
+                double cosLat = Math.cos(latRad);
+                tramo = haversine(latRadAnterior, cosLatAnterior, latRad, cosLat, deltaLon);
+                latRadAnterior = latRad;
+                cosLatAnterior = cosLat;
+            }
+
+            if (tramos != null) {
+                tramos[i - 1] = tramo;
+            }
+            total += tramo;
+        }
+        return total;
+    }
+
+    public static double longitudRecorrido(double[] latitudes, double[] longitudes, int cantidad) {
+        return longitudRecorrido(latitudes, longitudes, cantidad, null, false);
+    }
 
-        Double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return radioTierra * c; // Distancia en kilómetros
+    private static double haversine(double latRad1, double cosLat1, double latRad2, double cosLat2, double deltaLon) {
+        double senoLat = Math.sin((latRad2 - latRad1) / 2);
+        double senoLon = Math.sin(deltaLon / 2);
+        double a = senoLat * senoLat + cosLat1 * cosLat2 * senoLon * senoLon;
+        return radioTierra * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
     }
-}
\ No newline at end of file
+}
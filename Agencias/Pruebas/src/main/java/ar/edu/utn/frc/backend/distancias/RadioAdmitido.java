@@ -0,0 +1,76 @@
+package ar.edu.utn.frc.backend.distancias;
+
+// Círculo de radio admitido alrededor de la agencia, con el umbral precalculado.
+// Si la diferencia de latitud ya supera el radio el punto queda afuera sin hacer ninguna cuenta. Si no, se compara la
+// distancia equirectangular al cuadrado (x = Δlon·cos(latitud de la agencia), y = Δlat, en radianes) con el radio
+// al cuadrado: sin funciones trigonométricas ni raíz.
+// Usar el coseno de la latitud de la agencia en lugar del de la latitud media deja un error relativo de a lo sumo
+// tan|latitud|·r/2R en el borde del círculo (más un término en (r/R)² despreciable). Para la agencia (42,5°, 5 km)
+// es 3,6e-4: el borde se corre menos de 2 m (medido: 0,7 m). Si para el radio y la latitud configurados el error superaría
+// ERROR_RELATIVO_MAXIMO (radios grandes o cerca de los polos) se usa haversine, como antes.
+// Ver benchmark/ComparacionRadioAdmitido.java
+public final class RadioAdmitido {
+
+    private static final double radioTierra = 6371.0; // Radio de la Tierra en kilómetros
+    private static final double ERROR_RELATIVO_MAXIMO = 1e-3;
+
+    private final double latitud;
+    private final double longitud;
+    private final double radioKm;
+    private final double latitudRad;
+    private final double longitudRad;
+    private final double cosLatitud;
+    private final double maximaDiferenciaLatitudRad;
+    private final double umbral;
+    private final double umbralCuadrado;
+    private final boolean aproximado;
+
+    public RadioAdmitido(double latitud, double longitud, double radioKm) {
+        this.latitud = latitud;
+        this.longitud = longitud;
+        this.radioKm = radioKm;
+        this.latitudRad = Math.toRadians(latitud);
+        this.longitudRad = Math.toRadians(longitud);
+        this.cosLatitud = Math.cos(latitudRad);
+
+        // Para un radio de media circunferencia o más, todo el planeta queda adentro
+        double anguloCentral = Math.min(radioKm / radioTierra, Math.PI);
+        this.maximaDiferenciaLatitudRad = anguloCentral;
+        double seno = Math.sin(anguloCentral / 2);
+        this.umbral = seno * seno;
+        this.umbralCuadrado = anguloCentral * anguloCentral;
+        this.aproximado = Math.abs(Math.tan(latitudRad)) * anguloCentral / 2 <= ERROR_RELATIVO_MAXIMO;
+    }
+
+    // El mismo círculo con el radio achicado en margenKm (para exigir que un vehículo vuelva bien adentro)
+    public RadioAdmitido reducido(double margenKm) {
+        return margenKm <= 0 ? this : new RadioAdmitido(latitud, longitud, Math.max(0, radioKm - margenKm));
+    }
+
+    public boolean contiene(double latitud, double longitud) {
+        double latRad = Math.toRadians(latitud);
+        double deltaLat = latRad - latitudRad;
+
+        // La distancia sobre la esfera nunca es menor que la diferencia de latitud
+        if (Math.abs(deltaLat) > maximaDiferenciaLatitudRad) {
+            return false;
+        }
+
+        double deltaLon = Math.toRadians(longitud) - longitudRad;
+        if (aproximado) {
+            // Del otro lado del antimeridiano la diferencia de longitud se toma por el camino corto
+            if (deltaLon > Math.PI) {
+                deltaLon -= 2 * Math.PI;
+            } else if (deltaLon < -Math.PI) {
+                deltaLon += 2 * Math.PI;
+            }
+            double x = deltaLon * cosLatitud;
+            return x * x + deltaLat * deltaLat <= umbralCuadrado;
+        }
+
+        double senoLat = Math.sin(deltaLat / 2);
+        double senoLon = Math.sin(deltaLon / 2);
+        double a = senoLat * senoLat + cosLatitud * Math.cos(latRad) * senoLon * senoLon;
+        return a <= umbral;
+    }
+}
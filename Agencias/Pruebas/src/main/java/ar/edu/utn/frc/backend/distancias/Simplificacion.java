@@ -0,0 +1,94 @@
+package ar.edu.utn.frc.backend.distancias;
+
+// Simplificación de recorridos con Douglas-Peucker: se conservan solo los puntos que se apartan más que la tolerancia
+// del segmento que une a los puntos conservados vecinos. El primero y el último siempre se conservan.
+// La distancia al segmento se mide sobre una proyección plana local, que alcanza para tolerancias de metros.
+public final class Simplificacion {
+
+    private static final double radioTierra = 6371.0;
+
+    private Simplificacion() {
+    }
+
+    // Devuelve los índices de los puntos que se conservan, en orden
+    public static int[] douglasPeucker(double[] latitudes, double[] longitudes, int cantidad, double toleranciaKm) {
+        if (cantidad <= 2) {
+            int[] todos = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                todos[i] = i;
+            }
+            return todos;
+        }
+
+        // Proyección a km: cada punto escala su longitud con el coseno de su propia latitud, medida desde el meridiano
+        // del primer punto. Así un punto con coordenadas erróneas no deforma al resto del recorrido
+        double escala = radioTierra * Math.PI / 180;
+        double[] x = new double[cantidad];
+        double[] y = new double[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            x[i] = (longitudes[i] - longitudes[0]) * Math.cos(Math.toRadians(latitudes[i])) * escala;
+            y[i] = latitudes[i] * escala;
+        }
+
+        boolean[] conservar = new boolean[cantidad];
+        conservar[0] = true;
+        conservar[cantidad - 1] = true;
+
+        // Pila de tramos pendientes [desde, hasta] en lugar de recursión, para recorridos largos
+        int[] pila = new int[2 * cantidad];
+        int tope = 0;
+        pila[tope++] = 0;
+        pila[tope++] = cantidad - 1;
+        double toleranciaCuadrada = toleranciaKm * toleranciaKm;
+
+        while (tope > 0) {
+            int hasta = pila[--tope];
+            int desde = pila[--tope];
+
+            double maxima = -1;
+            int indiceMaximo = -1;
+            for (int i = desde + 1; i < hasta; i++) {
+                double distancia = distanciaCuadradaASegmento(x[i], y[i], x[desde], y[desde], x[hasta], y[hasta]);
+                if (distancia > maxima) {
+                    maxima = distancia;
+                    indiceMaximo = i;
+                }
+            }
+
+            if (indiceMaximo != -1 && maxima > toleranciaCuadrada) {
+                conservar[indiceMaximo] = true;
+                pila[tope++] = desde;
+                pila[tope++] = indiceMaximo;
+                pila[tope++] = indiceMaximo;
+                pila[tope++] = hasta;
+            }
+        }
+
+        int conservados = 0;
+        for (boolean c : conservar) {
+            if (c) {
+                conservados++;
+            }
+        }
+        int[] indices = new int[conservados];
+        for (int i = 0, j = 0; i < cantidad; i++) {
+            if (conservar[i]) {
+                indices[j++] = i;
+            }
+        }
+        return indices;
+    }
+
+    private static double distanciaCuadradaASegmento(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largoCuadrado = dx * dx + dy * dy;
+
+        double t = largoCuadrado == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / largoCuadrado;
+        t = Math.max(0, Math.min(1, t));
+
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
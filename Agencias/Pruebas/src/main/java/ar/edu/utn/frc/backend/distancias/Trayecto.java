@@ -0,0 +1,171 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+// Recorrido de una prueba en formato binario compacto. Es el formato en que se guardan los recorridos archivados
+// y el que devuelve la exportación:
+//   - cabecera de 4 bytes: "TRK" y la versión del formato (1)
+//   - por cada punto, tres varints (7 bits por byte, el bit alto indica que sigue otro byte) con la diferencia
+//     respecto del punto anterior, en zigzag para que las diferencias negativas también ocupen pocos bytes:
+//     fecha en milisegundos, latitud y longitud en punto fijo de 1e-7 grados (aproximadamente 1 cm)
+// Un punto típico ocupa entre 5 y 8 bytes, contra una fila completa de la tabla de posiciones y su índice.
+@Getter
+public final class Trayecto {
+
+    private static final byte[] CABECERA = {'T', 'R', 'K', 1};
+    private static final double PRECISION = 1e7;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] fechasHora;
+
+    private Trayecto(double[] latitudes, double[] longitudes, long[] fechasHora) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.fechasHora = fechasHora;
+    }
+
+    public int getCantidad() {
+        return latitudes.length;
+    }
+
+    // Codifica solo los puntos indicados (todos, o los que conservó la simplificación)
+    public static byte[] codificar(double[] latitudes, double[] longitudes, long[] fechasHora, int[] indices) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(CABECERA.length + indices.length * 8);
+        Escritor escritor = new Escritor(salida);
+        for (int i : indices) {
+            escritor.agregar(latitudes[i], longitudes[i], fechasHora[i]);
+        }
+        return salida.toByteArray();
+    }
+
+    public static Trayecto decodificar(byte[] datos) {
+        if (datos.length < CABECERA.length || !Arrays.equals(datos, 0, CABECERA.length, CABECERA, 0, CABECERA.length)) {
+            throw new IllegalArgumentException("Los datos no son un recorrido en formato binario válido.");
+        }
+
+        int[] posicion = {CABECERA.length};
+        int capacidad = Math.max(4, datos.length / 6);
+        double[] latitudes = new double[capacidad];
+        double[] longitudes = new double[capacidad];
+        long[] fechasHora = new long[capacidad];
+
+        int cantidad = 0;
+        long fechaHora = 0;
+        long latitud = 0;
+        long longitud = 0;
+        while (posicion[0] < datos.length) {
+            fechaHora += leerVarint(datos, posicion);
+            latitud += leerVarint(datos, posicion);
+            longitud += leerVarint(datos, posicion);
+
+            if (cantidad == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, cantidad * 2);
+                longitudes = Arrays.copyOf(longitudes, cantidad * 2);
+                fechasHora = Arrays.copyOf(fechasHora, cantidad * 2);
+            }
+            latitudes[cantidad] = latitud / PRECISION;
+            longitudes[cantidad] = longitud / PRECISION;
+            fechasHora[cantidad] = fechaHora;
+            cantidad++;
+        }
+
+        return new Trayecto(Arrays.copyOf(latitudes, cantidad), Arrays.copyOf(longitudes, cantidad), Arrays.copyOf(fechasHora, cantidad));
+    }
+
+    // Km de la parte del recorrido que cae en el rango de fechas. Los tramos cortados por el rango
+    // se cuentan en proporción al tiempo que quedó adentro
+    public double longitudEntre(long fechaHoraDesde, long fechaHoraHasta) {
+        double total = 0;
+        for (int i = 1; i < fechasHora.length; i++) {
+            long inicio = Math.max(fechasHora[i - 1], fechaHoraDesde);
+            long fin = Math.min(fechasHora[i], fechaHoraHasta);
+            if (fin < inicio) {
+                continue;
+            }
+
+            long duracion = fechasHora[i] - fechasHora[i - 1];
+            double proporcion = duracion == 0 ? 1 : (double) (fin - inicio) / duracion;
+            total += proporcion * ObtenerDistancia.distanciaKm(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return total;
+    }
+
+    public double longitud() {
+        return ObtenerDistancia.longitudRecorrido(latitudes, longitudes, latitudes.length);
+    }
+
+    // Escribe un recorrido punto por punto sobre un stream, sin tener todo el recorrido en memoria
+    public static final class Escritor {
+
+        private final OutputStream salida;
+        private final byte[] buffer = new byte[30];
+        private long fechaHoraAnterior;
+        private long latitudAnterior;
+        private long longitudAnterior;
+        private int cantidad;
+
+        public Escritor(OutputStream salida) {
+            this.salida = salida;
+            escribir(CABECERA, CABECERA.length);
+        }
+
+        public void agregar(double latitud, double longitud, long fechaHora) {
+            long lat = Math.round(latitud * PRECISION);
+            long lon = Math.round(longitud * PRECISION);
+
+            int largo = escribirVarint(fechaHora - fechaHoraAnterior, buffer, 0);
+            largo = escribirVarint(lat - latitudAnterior, buffer, largo);
+            largo = escribirVarint(lon - longitudAnterior, buffer, largo);
+            escribir(buffer, largo);
+
+            fechaHoraAnterior = fechaHora;
+            latitudAnterior = lat;
+            longitudAnterior = lon;
+            cantidad++;
+        }
+
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        private void escribir(byte[] bytes, int largo) {
+            try {
+                salida.write(bytes, 0, largo);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static int escribirVarint(long valor, byte[] buffer, int posicion) {
+        long v = (valor << 1) ^ (valor >> 63);
+        while ((v & ~0x7FL) != 0) {
+            buffer[posicion++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[posicion++] = (byte) v;
+        return posicion;
+    }
+
+    private static long leerVarint(byte[] datos, int[] posicion) {
+        long resultado = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            if (posicion[0] >= datos.length) {
+                throw new IllegalArgumentException("Recorrido binario truncado.");
+            }
+            b = datos[posicion[0]++];
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return (resultado >>> 1) ^ -(resultado & 1);
+    }
+}
@@ -6,19 +6,41 @@ import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Data
 @Slf4j
 public class Zona {
+    private static final double radioTierra = 6371.0; // Radio de la Tierra en kilómetros
+
     List<Area> zonas;
 
+    // Índice espacial sobre "zonas", se reconstruye la primera vez que se consulta luego de un cambio
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile IndiceEspacial indice;
+
     public Zona() {
         zonas = new ArrayList<>();
     }
 
+    // Vista de solo lectura: las zonas se cambian con setZonas o agregarZona, que invalidan el índice
+    public List<Area> getZonas() {
+        return Collections.unmodifiableList(zonas);
+    }
+
+    public void setZonas(List<Area> zonas) {
+        this.zonas = new ArrayList<>(zonas);
+        indice = null;
+    }
+
     public void agregarZona(Area area) {
         zonas.add(area);
+        indice = null;
     }
 
     public void cargarZonasDesdeAPI(DTOPosicionAPI dtoPosicionAPI) {
@@ -33,22 +55,41 @@ public class Zona {
             Area area = new Area(noroeste, sureste);
             agregarZona(area);
         }
+        indice = new IndiceEspacial(zonas);
     }
 
-    public boolean verificarPunto(Coordenada punto) {
-        boolean dentroDeAlgunaZona = false;
-
-        for (Area zona : zonas) {
-            if (zona.contiene(punto)) {
-                log.info("El punto está dentro del área restringida: {} - {}", zona.getNoroeste(), zona.getSureste());
-                dentroDeAlgunaZona = true;
-                break;
-            }
+    // Devuelve la zona restringida que contiene el punto (la primera según el orden de carga), si existe
+    public Optional<Area> buscarZona(Coordenada punto) {
+        return Optional.ofNullable(obtenerIndice().buscar(punto.getLatitud(), punto.getLongitud()));
+    }
+
+    // True si el punto está dentro de alguna zona restringida o a menos de margenKm de su borde
+    public boolean cercaDeZona(Coordenada punto, double margenKm) {
+        // El margen se pasa a grados: uno de latitud mide siempre lo mismo, uno de longitud se achica con el coseno
+        double margenLatitud = Math.toDegrees(margenKm / radioTierra);
+        double coseno = Math.max(Math.cos(Math.toRadians(punto.getLatitud())), 1e-6);
+        double margenLongitud = Math.min(margenLatitud / coseno, 360);
+        return obtenerIndice().buscar(punto.getLatitud(), punto.getLongitud(), margenLatitud, margenLongitud) != null;
+    }
+
+    // Si se invalidó, se reconstruye acá; dos hilos pueden construirlo a la vez, pero quedan índices equivalentes
+    private IndiceEspacial obtenerIndice() {
+        IndiceEspacial indiceActual = indice;
+        if (indiceActual == null) {
+            indiceActual = new IndiceEspacial(zonas);
+            indice = indiceActual;
         }
+        return indiceActual;
+    }
+
+    public boolean verificarPunto(Coordenada punto) {
+        Optional<Area> zona = buscarZona(punto);
 
-        if (!dentroDeAlgunaZona) {
+        if (zona.isPresent()) {
+            log.info("El punto está dentro del área restringida: {} - {}", zona.get().getNoroeste(), zona.get().getSureste());
+        } else {
             log.info("El punto está fuera de todas las áreas restringidas. Zonas verificadas: {}", zonas.size());
         }
-        return dentroDeAlgunaZona;
+        return zona.isPresent();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package ar.edu.utn.frc.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+// Evento del stream en vivo: posición nueva, cambio de estado respecto de las zonas, o inicio / fin de una prueba.
+// Solo se serializan los campos que corresponden a cada tipo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DTOEventoEnVivo {
+
+    private String tipo;
+    private Long pruebaId;
+    private Long vehiculoId;
+    private String patente;
+    private Long legajoEmpleado;
+    private Double latitud;
+    private Double longitud;
+    private String estado;
+    private String fechaHora;
+}
@@ -0,0 +1,16 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOPosicionLote {
+
+    private String patente;
+    private Double latitud;
+    private Double longitud;
+
+    // Opcional, con formato "yyyy-MM-dd HH:mm:ss". Si no se informa se usa la hora de recepción
+    private String fechaHora;
+}
@@ -0,0 +1,24 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+// Datos de una prueba en curso que se necesitan al detectar una infracción, sin ir a la base
+@Data
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+public class DTOPruebaActiva {
+
+    private Long pruebaId;
+    private Long vehiculoId;
+    private String patente;
+    private Long interesadoId;
+    private String nombreInteresado;
+    private String apellidoInteresado;
+    private Long legajoEmpleado;
+    private String nombreEmpleado;
+    private String apellidoEmpleado;
+    private Long fechaHoraInicio;
+}
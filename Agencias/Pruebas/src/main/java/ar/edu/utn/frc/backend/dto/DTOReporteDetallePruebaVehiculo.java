@@ -1,5 +1,6 @@
 package ar.edu.utn.frc.backend.dto;
 
+import ar.edu.utn.frc.backend.utils.Fechas;
 import lombok.*;
 
 @Data
@@ -19,4 +20,12 @@ public class DTOReporteDetallePruebaVehiculo {
     private String fechaHoraInicio;
     private String fechaHoraFin;
     private String comentarios;
+
+    // Usado por la consulta del reporte: las fechas llegan en milisegundos y se devuelven con el formato de la API
+    public DTOReporteDetallePruebaVehiculo(Long pruebaId, String patente, String nombreInteresado, String apellidoInteresado,
+                                           String nombreEmpleado, String apellidoEmpleado, Long fechaHoraInicio, Long fechaHoraFin,
+                                           String comentarios) {
+        this(pruebaId, patente, nombreInteresado, apellidoInteresado, nombreEmpleado, apellidoEmpleado,
+                Fechas.formatear(fechaHoraInicio), Fechas.formatear(fechaHoraFin), comentarios);
+    }
 }
\ No newline at end of file
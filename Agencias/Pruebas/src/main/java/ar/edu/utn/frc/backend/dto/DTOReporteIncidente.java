@@ -19,4 +19,5 @@ public class DTOReporteIncidente {
     private String apellidoEmpleado;
     private LocalDateTime fechaHoraIncidente;
     private String descripcionIncidente;
+    private Long legajoEmpleado;
 }
\ No newline at end of file
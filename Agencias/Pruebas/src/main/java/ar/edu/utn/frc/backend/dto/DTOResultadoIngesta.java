@@ -0,0 +1,19 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOResultadoIngesta {
+
+    private int recibidas;
+    private int aceptadas;
+    private int rechazadas;
+    // Hubo posiciones rechazadas porque la cola de verificación estaba llena (se responde 503)
+    private boolean saturada;
+    private List<DTOResultadoPosicion> resultados = new ArrayList<>();
+}
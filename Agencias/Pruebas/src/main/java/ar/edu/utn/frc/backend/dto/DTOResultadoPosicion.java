@@ -0,0 +1,15 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOResultadoPosicion {
+
+    private int indice;
+    private String patente;
+    private boolean aceptada;
+    private Long idPosicion;
+    private String motivo;
+}
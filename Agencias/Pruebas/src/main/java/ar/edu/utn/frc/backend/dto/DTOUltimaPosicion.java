@@ -0,0 +1,15 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOUltimaPosicion {
+
+    private Long vehiculoId;
+    private String patente;
+    private Double latitud;
+    private Double longitud;
+    private Long fechaHora;
+}
@@ -0,0 +1,27 @@
+package ar.edu.utn.frc.backend.dto;
+
+import lombok.*;
+
+// Foto en vivo de un vehículo en prueba: quién lo maneja, dónde está y su estado respecto de las zonas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DTOVehiculoEnFlota {
+
+    private Long pruebaId;
+    private Long vehiculoId;
+    private String patente;
+    private Long legajoEmpleado;
+    private String nombreEmpleado;
+    private String apellidoEmpleado;
+    private Long interesadoId;
+    private String nombreInteresado;
+    private String apellidoInteresado;
+    private String fechaHoraInicio;
+    private Double latitud;
+    private Double longitud;
+    private String fechaHoraPosicion;
+    private Double distanciaAgenciaKm;
+    private String estadoZona;
+    private Double kmRecorridos;
+}
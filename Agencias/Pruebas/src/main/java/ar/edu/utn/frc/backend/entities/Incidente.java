@@ -0,0 +1,50 @@
+package ar.edu.utn.frc.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Registro de un incidente detectado al verificar una posición. Los incidentes solo se agregan, nunca se modifican.
+// La fecha se guarda en milisegundos para que los filtros por rango usen los índices directamente.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "Incidentes", indexes = {
+        @Index(name = "IDX_INCIDENTES_FECHA_HORA", columnList = "FECHA_HORA"),
+        @Index(name = "IDX_INCIDENTES_EMPLEADO", columnList = "LEGAJO_EMPLEADO, FECHA_HORA"),
+        @Index(name = "IDX_INCIDENTES_PATENTE", columnList = "PATENTE, FECHA_HORA")
+})
+public class Incidente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "incidente_generator")
+    @SequenceGenerator(name = "incidente_generator", sequenceName = "incidentes_seq", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "FECHA_HORA", nullable = false)
+    private Long fechaHora;
+
+    @Column(name = "PATENTE")
+    private String patente;
+
+    @Column(name = "LEGAJO_EMPLEADO")
+    private Long legajoEmpleado;
+
+    @Column(name = "NOMBRE_EMPLEADO")
+    private String nombreEmpleado;
+
+    @Column(name = "APELLIDO_EMPLEADO")
+    private String apellidoEmpleado;
+
+    @Column(name = "NOMBRE_INTERESADO")
+    private String nombreInteresado;
+
+    @Column(name = "APELLIDO_INTERESADO")
+    private String apellidoInteresado;
+
+    @Column(name = "DESCRIPCION")
+    private String descripcion;
+}
@@ -0,0 +1,43 @@
+package ar.edu.utn.frc.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Notificación para el microservicio de notificaciones que todavía no se pudo entregar (bandeja de salida).
+// Se guarda en la misma transacción que el incidente y se borra recién cuando el envío se confirma.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "NotificacionesPendientes", indexes = {
+        @Index(name = "IDX_NOTIFICACIONES_PENDIENTES_PROXIMO_INTENTO", columnList = "PROXIMO_INTENTO, ID")
+})
+public class NotificacionPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notificacion_pendiente_generator")
+    @SequenceGenerator(name = "notificacion_pendiente_generator", sequenceName = "notificaciones_pendientes_seq", allocationSize = 1)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "MENSAJE", nullable = false)
+    private String mensaje;
+
+    @Column(name = "LEGAJO", nullable = false)
+    private Long legajo;
+
+    @Column(name = "CREADA_EN", nullable = false)
+    private Long creadaEn;
+
+    @Column(name = "INTENTOS", nullable = false)
+    private Integer intentos;
+
+    // Milisegundos desde epoch a partir de los cuales se puede volver a intentar
+    @Column(name = "PROXIMO_INTENTO", nullable = false)
+    private Long proximoIntento;
+
+    @Column(name = "ULTIMO_ERROR")
+    private String ultimoError;
+}
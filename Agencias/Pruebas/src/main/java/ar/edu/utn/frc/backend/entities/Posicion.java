@@ -16,12 +16,13 @@ public class Posicion {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posicion_generator")
-    @SequenceGenerator(name = "posicion_generator", sequenceName = "posiciones_seq", allocationSize = 1)
+    @SequenceGenerator(name = "posicion_generator", sequenceName = "posiciones_seq", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
-    @Column(name = "FECHA_HORA")
-    private String fechaHora;
+    // Milisegundos desde epoch
+    @Column(name = "FECHA_HORA_MS")
+    private Long fechaHora;
 
     @Column(name = "LATITUD")
     private Double latitud;
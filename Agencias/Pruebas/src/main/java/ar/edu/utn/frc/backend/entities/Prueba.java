@@ -21,15 +21,20 @@ public class Prueba {
     @Column(name = "ID")
     private Long id;
 
-    @Column(name = "FECHA_HORA_INICIO", nullable = false)
-    private String fechaHoraInicio;
+    // Milisegundos desde epoch
+    @Column(name = "FECHA_HORA_INICIO_MS", nullable = false)
+    private Long fechaHoraInicio;
 
-    @Column(name = "FECHA_HORA_FIN", nullable = true)
-    private String fechaHoraFin;
+    @Column(name = "FECHA_HORA_FIN_MS", nullable = true)
+    private Long fechaHoraFin;
 
     @Column(name = "COMENTARIOS")
     private String comentarios;
 
+    // Se completa al finalizar la prueba con lo acumulado por el odómetro
+    @Column(name = "KM_RECORRIDOS")
+    private Double kmRecorridos;
+
     // Relación con Vehiculo
     @ManyToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "ID_VEHICULO")
@@ -0,0 +1,55 @@
+package ar.edu.utn.frc.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Recorrido archivado de una prueba finalizada, en el formato binario de distancias/Trayecto, con los km calculados
+// sobre todas las posiciones originales (que se borran de la tabla de posiciones al archivar).
+// Con tolerancia 0 el recorrido está completo; los recorridos viejos se simplifican con la tolerancia configurada.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "RecorridosCompactados", indexes = {
+        @Index(name = "IDX_RECORRIDOS_VEHICULO_INICIO", columnList = "ID_VEHICULO, FECHA_HORA_INICIO_MS")
+})
+public class RecorridoCompactado {
+
+    // Mismo id que la prueba
+    @Id
+    @Column(name = "ID_PRUEBA")
+    private Long pruebaId;
+
+    @Column(name = "ID_VEHICULO", nullable = false)
+    private Long vehiculoId;
+
+    @Column(name = "FECHA_HORA_INICIO_MS", nullable = false)
+    private Long fechaHoraInicio;
+
+    @Column(name = "FECHA_HORA_FIN_MS", nullable = false)
+    private Long fechaHoraFin;
+
+    @Column(name = "KM_RECORRIDOS", nullable = false)
+    private Double kmRecorridos;
+
+    @Column(name = "CANTIDAD_POSICIONES", nullable = false)
+    private Integer cantidadPosiciones;
+
+    @Column(name = "CANTIDAD_PUNTOS", nullable = false)
+    private Integer cantidadPuntos;
+
+    @Column(name = "TOLERANCIA_METROS", nullable = false)
+    private Double toleranciaMetros;
+
+    @Column(name = "DATOS", nullable = false)
+    private byte[] datos;
+
+    @Column(name = "COMPACTADO_EN", nullable = false)
+    private Long compactadoEn;
+
+    // Id más alto de las posiciones incluidas: una posición del rango con un id mayor llegó después de archivar
+    @Column(name = "ULTIMA_POSICION_ID", nullable = false)
+    private Long ultimaPosicionId;
+}
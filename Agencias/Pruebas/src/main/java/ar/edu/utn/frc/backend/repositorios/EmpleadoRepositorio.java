@@ -1,8 +1,11 @@
 package ar.edu.utn.frc.backend.repositorios;
 
+import ar.edu.utn.frc.backend.dto.DTOTelefonoEmpleado;
 import ar.edu.utn.frc.backend.entities.Empleado;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,6 +19,15 @@ public interface EmpleadoRepositorio extends JpaRepository<Empleado, Long> {
     @Query("SELECT e.telefono FROM Empleado e")
     List<String> findTelefonos();
 
+    // Teléfonos de a una página, ordenados por legajo: para la página siguiente se pasa el último legajo recibido
+    @Query("SELECT new ar.edu.utn.frc.backend.dto.DTOTelefonoEmpleado(e.legajo, e.telefono) FROM Empleado e " +
+            "WHERE e.legajo > :despuesDe AND e.telefono IS NOT NULL ORDER BY e.legajo")
+    List<DTOTelefonoEmpleado> findTelefonosDespuesDe(@Param("despuesDe") Long despuesDe, Pageable pagina);
+
     @Query("SELECT e.telefono FROM Empleado e WHERE e.legajo = :legajo")
     String findTelefonoByLegajo(Long legajo);
-}
\ No newline at end of file
+
+    // Legajos de los empleados con ese nombre y apellido (sin distinguir mayúsculas)
+    @Query("SELECT e.legajo FROM Empleado e WHERE LOWER(e.nombre) = LOWER(:nombre) AND LOWER(e.apellido) = LOWER(:apellido)")
+    List<Long> findLegajosByNombreAndApellido(@Param("nombre") String nombre, @Param("apellido") String apellido);
+}
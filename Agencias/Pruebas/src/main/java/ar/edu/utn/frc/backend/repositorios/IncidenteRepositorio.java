@@ -0,0 +1,21 @@
+package ar.edu.utn.frc.backend.repositorios;
+
+import ar.edu.utn.frc.backend.entities.Incidente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// Cada consulta filtra por la columna inicial de uno de los índices de la tabla y ordena por fecha,
+// así la página se arma recorriendo el índice sin leer todos los incidentes
+@Repository
+public interface IncidenteRepositorio extends JpaRepository<Incidente, Long> {
+
+    List<Incidente> findByFechaHoraBetweenOrderByFechaHoraDescIdDesc(Long desde, Long hasta, Pageable pagina);
+
+    List<Incidente> findByPatenteAndFechaHoraBetweenOrderByFechaHoraDescIdDesc(String patente, Long desde, Long hasta, Pageable pagina);
+
+    List<Incidente> findByLegajoEmpleadoInAndFechaHoraBetweenOrderByFechaHoraDescIdDesc(Collection<Long> legajos, Long desde, Long hasta, Pageable pagina);
+}
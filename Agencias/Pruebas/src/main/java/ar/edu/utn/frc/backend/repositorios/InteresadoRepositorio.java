@@ -2,8 +2,11 @@ package ar.edu.utn.frc.backend.repositorios;
 
 import ar.edu.utn.frc.backend.entities.Interesado;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -14,4 +17,9 @@ public interface InteresadoRepositorio extends JpaRepository<Interesado, Long> {
 
     @Query("SELECT i FROM Interesado i WHERE i.id = :id")
     Optional<Interesado> findInteresadoByPruebaId(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Interesado i SET i.restringido = :restringido WHERE i.id = :id")
+    int actualizarRestringido(@Param("id") Long id, @Param("restringido") String restringido);
 }
\ No newline at end of file
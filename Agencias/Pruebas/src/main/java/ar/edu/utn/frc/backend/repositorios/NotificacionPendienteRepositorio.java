@@ -0,0 +1,15 @@
+package ar.edu.utn.frc.backend.repositorios;
+
+import ar.edu.utn.frc.backend.entities.NotificacionPendiente;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificacionPendienteRepositorio extends JpaRepository<NotificacionPendiente, Long> {
+
+    // Las pendientes que ya se pueden enviar, en el orden en que se generaron
+    List<NotificacionPendiente> findByProximoIntentoLessThanEqualOrderByIdAsc(Long ahora, Pageable pagina);
+}
@@ -1,8 +1,10 @@
 package ar.edu.utn.frc.backend.repositorios;
 
+import ar.edu.utn.frc.backend.dto.DTOUltimaPosicion;
 import ar.edu.utn.frc.backend.entities.Posicion;
 import ar.edu.utn.frc.backend.entities.Vehiculo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -26,6 +28,46 @@ public interface PosicionRepositorio extends JpaRepository<Posicion, Long> {
 
     @Query("SELECT p FROM Posicion p WHERE p.vehiculo = :vehiculo AND p.fechaHora BETWEEN :fechaHoraDesde AND :fechaHoraHasta")
     List<Posicion> findPosicionsByVehiculoAndFecha(@Param("vehiculo") Vehiculo vehiculo,
-                                                   @Param("fechaHoraDesde") String fechaHoraDesde,
-                                                   @Param("fechaHoraHasta") String fechaHoraHasta);
-}
\ No newline at end of file
+                                                   @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                   @Param("fechaHoraHasta") Long fechaHoraHasta);
+
+    // Última posición de un vehículo, proyectada directamente al DTO
+    @Query("SELECT new ar.edu.utn.frc.backend.dto.DTOUltimaPosicion(p.vehiculo.id, p.vehiculo.patente, p.latitud, p.longitud, p.fechaHora) " +
+            "FROM Posicion p WHERE p.vehiculo.id = :vehiculoId ORDER BY p.fechaHora DESC LIMIT 1")
+    DTOUltimaPosicion findUltimaPosicionByVehiculoId(@Param("vehiculoId") Long vehiculoId);
+
+    // Última posición de cada vehículo, en una sola consulta
+    @Query("SELECT new ar.edu.utn.frc.backend.dto.DTOUltimaPosicion(p.vehiculo.id, p.vehiculo.patente, p.latitud, p.longitud, p.fechaHora) " +
+            "FROM Posicion p WHERE p.fechaHora = (SELECT MAX(p2.fechaHora) FROM Posicion p2 WHERE p2.vehiculo = p.vehiculo)")
+    List<DTOUltimaPosicion> findUltimasPosiciones();
+
+    // Datos [latitud, longitud, fechaHora] de las posiciones de un vehículo en el rango indicado, en orden cronológico
+    @Query("SELECT p.latitud, p.longitud, p.fechaHora FROM Posicion p WHERE p.vehiculo.id = :vehiculoId " +
+            "AND p.fechaHora BETWEEN :fechaHoraDesde AND :fechaHoraHasta ORDER BY p.fechaHora, p.id")
+    List<Object[]> findCoordenadasByVehiculoIdAndFecha(@Param("vehiculoId") Long vehiculoId,
+                                                       @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                       @Param("fechaHoraHasta") Long fechaHoraHasta);
+
+    // Datos [id, latitud, longitud, fechaHora] de las posiciones de un vehículo en el rango indicado, en orden cronológico
+    @Query("SELECT p.id, p.latitud, p.longitud, p.fechaHora FROM Posicion p WHERE p.vehiculo.id = :vehiculoId " +
+            "AND p.fechaHora BETWEEN :fechaHoraDesde AND :fechaHoraHasta ORDER BY p.fechaHora, p.id")
+    List<Object[]> findPuntosByVehiculoIdAndFecha(@Param("vehiculoId") Long vehiculoId,
+                                                  @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                  @Param("fechaHoraHasta") Long fechaHoraHasta);
+
+    // Datos [id, latitud, longitud, fechaHora] de las posiciones del rango con id mayor a :despuesDeId, en orden cronológico
+    @Query("SELECT p.id, p.latitud, p.longitud, p.fechaHora FROM Posicion p WHERE p.vehiculo.id = :vehiculoId " +
+            "AND p.fechaHora BETWEEN :fechaHoraDesde AND :fechaHoraHasta AND p.id > :despuesDeId ORDER BY p.fechaHora, p.id")
+    List<Object[]> findPuntosNuevosByVehiculoIdAndFecha(@Param("vehiculoId") Long vehiculoId,
+                                                        @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                        @Param("fechaHoraHasta") Long fechaHoraHasta,
+                                                        @Param("despuesDeId") Long despuesDeId);
+
+    // Id de la última posición del vehículo
+    @Query("SELECT p.id FROM Posicion p WHERE p.vehiculo.id = :vehiculoId ORDER BY p.fechaHora DESC, p.id DESC LIMIT 1")
+    Long findUltimaPosicionIdByVehiculoId(@Param("vehiculoId") Long vehiculoId);
+
+    @Modifying
+    @Query("DELETE FROM Posicion p WHERE p.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
@@ -1,11 +1,15 @@
 package ar.edu.utn.frc.backend.repositorios;
 
+import ar.edu.utn.frc.backend.dto.DTOReporteDetallePruebaVehiculo;
 import ar.edu.utn.frc.backend.entities.Empleado;
 import ar.edu.utn.frc.backend.entities.Prueba;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -29,4 +33,50 @@ public interface PruebaRepositorio extends JpaRepository<Prueba, Long> {
 
     @Query("SELECT p.empleado FROM Prueba p WHERE p.id = :id")
     Optional<Empleado> findEmpleadoByPruebaId(Long id);
-}
\ No newline at end of file
+
+    // Datos [id, inicio, fin, km] de las pruebas de un vehículo que se superponen con el rango (incluye la que está en curso)
+    @Query("SELECT p.id, p.fechaHoraInicio, p.fechaHoraFin, p.kmRecorridos FROM Prueba p WHERE p.vehiculo.id = :vehiculoId " +
+            "AND p.fechaHoraInicio <= :fechaHoraHasta AND (p.fechaHoraFin IS NULL OR p.fechaHoraFin >= :fechaHoraDesde)")
+    List<Object[]> findKmPruebasByVehiculoIdEnRango(@Param("vehiculoId") Long vehiculoId,
+                                                    @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                    @Param("fechaHoraHasta") Long fechaHoraHasta);
+
+    // Datos [id, id del vehículo, inicio, fin] de las pruebas cuyo recorrido no está compactado
+    @Query("SELECT p.id, p.vehiculo.id, p.fechaHoraInicio, p.fechaHoraFin FROM Prueba p " +
+            "WHERE p.id NOT IN (SELECT r.pruebaId FROM RecorridoCompactado r)")
+    List<Object[]> findDatosPruebas();
+
+    // Datos [id, id del vehículo, inicio, fin] de las pruebas finalizadas antes de :limite que todavía no se archivaron
+    @Query("SELECT p.id, p.vehiculo.id, p.fechaHoraInicio, p.fechaHoraFin FROM Prueba p " +
+            "WHERE p.fechaHoraFin IS NOT NULL AND p.fechaHoraFin < :limite AND p.vehiculo IS NOT NULL " +
+            "AND p.id NOT IN (SELECT r.pruebaId FROM RecorridoCompactado r) ORDER BY p.id")
+    List<Object[]> findPruebasParaArchivar(@Param("limite") Long limite, Pageable pagina);
+
+    // Rangos [inicio, fin] de las otras pruebas del vehículo sin archivar que se superponen con el rango (fin null = en curso)
+    @Query("SELECT p.fechaHoraInicio, p.fechaHoraFin FROM Prueba p WHERE p.vehiculo.id = :vehiculoId AND p.id <> :pruebaId " +
+            "AND p.fechaHoraInicio <= :fechaHoraHasta AND (p.fechaHoraFin IS NULL OR p.fechaHoraFin >= :fechaHoraDesde) " +
+            "AND p.id NOT IN (SELECT r.pruebaId FROM RecorridoCompactado r)")
+    List<Object[]> findRangosSinArchivarSuperpuestos(@Param("pruebaId") Long pruebaId,
+                                                     @Param("vehiculoId") Long vehiculoId,
+                                                     @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                     @Param("fechaHoraHasta") Long fechaHoraHasta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Prueba p SET p.kmRecorridos = :km WHERE p.id = :id")
+    int actualizarKmRecorridos(@Param("id") Long id, @Param("km") Double km);
+
+    // Detalle de las pruebas de un vehículo en una sola consulta, paginado por id (se piden las siguientes a :despuesDe)
+    @Query("SELECT new ar.edu.utn.frc.backend.dto.DTOReporteDetallePruebaVehiculo(p.id, v.patente, " +
+            "COALESCE(i.nombre, 'Desconocido'), COALESCE(i.apellido, 'Desconocido'), " +
+            "COALESCE(e.nombre, 'Desconocido'), COALESCE(e.apellido, 'Desconocido'), " +
+            "p.fechaHoraInicio, p.fechaHoraFin, COALESCE(p.comentarios, 'Sin comentarios')) " +
+            "FROM Prueba p JOIN p.vehiculo v LEFT JOIN p.interesado i LEFT JOIN p.empleado e " +
+            "WHERE v.id = :vehiculoId AND p.id > :despuesDe " +
+            "AND p.fechaHoraInicio BETWEEN :fechaHoraDesde AND :fechaHoraHasta ORDER BY p.id")
+    List<DTOReporteDetallePruebaVehiculo> findDetalleByVehiculoId(@Param("vehiculoId") Long vehiculoId,
+                                                                  @Param("despuesDe") Long despuesDe,
+                                                                  @Param("fechaHoraDesde") Long fechaHoraDesde,
+                                                                  @Param("fechaHoraHasta") Long fechaHoraHasta,
+                                                                  Pageable pagina);
+}
@@ -0,0 +1,24 @@
+package ar.edu.utn.frc.backend.repositorios;
+
+import ar.edu.utn.frc.backend.entities.RecorridoCompactado;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RecorridoCompactadoRepositorio extends JpaRepository<RecorridoCompactado, Long> {
+
+    // Recorridos completos (sin simplificar) de pruebas finalizadas antes de :limite
+    @Query("SELECT r FROM RecorridoCompactado r WHERE r.toleranciaMetros = 0 AND r.fechaHoraFin < :limite ORDER BY r.pruebaId")
+    List<RecorridoCompactado> findParaSimplificar(@Param("limite") Long limite, Pageable pagina);
+
+    // Recorridos finalizados después de :desde con posiciones que llegaron después de archivarlos
+    @Query("SELECT r FROM RecorridoCompactado r WHERE r.fechaHoraFin >= :desde AND EXISTS (SELECT 1 FROM Posicion p " +
+            "WHERE p.vehiculo.id = r.vehiculoId AND p.fechaHora BETWEEN r.fechaHoraInicio AND r.fechaHoraFin " +
+            "AND p.id > r.ultimaPosicionId) ORDER BY r.pruebaId")
+    List<RecorridoCompactado> findConPosicionesAtrasadas(@Param("desde") Long desde, Pageable pagina);
+}
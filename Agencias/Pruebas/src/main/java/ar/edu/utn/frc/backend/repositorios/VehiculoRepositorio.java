@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +22,12 @@ public interface VehiculoRepositorio extends JpaRepository<Vehiculo, Long> {
 
     @Query("SELECT v.patente FROM Vehiculo v WHERE v.id = :id")
     String findVehiculoPatenteById(Long id);
-}
\ No newline at end of file
+
+    // Devuelve pares [id, patente] para todas las patentes indicadas, en una sola consulta
+    @Query("SELECT v.id, v.patente FROM Vehiculo v WHERE v.patente IN :patentes")
+    List<Object[]> findIdsByPatentes(Collection<String> patentes);
+
+    // Devuelve pares [id, patente] de todos los vehículos
+    @Query("SELECT v.id, v.patente FROM Vehiculo v")
+    List<Object[]> findIdsYPatentes();
+}
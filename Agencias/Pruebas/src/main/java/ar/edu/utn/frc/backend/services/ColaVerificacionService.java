@@ -0,0 +1,134 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.distancias.Coordenada;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Cola en memoria que verifica cada posición aceptada apenas se guarda, sin esperar a que un cliente llame a /verificar.
+// Las posiciones se reparten en carriles según el vehículo: cada carril tiene un solo hilo y una cantidad acotada de
+// lugares, así las posiciones de un mismo vehículo se evalúan en el orden en que llegaron.
+// El lugar se reserva antes de guardar la posición y la verificación se encola recién después de guardarla: una
+// posición que no se pudo guardar no genera incidentes, y si el carril está lleno se rechaza sin guardar nada
+// (RejectedExecutionException) para que el cliente reintente. La reserva espera como mucho espera-maxima-ms, en el
+// hilo de la solicitud, así que conviene que sea corta (0 = rechazar enseguida).
+// La verificación nunca se hace en el hilo que llama: eso la adelantaría a las posiciones que esperan en el carril.
+@Slf4j
+@Service
+public class ColaVerificacionService {
+
+    private final VerificacionPosicionService verificacionPosicionService;
+    private final ConfiguracionZonasService configuracionZonasService;
+    private final ThreadPoolExecutor[] carriles;
+    // Lugares libres de cada carril: la cola del carril no tiene límite propio, la acota la reserva
+    private final Semaphore[] lugares;
+    private final long esperaMaximaMs;
+    private final Counter rechazadas;
+
+    @Autowired
+    public ColaVerificacionService(VerificacionPosicionService verificacionPosicionService,
+                                   ConfiguracionZonasService configuracionZonasService,
+                                   @Value("${tpintegrador.verificacion.hilos}") int hilos,
+                                   @Value("${tpintegrador.verificacion.capacidad-cola}") int capacidadCola,
+                                   @Value("${tpintegrador.verificacion.espera-maxima-ms}") long esperaMaximaMs,
+                                   MeterRegistry meterRegistry) {
+        this.verificacionPosicionService = verificacionPosicionService;
+        this.configuracionZonasService = configuracionZonasService;
+        this.carriles = new ThreadPoolExecutor[hilos];
+        this.lugares = new Semaphore[hilos];
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.rechazadas = Counter.builder("verificacion.rechazadas").register(meterRegistry);
+
+        int capacidadPorCarril = Math.max(1, capacidadCola / hilos);
+        for (int i = 0; i < hilos; i++) {
+            String nombre = "verificacion-" + i;
+            lugares[i] = new Semaphore(capacidadPorCarril);
+            carriles[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread hilo = new Thread(r, nombre);
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+        }
+    }
+
+    // Reserva un lugar en el carril del vehículo para una posición que se va a guardar; si el carril sigue lleno
+    // después de la espera máxima lanza RejectedExecutionException
+    public void reservar(Long vehiculoId) {
+        try {
+            if (lugares[carril(vehiculoId)].tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rechazadas.increment();
+        throw new RejectedExecutionException("La cola de verificación está llena.");
+    }
+
+    // Devuelve el lugar reservado de una posición que no se llegó a guardar
+    public void liberar(Long vehiculoId) {
+        lugares[carril(vehiculoId)].release();
+    }
+
+    // Encola la verificación de una posición ya guardada, en el lugar que se le reservó
+    public void encolar(Long vehiculoId, Double latitud, Double longitud) {
+        int indice = carril(vehiculoId);
+        try {
+            carriles[indice].execute(() -> {
+                try {
+                    verificar(vehiculoId, new Coordenada(latitud, longitud));
+                } finally {
+                    lugares[indice].release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Solo al detener la aplicación: la posición ya está guardada, no se rechaza
+            lugares[indice].release();
+            log.warn("La cola de verificación está detenida, no se verificó la posición del vehículo con id {}", vehiculoId);
+        }
+    }
+
+    private int carril(Long vehiculoId) {
+        return Math.floorMod(vehiculoId, carriles.length);
+    }
+
+    private void verificar(Long vehiculoId, Coordenada punto) {
+        try {
+            ConfiguracionZonas configuracion = configuracionZonasService.obtenerConfiguracion();
+            if (configuracion == null) {
+                log.warn("No hay configuración de zonas disponible, no se verificó la posición del vehículo con id {}", vehiculoId);
+                return;
+            }
+
+            verificacionPosicionService.verificarPunto(vehiculoId, punto, configuracion);
+
+        } catch (Exception e) {
+            log.error("Error al verificar la posición del vehículo con id {}: {}", vehiculoId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        for (ThreadPoolExecutor carril : carriles) {
+            carril.shutdown();
+        }
+        for (ThreadPoolExecutor carril : carriles) {
+            if (!carril.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Quedaron {} verificaciones sin procesar al detener la cola.", carril.getQueue().size());
+            }
+        }
+    }
+}
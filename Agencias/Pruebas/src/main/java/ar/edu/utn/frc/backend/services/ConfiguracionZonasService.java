@@ -0,0 +1,103 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOPosicionAPI;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Mantiene la configuración de zonas en memoria. La descarga de la API externa se hace en segundo plano
+// y la nueva configuración se publica con un reemplazo atómico, así las verificaciones nunca esperan la red.
+// La última configuración válida se guarda en disco para poder arrancar aunque la API externa no responda.
+@Slf4j
+@Service
+public class ConfiguracionZonasService {
+
+    private final APIExternaService apiExternaService;
+    private final ObjectMapper objectMapper;
+    private final Path archivo;
+    private final AtomicReference<ConfiguracionZonas> actual = new AtomicReference<>();
+    // Un lock y no synchronized: la descarga bloquea en la red, y con hilos virtuales un synchronized dejaría
+    // fijo (pinned) al hilo del sistema que lo ejecuta durante toda la espera
+    private final ReentrantLock refresco = new ReentrantLock();
+
+    @Autowired
+    public ConfiguracionZonasService(APIExternaService apiExternaService,
+                                     ObjectMapper objectMapper,
+                                     @Value("${tpintegrador.configuracion.archivo}") String archivo) {
+        this.apiExternaService = apiExternaService;
+        this.objectMapper = objectMapper;
+        this.archivo = Paths.get(archivo);
+    }
+
+    // Al iniciar se carga la última configuración conocida desde el disco, si existe
+    @PostConstruct
+    public void cargarDesdeDisco() {
+        if (!Files.exists(archivo)) {
+            log.info("No existe una configuración de zonas guardada en {}", archivo.toAbsolutePath());
+            return;
+        }
+
+        try {
+            DTOPosicionAPI configuracion = objectMapper.readValue(archivo.toFile(), DTOPosicionAPI.class);
+            actual.set(ConfiguracionZonas.desde(configuracion));
+            log.info("Configuración de zonas cargada desde {}", archivo.toAbsolutePath());
+
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("No se pudo leer la configuración de zonas guardada en {}: {}", archivo.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    // Refresco periódico desde la API externa. Si falla, se sigue usando la última configuración válida
+    @Scheduled(initialDelay = 0, fixedDelayString = "${tpintegrador.configuracion.intervalo-refresco-ms}")
+    public void refrescar() {
+        refresco.lock();
+        try {
+            DTOPosicionAPI configuracion = apiExternaService.getConfiguracionAPI();
+
+            ConfiguracionZonas nueva;
+            try {
+                nueva = ConfiguracionZonas.desde(configuracion);
+            } catch (IllegalArgumentException e) {
+                log.warn("No se actualizó la configuración de zonas: {}", e.getMessage());
+                return;
+            }
+
+            actual.set(nueva);
+            log.info("Configuración de zonas actualizada: {} zonas restringidas", nueva.cantidadZonas());
+            guardarEnDisco(configuracion);
+
+        } finally {
+            refresco.unlock();
+        }
+    }
+
+    // Devuelve la configuración vigente, o null si todavía no hay ninguna (ni en disco ni descargada). Nunca descarga
+    // en el momento: quien llama responde "sin configuración" hasta que el refresco en segundo plano la cargue
+    public ConfiguracionZonas obtenerConfiguracion() {
+        return actual.get();
+    }
+
+    private void guardarEnDisco(DTOPosicionAPI configuracion) {
+        try {
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            objectMapper.writeValue(temporal.toFile(), configuracion);
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            log.error("No se pudo guardar la configuración de zonas en {}: {}", archivo.toAbsolutePath(), e.getMessage());
+        }
+    }
+}
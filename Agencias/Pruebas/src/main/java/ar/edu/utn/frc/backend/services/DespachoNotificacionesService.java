@@ -0,0 +1,197 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.cola.ColaEnArchivo;
+import ar.edu.utn.frc.backend.config.ClienteHttp;
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.dto.DTONotificacion;
+import ar.edu.utn.frc.backend.entities.NotificacionPendiente;
+import ar.edu.utn.frc.backend.repositorios.NotificacionPendienteRepositorio;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bandeja de salida de notificaciones: las infracciones solo guardan la notificación en la base (en la misma
+// transacción que el incidente) y este servicio las envía en segundo plano, en lotes, al microservicio de notificaciones.
+// Una notificación se borra recién cuando el envío se confirma, así que se entrega al menos una vez aunque
+// el microservicio esté caído o Pruebas se reinicie. Los lotes fallidos se reintentan con espera exponencial.
+// Si el envío sale bien pero el borrado falla, el lote no se reprograma ni se cuenta como fallido: sus ids quedan
+// en memoria como entregados y el borrado se reintenta antes de enviar nada más (si Pruebas se reinicia antes,
+// se vuelven a enviar).
+// Con transporte=cola los lotes no se envían por HTTP: se agregan a la cola en disco que lee Notificaciones
+// (ver ColaEnArchivo), así una ráfaga de alertas se despacha a la velocidad del disco aunque Notificaciones esté caído.
+// Con transporte=http (servicios en distintos equipos) se envían a /crear-lote como antes.
+@Slf4j
+@Service
+public class DespachoNotificacionesService {
+
+    private static final String INSERT_PENDIENTE = "INSERT INTO notificaciones_pendientes "
+            + "(ID, MENSAJE, LEGAJO, CREADA_EN, INTENTOS, PROXIMO_INTENTO) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final NotificacionPendienteRepositorio notificacionPendienteRepositorio;
+    private final ClienteHttp clienteHttp;
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
+    private final ColaEnArchivo colaNotificaciones;
+    private final ObjectMapper objectMapper;
+    private final boolean usarCola;
+    private final String url;
+    private final int tamanioLote;
+    private final long esperaInicialMs;
+    private final long esperaMaximaMs;
+
+    private final Counter enviadas;
+    private final Counter fallidas;
+    private final AtomicLong pendientes = new AtomicLong();
+    private final Set<Long> entregadasSinBorrar = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public DespachoNotificacionesService(NotificacionPendienteRepositorio notificacionPendienteRepositorio,
+                                         ClienteHttp clienteHttp,
+                                         EscritorSQLite escritorSQLite,
+                                         JdbcTemplate jdbcTemplate,
+                                         ColaEnArchivo colaNotificaciones,
+                                         ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${tpintegrador.notificaciones.transporte}") String transporte,
+                                         @Value("${tpintegrador.notificaciones.url}") String url,
+                                         @Value("${tpintegrador.notificaciones.tamanio-lote}") int tamanioLote,
+                                         @Value("${tpintegrador.notificaciones.espera-inicial-ms}") long esperaInicialMs,
+                                         @Value("${tpintegrador.notificaciones.espera-maxima-ms}") long esperaMaximaMs) {
+        this.notificacionPendienteRepositorio = notificacionPendienteRepositorio;
+        this.clienteHttp = clienteHttp;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
+        this.colaNotificaciones = colaNotificaciones;
+        this.objectMapper = objectMapper;
+        this.usarCola = "cola".equalsIgnoreCase(transporte);
+        this.url = url + "/crear-lote";
+        this.tamanioLote = tamanioLote;
+        this.esperaInicialMs = esperaInicialMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.enviadas = Counter.builder("notificaciones.despacho").tag("resultado", "enviada").register(meterRegistry);
+        this.fallidas = Counter.builder("notificaciones.despacho").tag("resultado", "fallida").register(meterRegistry);
+        Gauge.builder("notificaciones.pendientes", pendientes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("notificaciones.entregadas-sin-borrar", entregadasSinBorrar, Set::size).register(meterRegistry);
+    }
+
+    // Se llama dentro de la escritura que registra el incidente, así los dos se confirman juntos
+    public void encolar(String mensaje, Long legajo) {
+        if (mensaje == null || legajo == null) {
+            throw new IllegalArgumentException("La notificación necesita mensaje y legajo.");
+        }
+
+        long ahora = System.currentTimeMillis();
+        escritorSQLite.escribir(() -> jdbcTemplate.update(INSERT_PENDIENTE,
+                escritorSQLite.reservarIds("notificaciones_pendientes_seq", 1), mensaje, legajo, ahora, 0, ahora));
+    }
+
+    // Envía lotes mientras haya pendientes listas; si un lote falla se deja para la próxima ejecución.
+    // Mientras queden entregadas sin borrar no se envía nada: la consulta las volvería a traer
+    @Scheduled(fixedDelayString = "${tpintegrador.notificaciones.intervalo-ms}")
+    public void despachar() {
+        if (borrarEntregadas()) {
+            List<NotificacionPendiente> lote;
+            do {
+                lote = notificacionPendienteRepositorio.findByProximoIntentoLessThanEqualOrderByIdAsc(
+                        System.currentTimeMillis(), PageRequest.of(0, tamanioLote));
+            } while (!lote.isEmpty() && enviar(lote) && lote.size() == tamanioLote);
+        }
+
+        pendientes.set(notificacionPendienteRepositorio.count() - entregadasSinBorrar.size());
+    }
+
+    private boolean enviar(List<NotificacionPendiente> lote) {
+        List<DTONotificacion> cuerpo = new ArrayList<>(lote.size());
+        List<Long> ids = new ArrayList<>(lote.size());
+        for (NotificacionPendiente pendiente : lote) {
+            cuerpo.add(new DTONotificacion(pendiente.getMensaje(), pendiente.getLegajo()));
+            ids.add(pendiente.getId());
+        }
+
+        try {
+            if (usarCola) {
+                agregarACola(cuerpo);
+            } else {
+                // Si el circuito está abierto falla enseguida y el lote se reprograma sin esperar el timeout
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                ResponseEntity<String> response = clienteHttp.ejecutar("notificaciones", restTemplate ->
+                        restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(cuerpo, headers), String.class));
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    throw new IllegalStateException("Código de estado " + response.getStatusCode());
+                }
+            }
+
+        } catch (Exception e) {
+            reprogramar(lote, e.getMessage());
+            fallidas.increment(lote.size());
+            log.warn("No se pudo enviar el lote de {} notificaciones, se reintentará: {}", lote.size(), e.getMessage());
+            return false;
+        }
+
+        // Si Pruebas se cae entre el envío y el borrado el lote se vuelve a enviar (al menos una vez)
+        enviadas.increment(lote.size());
+        log.info("Lote de {} notificaciones enviado.", lote.size());
+        entregadasSinBorrar.addAll(ids);
+        return borrarEntregadas();
+    }
+
+    // Borra de la bandeja las notificaciones ya entregadas; si falla quedan para el próximo intento
+    private boolean borrarEntregadas() {
+        if (entregadasSinBorrar.isEmpty()) {
+            return true;
+        }
+
+        List<Long> ids = new ArrayList<>(entregadasSinBorrar);
+        try {
+            escritorSQLite.escribir(() -> notificacionPendienteRepositorio.deleteAllByIdInBatch(ids));
+            ids.forEach(entregadasSinBorrar::remove);
+            return true;
+
+        } catch (Exception e) {
+            log.warn("No se pudieron borrar {} notificaciones ya entregadas, se reintentará: {}", ids.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Un registro por notificación, con el mismo JSON que recibe /crear
+    private void agregarACola(List<DTONotificacion> cuerpo) throws IOException {
+        List<byte[]> registros = new ArrayList<>(cuerpo.size());
+        for (DTONotificacion notificacion : cuerpo) {
+            registros.add(objectMapper.writeValueAsBytes(notificacion));
+        }
+        colaNotificaciones.agregar(registros);
+    }
+
+    // Espera exponencial por notificación (con un 20% de variación al azar para que los reintentos no coincidan)
+    private void reprogramar(List<NotificacionPendiente> lote, String error) {
+        long ahora = System.currentTimeMillis();
+        for (NotificacionPendiente pendiente : lote) {
+            int intentos = pendiente.getIntentos() + 1;
+            long espera = Math.min(esperaMaximaMs, esperaInicialMs << Math.min(intentos - 1, 20));
+            espera = (long) (espera * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+
+            pendiente.setIntentos(intentos);
+            pendiente.setProximoIntento(ahora + espera);
+            pendiente.setUltimoError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+        }
+        escritorSQLite.escribir(() -> notificacionPendienteRepositorio.saveAll(lote));
+    }
+}
@@ -0,0 +1,258 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.dto.DTOEventoEnVivo;
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
+import ar.edu.utn.frc.backend.utils.Fechas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stream de eventos en vivo (server-sent events) para los tableros: posiciones, cambios de estado respecto de las
+// zonas e inicio / fin de pruebas. Cada suscriptor puede filtrar por patente o por legajo del empleado.
+// Publicar nunca bloquea a la ingesta: el evento solo se deja en el buffer acotado de cada suscriptor y el envío
+// lo hace un hilo propio de ese suscriptor (a lo sumo uno, mientras tenga algo pendiente), así un cliente lento solo
+// demora sus propios eventos. La cantidad de hilos la acota maximo-suscriptores. En el buffer las posiciones se combinan por vehículo (solo importa la última) y los
+// demás eventos, si el suscriptor no los consume a tiempo, descartan a los más viejos.
+@Slf4j
+@Service
+public class EventosEnVivoService {
+
+    public static final String POSICION = "posicion";
+    public static final String GEOCERCA = "geocerca";
+    public static final String PRUEBA_INICIADA = "prueba-iniciada";
+    public static final String PRUEBA_FINALIZADA = "prueba-finalizada";
+
+    // Marca de latido dentro de los pendientes de un suscriptor
+    private static final Object LATIDO = new Object();
+
+    private final PruebasActivasService pruebasActivasService;
+    private final int capacidadBuffer;
+    private final int maximoSuscriptores;
+    private final long timeoutMs;
+    private final SimpleAsyncTaskExecutor envios;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    // Se reserva el lugar antes de agregar al suscriptor, así dos suscripciones simultáneas no pasan juntas el máximo
+    private final AtomicInteger cantidadSuscriptores = new AtomicInteger();
+    private final Counter descartados;
+
+    @Autowired
+    public EventosEnVivoService(PruebasActivasService pruebasActivasService,
+                                MeterRegistry meterRegistry,
+                                Environment environment,
+                                @Value("${tpintegrador.eventos.capacidad-buffer}") int capacidadBuffer,
+                                @Value("${tpintegrador.eventos.maximo-suscriptores}") int maximoSuscriptores,
+                                @Value("${tpintegrador.eventos.timeout-ms}") long timeoutMs) {
+        this.pruebasActivasService = pruebasActivasService;
+        this.capacidadBuffer = capacidadBuffer;
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.timeoutMs = timeoutMs;
+
+        // Un hilo por envío en curso (uno por suscriptor como mucho): un cliente lento no ocupa el hilo de otro.
+        // Con hilos virtuales habilitados son virtuales
+        this.envios = new SimpleAsyncTaskExecutor("eventos-");
+        this.envios.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        this.envios.setDaemon(true);
+        this.envios.setTaskTerminationTimeout(5000);
+
+        this.descartados = Counter.builder("eventos.descartados").register(meterRegistry);
+        Gauge.builder("eventos.suscriptores", suscriptores, Set::size).register(meterRegistry);
+    }
+
+    public SseEmitter suscribir(String patente, Long legajo) {
+        if (cantidadSuscriptores.incrementAndGet() > maximoSuscriptores) {
+            cantidadSuscriptores.decrementAndGet();
+            throw new IllegalStateException("Se alcanzó el máximo de " + maximoSuscriptores + " suscriptores.");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emitter, patente, legajo);
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> quitar(suscriptor));
+        emitter.onError(e -> quitar(suscriptor));
+        suscriptores.add(suscriptor);
+
+        log.info("Nuevo suscriptor de eventos (patente: {}, legajo: {}). Suscriptores: {}", patente, legajo, suscriptores.size());
+        return emitter;
+    }
+
+    public void publicarPosicion(Long vehiculoId, String patente, Double latitud, Double longitud, Long fechaHora) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+
+        Long legajo = pruebasActivasService.obtenerPorVehiculo(vehiculoId).map(DTOPruebaActiva::getLegajoEmpleado).orElse(null);
+        DTOEventoEnVivo evento = new DTOEventoEnVivo(POSICION, null, vehiculoId, patente, legajo, latitud, longitud, null, Fechas.formatear(fechaHora));
+        publicar(evento);
+    }
+
+    public void publicarGeocerca(Long vehiculoId, String estado) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+
+        Optional<DTOPruebaActiva> prueba = pruebasActivasService.obtenerPorVehiculo(vehiculoId);
+        DTOEventoEnVivo evento = new DTOEventoEnVivo(GEOCERCA, prueba.map(DTOPruebaActiva::getPruebaId).orElse(null), vehiculoId,
+                prueba.map(DTOPruebaActiva::getPatente).orElse(null), prueba.map(DTOPruebaActiva::getLegajoEmpleado).orElse(null),
+                null, null, estado, Fechas.formatear(System.currentTimeMillis()));
+        publicar(evento);
+    }
+
+    public void publicarPrueba(String tipo, DTOPruebaActiva prueba, Long fechaHora) {
+        if (suscriptores.isEmpty() || prueba == null) {
+            return;
+        }
+
+        publicar(new DTOEventoEnVivo(tipo, prueba.getPruebaId(), prueba.getVehiculoId(), prueba.getPatente(),
+                prueba.getLegajoEmpleado(), null, null, null, Fechas.formatear(fechaHora)));
+    }
+
+    private void publicar(DTOEventoEnVivo evento) {
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.acepta(evento) && suscriptor.agregar(evento)) {
+                envios.execute(() -> enviar(suscriptor));
+            }
+        }
+    }
+
+    // Mantiene viva la conexión (y detecta a los clientes que se desconectaron sin avisar)
+    @Scheduled(fixedDelayString = "${tpintegrador.eventos.latido-ms}")
+    public void latir() {
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.pedirLatido()) {
+                envios.execute(() -> enviar(suscriptor));
+            }
+        }
+    }
+
+    // Envía todo lo pendiente del suscriptor; cada suscriptor tiene a lo sumo un envío en curso
+    private void enviar(Suscriptor suscriptor) {
+        try {
+            List<Object> pendientes;
+            while ((pendientes = suscriptor.tomarPendientes()) != null) {
+                for (Object pendiente : pendientes) {
+                    if (pendiente == LATIDO) {
+                        suscriptor.emitter.send(SseEmitter.event().comment("latido"));
+                    } else {
+                        DTOEventoEnVivo evento = (DTOEventoEnVivo) pendiente;
+                        suscriptor.emitter.send(SseEmitter.event().name(evento.getTipo()).data(evento, MediaType.APPLICATION_JSON));
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            log.info("Se desconectó un suscriptor de eventos: {}", e.getMessage());
+            quitar(suscriptor);
+            suscriptor.emitter.completeWithError(e);
+        }
+    }
+
+    // Se puede llamar varias veces para el mismo suscriptor (fin, timeout y error): libera su lugar una sola vez
+    private void quitar(Suscriptor suscriptor) {
+        if (suscriptores.remove(suscriptor)) {
+            cantidadSuscriptores.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.emitter.complete();
+        }
+        envios.close();
+    }
+
+    private final class Suscriptor {
+
+        private final SseEmitter emitter;
+        private final String patente;
+        private final Long legajo;
+
+        // Última posición pendiente de cada vehículo, en el orden en que llegaron
+        private final LinkedHashMap<Long, DTOEventoEnVivo> posiciones = new LinkedHashMap<>();
+        private final ArrayDeque<DTOEventoEnVivo> eventos = new ArrayDeque<>();
+        private boolean latido;
+        private boolean enviando;
+
+        private Suscriptor(SseEmitter emitter, String patente, Long legajo) {
+            this.emitter = emitter;
+            this.patente = patente;
+            this.legajo = legajo;
+        }
+
+        private boolean acepta(DTOEventoEnVivo evento) {
+            return (patente == null || patente.equals(evento.getPatente()))
+                    && (legajo == null || legajo.equals(evento.getLegajoEmpleado()));
+        }
+
+        // Devuelve true si hay que programar un envío (no había uno en curso)
+        private synchronized boolean agregar(DTOEventoEnVivo evento) {
+            if (POSICION.equals(evento.getTipo())) {
+                // Se reemplaza la posición pendiente del vehículo y, si hay demasiados vehículos, se descarta el más viejo
+                posiciones.remove(evento.getVehiculoId());
+                if (posiciones.size() >= capacidadBuffer) {
+                    Iterator<Long> masVieja = posiciones.keySet().iterator();
+                    masVieja.next();
+                    masVieja.remove();
+                    descartados.increment();
+                }
+                posiciones.put(evento.getVehiculoId(), evento);
+            } else {
+                if (eventos.size() >= capacidadBuffer) {
+                    eventos.pollFirst();
+                    descartados.increment();
+                }
+                eventos.addLast(evento);
+            }
+            return programarEnvio();
+        }
+
+        private synchronized boolean pedirLatido() {
+            latido = true;
+            return programarEnvio();
+        }
+
+        private boolean programarEnvio() {
+            if (enviando) {
+                return false;
+            }
+            enviando = true;
+            return true;
+        }
+
+        // Los eventos van antes que las posiciones (así el inicio de una prueba llega antes que sus posiciones).
+        // Devuelve null, y libera el envío, cuando ya no queda nada
+        private synchronized List<Object> tomarPendientes() {
+            if (eventos.isEmpty() && posiciones.isEmpty() && !latido) {
+                enviando = false;
+                return null;
+            }
+
+            List<Object> pendientes = new ArrayList<>(eventos.size() + posiciones.size() + 1);
+            pendientes.addAll(eventos);
+            pendientes.addAll(posiciones.values());
+            if (latido && pendientes.isEmpty()) {
+                pendientes.add(LATIDO);
+            }
+            eventos.clear();
+            posiciones.clear();
+            latido = false;
+            return pendientes;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.distancias.Coordenada;
+import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
+import ar.edu.utn.frc.backend.dto.DTOUltimaPosicion;
+import ar.edu.utn.frc.backend.dto.DTOVehiculoEnFlota;
+import ar.edu.utn.frc.backend.utils.Fechas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Mapa en vivo de las pruebas en curso armado solo con lo que ya está en memoria: el registro de pruebas activas,
+// la última posición de cada vehículo, el odómetro y el estado respecto de las zonas. No consulta la base,
+// así que el costo es proporcional a la cantidad de vehículos en prueba.
+@Service
+public class FlotaEnVivoService {
+
+    private final PruebasActivasService pruebasActivasService;
+    private final UltimaPosicionService ultimaPosicionService;
+    private final OdometroService odometroService;
+    private final VerificacionPosicionService verificacionPosicionService;
+    private final ConfiguracionZonasService configuracionZonasService;
+
+    @Autowired
+    public FlotaEnVivoService(PruebasActivasService pruebasActivasService,
+                              UltimaPosicionService ultimaPosicionService,
+                              OdometroService odometroService,
+                              VerificacionPosicionService verificacionPosicionService,
+                              ConfiguracionZonasService configuracionZonasService) {
+        this.pruebasActivasService = pruebasActivasService;
+        this.ultimaPosicionService = ultimaPosicionService;
+        this.odometroService = odometroService;
+        this.verificacionPosicionService = verificacionPosicionService;
+        this.configuracionZonasService = configuracionZonasService;
+    }
+
+    public List<DTOVehiculoEnFlota> obtenerFlota() {
+        // Sin configuración de zonas cargada todavía, la flota se devuelve sin la distancia a la agencia
+        ConfiguracionZonas configuracion = configuracionZonasService.obtenerConfiguracion();
+        Coordenada agencia = configuracion != null ? configuracion.getCoordenadasAgencia() : null;
+        boolean conAgencia = agencia != null && agencia.getLatitud() != null && agencia.getLongitud() != null;
+
+        List<DTOPruebaActiva> activas = pruebasActivasService.obtenerTodas();
+        List<DTOVehiculoEnFlota> flota = new ArrayList<>(activas.size());
+
+        for (DTOPruebaActiva prueba : activas) {
+            DTOVehiculoEnFlota vehiculo = new DTOVehiculoEnFlota();
+            vehiculo.setPruebaId(prueba.getPruebaId());
+            vehiculo.setVehiculoId(prueba.getVehiculoId());
+            vehiculo.setPatente(prueba.getPatente());
+            vehiculo.setLegajoEmpleado(prueba.getLegajoEmpleado());
+            vehiculo.setNombreEmpleado(prueba.getNombreEmpleado());
+            vehiculo.setApellidoEmpleado(prueba.getApellidoEmpleado());
+            vehiculo.setInteresadoId(prueba.getInteresadoId());
+            vehiculo.setNombreInteresado(prueba.getNombreInteresado());
+            vehiculo.setApellidoInteresado(prueba.getApellidoInteresado());
+            vehiculo.setFechaHoraInicio(Fechas.formatear(prueba.getFechaHoraInicio()));
+            vehiculo.setEstadoZona(verificacionPosicionService.obtenerEstado(prueba.getVehiculoId()).name());
+            vehiculo.setKmRecorridos(odometroService.obtenerKmEnCurso(prueba.getVehiculoId()));
+
+            // Toda prueba arranca guardando una posición, así que el vehículo siempre está en la cache
+            ultimaPosicionService.obtenerEnMemoria(prueba.getVehiculoId()).ifPresent(posicion -> {
+                vehiculo.setLatitud(posicion.getLatitud());
+                vehiculo.setLongitud(posicion.getLongitud());
+                vehiculo.setFechaHoraPosicion(Fechas.formatear(posicion.getFechaHora()));
+                if (conAgencia && posicion.getLatitud() != null && posicion.getLongitud() != null) {
+                    vehiculo.setDistanciaAgenciaKm(ObtenerDistancia.distanciaKm(agencia.getLatitud(), agencia.getLongitud(),
+                            posicion.getLatitud(), posicion.getLongitud()));
+                }
+            });
+            flota.add(vehiculo);
+        }
+        return flota;
+    }
+}
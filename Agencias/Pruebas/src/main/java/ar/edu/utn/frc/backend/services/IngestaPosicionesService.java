@@ -0,0 +1,236 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.dto.DTOPosicionLote;
+import ar.edu.utn.frc.backend.dto.DTOResultadoIngesta;
+import ar.edu.utn.frc.backend.dto.DTOResultadoPosicion;
+import ar.edu.utn.frc.backend.repositorios.VehiculoRepositorio;
+import ar.edu.utn.frc.backend.utils.Fechas;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+// Ingesta masiva de posiciones: acepta un arreglo JSON o NDJSON (un objeto por línea) con posiciones de muchos vehículos.
+// El cuerpo se lee en forma incremental y se procesa por lotes: las patentes de cada lote se resuelven en una sola consulta
+// y las posiciones se insertan por JDBC en batch, reservando de una vez el bloque de ids en la tabla de secuencia.
+@Slf4j
+@Service
+public class IngestaPosicionesService {
+
+    private static final String INSERT_POSICION =
+            "INSERT INTO Posiciones (ID, ID_VEHICULO, FECHA_HORA_MS, LATITUD, LONGITUD) VALUES (?, ?, ?, ?, ?)";
+    private static final String COLA_LLENA = "Cola de verificación llena, reintentar más tarde.";
+
+    private final VehiculoRepositorio vehiculoRepositorio;
+    private final ColaVerificacionService colaVerificacionService;
+    private final UltimaPosicionService ultimaPosicionService;
+    private final OdometroService odometroService;
+    private final EventosEnVivoService eventosEnVivoService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EscritorSQLite escritorSQLite;
+    private final ObjectReader lector;
+    private final int tamanioLote;
+
+    @Autowired
+    public IngestaPosicionesService(VehiculoRepositorio vehiculoRepositorio,
+                                    ColaVerificacionService colaVerificacionService,
+                                    UltimaPosicionService ultimaPosicionService,
+                                    OdometroService odometroService,
+                                    EventosEnVivoService eventosEnVivoService,
+                                    JdbcTemplate jdbcTemplate,
+                                    EscritorSQLite escritorSQLite,
+                                    ObjectMapper objectMapper,
+                                    @Value("${tpintegrador.ingesta.tamanio-lote}") int tamanioLote) {
+        this.vehiculoRepositorio = vehiculoRepositorio;
+        this.colaVerificacionService = colaVerificacionService;
+        this.ultimaPosicionService = ultimaPosicionService;
+        this.odometroService = odometroService;
+        this.eventosEnVivoService = eventosEnVivoService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.escritorSQLite = escritorSQLite;
+        this.lector = objectMapper.readerFor(DTOPosicionLote.class);
+        this.tamanioLote = tamanioLote;
+    }
+
+    public DTOResultadoIngesta ingerir(InputStream cuerpo) throws IOException {
+        DTOResultadoIngesta resultado = new DTOResultadoIngesta();
+
+        // Cache de patente -> id de vehículo durante toda la solicitud (null si la patente no existe)
+        Map<String, Long> vehiculos = new HashMap<>();
+        List<DTOPosicionLote> lote = new ArrayList<>(tamanioLote);
+        int indice = 0;
+
+        // readValues recorre tanto un arreglo JSON como valores separados por saltos de línea
+        try (MappingIterator<DTOPosicionLote> iterador = lector.readValues(cuerpo)) {
+            while (iterador.hasNextValue()) {
+                lote.add(iterador.nextValue());
+
+                if (lote.size() == tamanioLote) {
+                    procesarLote(lote, indice, vehiculos, resultado);
+                    indice += lote.size();
+                    lote.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Lo leído hasta el error se procesa igual; el resto del cuerpo se descarta
+            log.warn("Cuerpo de ingesta inválido a partir del elemento {}: {}", indice + lote.size(), e.getOriginalMessage());
+            procesarLote(lote, indice, vehiculos, resultado);
+            indice += lote.size();
+            lote.clear();
+            agregarResultado(resultado, new DTOResultadoPosicion(indice, null, false, null,
+                    "JSON inválido, se descartó el resto del cuerpo: " + e.getOriginalMessage()));
+        }
+
+        procesarLote(lote, indice, vehiculos, resultado);
+
+        log.info("Ingesta masiva: {} posiciones recibidas, {} aceptadas, {} rechazadas.",
+                resultado.getRecibidas(), resultado.getAceptadas(), resultado.getRechazadas());
+        return resultado;
+    }
+
+    private void procesarLote(List<DTOPosicionLote> lote, int primerIndice, Map<String, Long> vehiculos, DTOResultadoIngesta resultado) {
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        resolverPatentes(lote, vehiculos);
+
+        long ahora = System.currentTimeMillis();
+        DTOResultadoPosicion[] resultados = new DTOResultadoPosicion[lote.size()];
+        List<Object[]> filas = new ArrayList<>(lote.size());
+        List<Integer> posicionesAceptadas = new ArrayList<>(lote.size());
+
+        for (int i = 0; i < lote.size(); i++) {
+            DTOPosicionLote posicion = lote.get(i);
+            String motivo = validar(posicion);
+
+            // La fecha informada (si viene) se pasa a milisegundos; si no, se usa la de recepción
+            long fechaHora = ahora;
+            if (motivo == null && posicion.getFechaHora() != null) {
+                try {
+                    fechaHora = Fechas.aMilisegundos(posicion.getFechaHora());
+                } catch (IllegalArgumentException e) {
+                    motivo = "Fecha y hora inválida, se espera el formato yyyy-MM-dd HH:mm:ss.";
+                }
+            }
+
+            Long vehiculoId = motivo == null ? vehiculos.get(posicion.getPatente()) : null;
+
+            if (motivo == null && vehiculoId == null) {
+                motivo = "Vehículo no encontrado.";
+            }
+
+            if (motivo != null) {
+                String patente = posicion == null ? null : posicion.getPatente();
+                resultados[i] = new DTOResultadoPosicion(primerIndice + i, patente, false, null, motivo);
+                continue;
+            }
+
+            // Con la cola de verificación llena se rechaza esta posición y todas las que siguen en la solicitud, así una
+            // posición posterior del mismo vehículo no se acepta antes que la que el cliente tiene que reintentar
+            if (resultado.isSaturada()) {
+                resultados[i] = new DTOResultadoPosicion(primerIndice + i, posicion.getPatente(), false, null, COLA_LLENA);
+                continue;
+            }
+            try {
+                // Se reserva su lugar en la cola de verificación antes de guardarla; se encola después de guardarla
+                colaVerificacionService.reservar(vehiculoId);
+            } catch (RejectedExecutionException e) {
+                resultado.setSaturada(true);
+                resultados[i] = new DTOResultadoPosicion(primerIndice + i, posicion.getPatente(), false, null, COLA_LLENA);
+                continue;
+            }
+
+            filas.add(new Object[]{null, vehiculoId, fechaHora, posicion.getLatitud(), posicion.getLongitud()});
+            posicionesAceptadas.add(i);
+        }
+
+        if (!filas.isEmpty()) {
+            try {
+                insertar(filas);
+            } catch (RuntimeException e) {
+                for (Object[] fila : filas) {
+                    colaVerificacionService.liberar((Long) fila[1]);
+                }
+                throw e;
+            }
+            for (int j = 0; j < filas.size(); j++) {
+                int i = posicionesAceptadas.get(j);
+                // Ya guardada, se verifica contra las zonas en el orden en que llegó
+                colaVerificacionService.encolar((Long) filas.get(j)[1], (Double) filas.get(j)[3], (Double) filas.get(j)[4]);
+                resultados[i] = new DTOResultadoPosicion(primerIndice + i, lote.get(i).getPatente(), true, (Long) filas.get(j)[0], null);
+
+                // Cada posición aceptada actualiza la última posición conocida y el odómetro y se publica en el stream de eventos
+                Object[] fila = filas.get(j);
+                ultimaPosicionService.actualizar((Long) fila[1], lote.get(i).getPatente(), (Double) fila[3], (Double) fila[4], (Long) fila[2]);
+                odometroService.registrarPosicion((Long) fila[1], (Double) fila[3], (Double) fila[4], (Long) fila[2]);
+                eventosEnVivoService.publicarPosicion((Long) fila[1], lote.get(i).getPatente(), (Double) fila[3], (Double) fila[4], (Long) fila[2]);
+            }
+        }
+
+        for (DTOResultadoPosicion r : resultados) {
+            agregarResultado(resultado, r);
+        }
+    }
+
+    // Resuelve en una sola consulta las patentes del lote que todavía no se conocen
+    private void resolverPatentes(List<DTOPosicionLote> lote, Map<String, Long> vehiculos) {
+        Set<String> desconocidas = new HashSet<>();
+        for (DTOPosicionLote posicion : lote) {
+            if (posicion != null && posicion.getPatente() != null && !vehiculos.containsKey(posicion.getPatente())) {
+                desconocidas.add(posicion.getPatente());
+            }
+        }
+
+        if (desconocidas.isEmpty()) {
+            return;
+        }
+
+        for (String patente : desconocidas) {
+            vehiculos.put(patente, null);
+        }
+        for (Object[] fila : vehiculoRepositorio.findIdsByPatentes(desconocidas)) {
+            vehiculos.put((String) fila[1], (Long) fila[0]);
+        }
+    }
+
+    // Reserva un bloque de ids y graba todas las filas con un batch JDBC, en el escritor de la base: las posiciones que
+    // llegan a la vez (de lotes o de a una) se confirman juntas. Completa el id de cada fila (filas.get(j)[0])
+    public void insertar(List<Object[]> filas) {
+        escritorSQLite.escribir(() -> {
+            long primerId = escritorSQLite.reservarIds("posiciones_seq", filas.size());
+            for (int j = 0; j < filas.size(); j++) {
+                filas.get(j)[0] = primerId + j;
+            }
+            jdbcTemplate.batchUpdate(INSERT_POSICION, filas);
+        });
+    }
+
+    private String validar(DTOPosicionLote posicion) {
+        if (posicion == null || posicion.getPatente() == null || posicion.getLatitud() == null || posicion.getLongitud() == null) {
+            return "Todos los campos son obligatorios.";
+        }
+        return null;
+    }
+
+    private void agregarResultado(DTOResultadoIngesta resultado, DTOResultadoPosicion item) {
+        resultado.getResultados().add(item);
+        resultado.setRecibidas(resultado.getRecibidas() + 1);
+        if (item.isAceptada()) {
+            resultado.setAceptadas(resultado.getAceptadas() + 1);
+        } else {
+            resultado.setRechazadas(resultado.getRechazadas() + 1);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.entities.Prueba;
+import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
+import ar.edu.utn.frc.backend.repositorios.PruebaRepositorio;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Odómetro incremental: por cada vehículo se guarda el último punto recibido y los km acumulados
+// en la prueba en curso, así cada posición nueva suma un solo tramo en lugar de recorrer todo el historial.
+// Al finalizar la prueba los km se guardan en la tabla de pruebas.
+@Slf4j
+@Service
+@DependsOn("migracionEsquema")
+public class OdometroService {
+
+    private final PosicionRepositorio posicionRepositorio;
+    private final PruebaRepositorio pruebaRepositorio;
+    private final EscritorSQLite escritorSQLite;
+
+    private final Map<Long, Acumulador> porVehiculo = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OdometroService(PosicionRepositorio posicionRepositorio, PruebaRepositorio pruebaRepositorio,
+                           EscritorSQLite escritorSQLite) {
+        this.posicionRepositorio = posicionRepositorio;
+        this.pruebaRepositorio = pruebaRepositorio;
+        this.escritorSQLite = escritorSQLite;
+    }
+
+    // Estado del odómetro de un vehículo. Solo se modifica dentro de compute() del mapa
+    private static class Acumulador {
+        private Double latitud;
+        private Double longitud;
+        private Long fechaHora;
+        private Long pruebaId;
+        private double kmPrueba;
+        // Posiciones registradas mientras se leen las de la prueba para reconstruirla (null si no se está leyendo)
+        private List<Object[]> registradasDuranteLectura;
+    }
+
+    // Las pruebas que quedaron en curso se reconstruyen desde sus posiciones al iniciar
+    @PostConstruct
+    public void precargar() {
+        log.info("Odómetro precargado: {} pruebas en curso.", reconstruirEnCurso().size());
+    }
+
+    // Reconstruye el odómetro de cada prueba en curso y devuelve sus ids
+    private Set<Long> reconstruirEnCurso() {
+        Set<Long> enCurso = new HashSet<>();
+        for (Prueba prueba : pruebaRepositorio.findByFechaHoraFinIsNull()) {
+            if (prueba.getVehiculo() != null) {
+                reconstruir(prueba.getVehiculo().getId(), prueba);
+                enCurso.add(prueba.getId());
+            }
+        }
+        return enCurso;
+    }
+
+    // Las posiciones se leen fuera de compute(), así la consulta no retiene el bloqueo del mapa. Mientras tanto el
+    // acumulador anota las posiciones que se registran y, al reemplazarlo, se suman las más nuevas que la última leída
+    // (las demás ya están en la lectura), en lugar de perderse
+    private void reconstruir(Long vehiculoId, Prueba prueba) {
+        porVehiculo.compute(vehiculoId, (id, acumulador) -> {
+            if (acumulador == null) {
+                acumulador = new Acumulador();
+            }
+            if (acumulador.registradasDuranteLectura == null) {
+                acumulador.registradasDuranteLectura = new ArrayList<>();
+            }
+            return acumulador;
+        });
+
+        List<Object[]> coordenadas;
+        try {
+            coordenadas = posicionRepositorio.findCoordenadasByVehiculoIdAndFecha(vehiculoId, prueba.getFechaHoraInicio(), Long.MAX_VALUE);
+        } catch (RuntimeException e) {
+            porVehiculo.computeIfPresent(vehiculoId, (id, acumulador) -> {
+                acumulador.registradasDuranteLectura = null;
+                return acumulador;
+            });
+            throw e;
+        }
+
+        porVehiculo.compute(vehiculoId, (id, anterior) -> {
+            Acumulador acumulador = new Acumulador();
+            acumulador.pruebaId = prueba.getId();
+            acumulador.kmPrueba = sumarTramos(coordenadas);
+            if (!coordenadas.isEmpty()) {
+                Object[] ultima = coordenadas.get(coordenadas.size() - 1);
+                acumulador.latitud = (Double) ultima[0];
+                acumulador.longitud = (Double) ultima[1];
+                acumulador.fechaHora = (Long) ultima[2];
+            } else if (anterior != null) {
+                acumulador.latitud = anterior.latitud;
+                acumulador.longitud = anterior.longitud;
+                acumulador.fechaHora = anterior.fechaHora;
+            }
+
+            if (anterior != null && anterior.registradasDuranteLectura != null) {
+                Long ultimaLeida = acumulador.fechaHora;
+                for (Object[] posicion : anterior.registradasDuranteLectura) {
+                    if (ultimaLeida == null || (Long) posicion[2] > ultimaLeida) {
+                        sumar(acumulador, (Double) posicion[0], (Double) posicion[1], (Long) posicion[2]);
+                    }
+                }
+            }
+            return acumulador;
+        });
+    }
+
+    // Se llama cada vez que se guarda una posición nueva: suma el tramo desde el punto anterior
+    public void registrarPosicion(Long vehiculoId, Double latitud, Double longitud, Long fechaHora) {
+        porVehiculo.compute(vehiculoId, (id, acumulador) -> {
+            if (acumulador == null) {
+                acumulador = new Acumulador();
+            }
+            if (acumulador.registradasDuranteLectura != null && fechaHora != null) {
+                acumulador.registradasDuranteLectura.add(new Object[]{latitud, longitud, fechaHora});
+            }
+            sumar(acumulador, latitud, longitud, fechaHora);
+            return acumulador;
+        });
+    }
+
+    private static void sumar(Acumulador acumulador, Double latitud, Double longitud, Long fechaHora) {
+        // Una posición más vieja que la última (por ejemplo, de un lote atrasado) no se suma;
+        // esos casos se corrigen con el recálculo completo
+        if (acumulador.fechaHora != null && fechaHora != null && fechaHora < acumulador.fechaHora) {
+            return;
+        }
+
+        if (acumulador.pruebaId != null && acumulador.latitud != null) {
+            acumulador.kmPrueba += ObtenerDistancia.distanciaKm(acumulador.latitud, acumulador.longitud, latitud, longitud);
+        }
+        acumulador.latitud = latitud;
+        acumulador.longitud = longitud;
+        acumulador.fechaHora = fechaHora;
+    }
+
+    // La prueba arranca en cero desde el último punto conocido del vehículo (la posición inicial en la agencia)
+    public void iniciarPrueba(Long vehiculoId, Long pruebaId) {
+        porVehiculo.compute(vehiculoId, (id, acumulador) -> {
+            if (acumulador == null) {
+                acumulador = new Acumulador();
+            }
+            acumulador.pruebaId = pruebaId;
+            acumulador.kmPrueba = 0;
+            return acumulador;
+        });
+    }
+
+    // Devuelve los km de la prueba y deja de acumular para ese vehículo
+    public Double finalizarPrueba(Long vehiculoId, Prueba prueba, Long fechaHoraFin) {
+        Double[] km = new Double[1];
+        porVehiculo.computeIfPresent(vehiculoId, (id, acumulador) -> {
+            if (prueba.getId().equals(acumulador.pruebaId)) {
+                km[0] = acumulador.kmPrueba;
+                acumulador.pruebaId = null;
+                acumulador.kmPrueba = 0;
+            }
+            return acumulador;
+        });
+
+        // Si el odómetro no estaba siguiendo esta prueba se calcula desde las posiciones
+        if (km[0] == null) {
+            km[0] = calcularKm(vehiculoId, prueba.getFechaHoraInicio(), fechaHoraFin);
+        }
+        return km[0];
+    }
+
+    // Km acumulados en la prueba en curso del vehículo, o null si el odómetro no sigue ninguna
+    public Double obtenerKmEnCurso(Long vehiculoId) {
+        Double[] km = new Double[1];
+        porVehiculo.computeIfPresent(vehiculoId, (id, acumulador) -> {
+            if (acumulador.pruebaId != null) {
+                km[0] = acumulador.kmPrueba;
+            }
+            return acumulador;
+        });
+        return km[0];
+    }
+
+    // Cálculo completo a partir de las posiciones guardadas
+    public double calcularKm(Long vehiculoId, Long fechaHoraDesde, Long fechaHoraHasta) {
+        return sumarTramos(posicionRepositorio.findCoordenadasByVehiculoIdAndFecha(vehiculoId, fechaHoraDesde, fechaHoraHasta));
+    }
+
+    // Recalcula y guarda los km de todas las pruebas finalizadas, y reinicia el odómetro de las que están en curso
+    public int recalcularTodo() {
+        int finalizadas = 0;
+        for (Object[] fila : pruebaRepositorio.findDatosPruebas()) {
+            Long pruebaId = (Long) fila[0];
+            Long vehiculoId = (Long) fila[1];
+            Long fechaHoraInicio = (Long) fila[2];
+            Long fechaHoraFin = (Long) fila[3];
+
+            if (vehiculoId == null || fechaHoraFin == null) {
+                continue;
+            }
+            double km = calcularKm(vehiculoId, fechaHoraInicio, fechaHoraFin);
+            escritorSQLite.escribir(() -> pruebaRepositorio.actualizarKmRecorridos(pruebaId, km));
+            finalizadas++;
+        }
+
+        // Se reconstruye vehículo por vehículo en lugar de vaciar el mapa, así no se pierden las posiciones que se
+        // registran durante el recálculo; los vehículos sin prueba en curso conservan su último punto
+        Set<Long> enCurso = reconstruirEnCurso();
+        for (Long vehiculoId : porVehiculo.keySet()) {
+            porVehiculo.computeIfPresent(vehiculoId, (id, acumulador) -> {
+                if (acumulador.pruebaId != null && !enCurso.contains(acumulador.pruebaId)) {
+                    acumulador.pruebaId = null;
+                    acumulador.kmPrueba = 0;
+                }
+                return acumulador;
+            });
+        }
+        log.info("Recálculo de km completo: {} pruebas finalizadas actualizadas.", finalizadas);
+        return finalizadas;
+    }
+
+    private double sumarTramos(List<Object[]> coordenadas) {
+        int cantidad = coordenadas.size();
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            latitudes[i] = (Double) coordenadas.get(i)[0];
+            longitudes[i] = (Double) coordenadas.get(i)[1];
+        }
+        return ObtenerDistancia.longitudRecorrido(latitudes, longitudes, cantidad);
+    }
+}
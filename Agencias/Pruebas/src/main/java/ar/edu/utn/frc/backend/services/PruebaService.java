@@ -1,17 +1,19 @@
 package ar.edu.utn.frc.backend.services;
 
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
 import ar.edu.utn.frc.backend.dto.*;
 import ar.edu.utn.frc.backend.entities.*;
 import ar.edu.utn.frc.backend.repositorios.*;
+import ar.edu.utn.frc.backend.utils.Fechas;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.service.spi.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -20,32 +22,49 @@ import java.util.stream.Collectors;
 @Service
 public class PruebaService {
 
+    private static final int TAMANIO_MAXIMO_PAGINA_TELEFONOS = 5000;
+    private static final String INSERT_POSICION =
+            "INSERT INTO Posiciones (ID, ID_VEHICULO, FECHA_HORA_MS, LATITUD, LONGITUD) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PRUEBA =
+            "INSERT INTO Pruebas (ID, FECHA_HORA_INICIO_MS, ID_VEHICULO, ID_INTERESADO, ID_EMPLEADO) VALUES (?, ?, ?, ?, ?)";
+
     private final PruebaRepositorio pruebaRepositorio;
     private final InteresadoRepositorio interesadoRepositorio;
     private final VehiculoRepositorio vehiculoRepositorio;
     private final EmpleadoRepositorio empleadoRepositorio;
-    private final PosicionRepositorio posicionRepositorio;
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final UltimaPosicionService ultimaPosicionService;
+    private final OdometroService odometroService;
+    private final PruebasActivasService pruebasActivasService;
+    private final EventosEnVivoService eventosEnVivoService;
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
     public PruebaService(PruebaRepositorio pruebaRepositorio,
                          InteresadoRepositorio interesadoRepositorio,
                          VehiculoRepositorio vehiculoRepositorio,
-                         EmpleadoRepositorio empleadoRepositorio, PosicionRepositorio posicionRepositorio) {
+                         EmpleadoRepositorio empleadoRepositorio,
+                         UltimaPosicionService ultimaPosicionService, OdometroService odometroService,
+                         PruebasActivasService pruebasActivasService, EventosEnVivoService eventosEnVivoService,
+                         EscritorSQLite escritorSQLite, JdbcTemplate jdbcTemplate) {
 
         this.pruebaRepositorio = pruebaRepositorio;
         this.interesadoRepositorio = interesadoRepositorio;
         this.vehiculoRepositorio = vehiculoRepositorio;
         this.empleadoRepositorio = empleadoRepositorio;
-        this.posicionRepositorio = posicionRepositorio;
+        this.ultimaPosicionService = ultimaPosicionService;
+        this.odometroService = odometroService;
+        this.pruebasActivasService = pruebasActivasService;
+        this.eventosEnVivoService = eventosEnVivoService;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     // Servicio para crear una prueba, validando que exista el interesado, empleado y vehiculo
     public Prueba create(DTOCrearPrueba pruebaDTO) throws ServiceException {
         validatePruebaDTO(pruebaDTO);
 
-        LocalDateTime fechaHoraInicio = LocalDateTime.now();
-        String fechaHoraInicioFormateada = fechaHoraInicio.format(formatter);
+        long fechaHoraInicio = System.currentTimeMillis();
 
         Interesado interesado = interesadoRepositorio.findById(pruebaDTO.getInteresadoId())
                 .orElseThrow(() -> {
@@ -75,20 +94,32 @@ public class PruebaService {
             posicion.setVehiculo(vehiculo);
             posicion.setLatitud(42.50886738457441);
             posicion.setLongitud(1.5347139324337429);
-            posicion.setFechaHora(LocalDateTime.now().format(formatter));
-
-            // Agregar la nueva posición a la lista de posiciones del vehículo
-            vehiculo.getPosiciones().add(posicion);
-
-            // Guardar la nueva posición en la base de datos
-            posicionRepositorio.save(posicion);
+            posicion.setFechaHora(fechaHoraInicio);
 
             Prueba prueba = new Prueba();
             prueba.setVehiculo(vehiculo);
             prueba.setInteresado(interesado);
             prueba.setEmpleado(empleado);
-            prueba.setFechaHoraInicio(fechaHoraInicioFormateada);
-            pruebaRepositorio.save(prueba);
+            prueba.setFechaHoraInicio(fechaHoraInicio);
+
+            // La posición inicial y la prueba se graban juntas por el escritor único, con ids reservados en esa escritura
+            escritorSQLite.escribir(() -> {
+                posicion.setId(escritorSQLite.reservarIds("posiciones_seq", 1));
+                jdbcTemplate.update(INSERT_POSICION, posicion.getId(), vehiculo.getId(), fechaHoraInicio, posicion.getLatitud(), posicion.getLongitud());
+                prueba.setId(escritorSQLite.reservarIds("pruebas_seq", 1));
+                jdbcTemplate.update(INSERT_PRUEBA, prueba.getId(), fechaHoraInicio, vehiculo.getId(), interesado.getId(), empleado.getLegajo());
+            });
+
+            ultimaPosicionService.actualizar(vehiculo.getId(), vehiculo.getPatente(), posicion.getLatitud(), posicion.getLongitud(), posicion.getFechaHora());
+            odometroService.registrarPosicion(vehiculo.getId(), posicion.getLatitud(), posicion.getLongitud(), posicion.getFechaHora());
+
+            // El odómetro de la prueba arranca en la posición inicial recién guardada
+            odometroService.iniciarPrueba(vehiculo.getId(), prueba.getId());
+            pruebasActivasService.registrar(prueba);
+
+            DTOPruebaActiva activa = pruebasActivasService.obtenerPorVehiculo(vehiculo.getId()).orElse(null);
+            eventosEnVivoService.publicarPrueba(EventosEnVivoService.PRUEBA_INICIADA, activa, fechaHoraInicio);
+            eventosEnVivoService.publicarPosicion(vehiculo.getId(), vehiculo.getPatente(), posicion.getLatitud(), posicion.getLongitud(), posicion.getFechaHora());
 
             return prueba;
 
@@ -108,16 +139,14 @@ public class PruebaService {
 
     // Servicio para gestionar las pruebas en curso
     public List<DTOPruebaEnCurso> obtenerPruebasEnCurso() throws ServiceException {
-        List<Prueba> pruebas = pruebaRepositorio.findByFechaHoraFinIsNull();
-
-        return pruebas.stream().map(prueba ->
+        return pruebasActivasService.obtenerTodas().stream().map(prueba ->
                 new DTOPruebaEnCurso(
-                        prueba.getVehiculo().getPatente(),
-                        prueba.getInteresado().getNombre(),
-                        prueba.getInteresado().getApellido(),
-                        prueba.getEmpleado().getNombre(),
-                        prueba.getEmpleado().getApellido(),
-                        prueba.getFechaHoraInicio()
+                        prueba.getPatente(),
+                        prueba.getNombreInteresado(),
+                        prueba.getApellidoInteresado(),
+                        prueba.getNombreEmpleado(),
+                        prueba.getApellidoEmpleado(),
+                        Fechas.formatear(prueba.getFechaHoraInicio())
                 )
         ).collect(Collectors.toList());
     }
@@ -127,38 +156,61 @@ public class PruebaService {
         Optional<Prueba> pruebaOpt = pruebaRepositorio.findById(idPrueba);
 
         if (pruebaOpt.isPresent()) {
-            LocalDateTime fechaHoraFin = LocalDateTime.now();
-            String fechaHoraFinFormateada = fechaHoraFin.format(formatter);
+            long fechaHoraFin = System.currentTimeMillis();
 
             Prueba prueba = pruebaOpt.get();
+            boolean estabaEnCurso = prueba.getFechaHoraFin() == null;
             prueba.setComentarios(comentarios);
-            prueba.setFechaHoraFin(fechaHoraFinFormateada);
-            return Optional.of(pruebaRepositorio.save(prueba));
+            prueba.setFechaHoraFin(fechaHoraFin);
+            if (prueba.getVehiculo() != null) {
+                prueba.setKmRecorridos(odometroService.finalizarPrueba(prueba.getVehiculo().getId(), prueba, fechaHoraFin));
+            }
+            Prueba finalizada = escritorSQLite.ejecutar(() -> pruebaRepositorio.save(prueba));
+
+            if (estabaEnCurso && prueba.getVehiculo() != null) {
+                DTOPruebaActiva activa = pruebasActivasService.obtenerPorVehiculo(prueba.getVehiculo().getId()).orElse(null);
+                pruebasActivasService.quitar(prueba.getVehiculo().getId(), prueba.getId());
+                if (activa != null && activa.getPruebaId().equals(prueba.getId())) {
+                    eventosEnVivoService.publicarPrueba(EventosEnVivoService.PRUEBA_FINALIZADA, activa, fechaHoraFin);
+                }
+            }
+            return Optional.of(finalizada);
         }
         return Optional.empty(); // Retorna vacío si no se encontró la prueba
     }
 
     public void actualizarEstadoInteresadoPorId(Long idVehiculo) {
         // Buscar la prueba activa asociada al vehículo con el ID proporcionado
-        Optional<Prueba> pruebaOpt = pruebaRepositorio.findPruebaByVehiculoIdAndFechaHoraFinIsNull(idVehiculo);
+        DTOPruebaActiva prueba = pruebasActivasService.obtenerPorVehiculo(idVehiculo)
+                .orElseThrow(() -> new IllegalArgumentException("No se encontró prueba en curso para el vehículo con id: " + idVehiculo));
 
-        // Si no se encuentran pruebas, lanzar una excepción
-        Prueba prueba = pruebaOpt.orElseThrow(() -> new IllegalArgumentException("No se encontró prueba en curso para el vehículo con id: " + idVehiculo));
-
-        // Obtener el interesado relacionado con la prueba activa
-        Interesado interesado = prueba.getInteresado();
-
-        // Actualizar el estado del interesado a "restringido"
-        interesado.setRestringido("true");
+        actualizarEstadoInteresado(prueba);
+    }
 
-        // Guardar el interesado actualizado
-        interesadoRepositorio.save(interesado);
+    public void actualizarEstadoInteresado(DTOPruebaActiva prueba) {
+        // El interesado se marca como restringido una sola vez por prueba, con una actualización directa.
+        // La prueba se anota como ya restringida después del commit: si la escritura se deshace (falla el grupo o el
+        // incidente de la misma infracción) la próxima infracción la vuelve a intentar
+        if (prueba.getInteresadoId() == null || pruebasActivasService.interesadoRestringido(prueba.getPruebaId())) {
+            return;
+        }
+        escritorSQLite.escribir(() -> {
+            interesadoRepositorio.actualizarRestringido(prueba.getInteresadoId(), "true");
+            escritorSQLite.despuesDeConfirmar(() -> pruebasActivasService.marcarInteresadoRestringido(prueba.getPruebaId()));
+        });
     }
 
     public List<String> obtenerNrosTelefono() {
         return empleadoRepositorio.findTelefonos();
     }
 
+    public List<DTOTelefonoEmpleado> obtenerNrosTelefono(Long despuesDe, int tamanio) {
+        if (tamanio < 1 || tamanio > TAMANIO_MAXIMO_PAGINA_TELEFONOS) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + TAMANIO_MAXIMO_PAGINA_TELEFONOS + ".");
+        }
+        return empleadoRepositorio.findTelefonosDespuesDe(despuesDe != null ? despuesDe : 0L, PageRequest.of(0, tamanio));
+    }
+
     public String obtenerNroTelefono(Long legajo) {
         return empleadoRepositorio.findTelefonoByLegajo(legajo);
     }
@@ -0,0 +1,93 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
+import ar.edu.utn.frc.backend.entities.Prueba;
+import ar.edu.utn.frc.backend.repositorios.PruebaRepositorio;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registro en memoria de las pruebas en curso, por id de vehículo.
+// Se reconstruye al iniciar desde la base y lo mantienen al día la creación y la finalización de pruebas,
+// así la verificación de posiciones encuentra la prueba, el interesado y el empleado sin consultar la base.
+@Slf4j
+@Service
+@DependsOn("migracionEsquema")
+public class PruebasActivasService {
+
+    private final PruebaRepositorio pruebaRepositorio;
+
+    private final Map<Long, DTOPruebaActiva> porVehiculo = new ConcurrentHashMap<>();
+    // Pruebas cuyo interesado ya se marcó como restringido (para no repetir la escritura en cada infracción)
+    private final Set<Long> interesadosRestringidos = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PruebasActivasService(PruebaRepositorio pruebaRepositorio) {
+        this.pruebaRepositorio = pruebaRepositorio;
+    }
+
+    @PostConstruct
+    public void precargar() {
+        for (Prueba prueba : pruebaRepositorio.findByFechaHoraFinIsNull()) {
+            registrar(prueba);
+        }
+        log.info("Registro de pruebas en curso precargado: {} pruebas.", porVehiculo.size());
+    }
+
+    public void registrar(Prueba prueba) {
+        if (prueba.getVehiculo() == null) {
+            return;
+        }
+
+        DTOPruebaActiva activa = new DTOPruebaActiva();
+        activa.setPruebaId(prueba.getId());
+        activa.setVehiculoId(prueba.getVehiculo().getId());
+        activa.setPatente(prueba.getVehiculo().getPatente());
+        activa.setFechaHoraInicio(prueba.getFechaHoraInicio());
+
+        if (prueba.getInteresado() != null) {
+            activa.setInteresadoId(prueba.getInteresado().getId());
+            activa.setNombreInteresado(prueba.getInteresado().getNombre());
+            activa.setApellidoInteresado(prueba.getInteresado().getApellido());
+        }
+
+        if (prueba.getEmpleado() != null) {
+            activa.setLegajoEmpleado(prueba.getEmpleado().getLegajo());
+            activa.setNombreEmpleado(prueba.getEmpleado().getNombre());
+            activa.setApellidoEmpleado(prueba.getEmpleado().getApellido());
+        }
+
+        porVehiculo.put(activa.getVehiculoId(), activa);
+    }
+
+    // Solo se quita si la prueba registrada para el vehículo es la que se finaliza
+    public void quitar(Long vehiculoId, Long pruebaId) {
+        porVehiculo.computeIfPresent(vehiculoId, (id, activa) -> activa.getPruebaId().equals(pruebaId) ? null : activa);
+        interesadosRestringidos.remove(pruebaId);
+    }
+
+    public Optional<DTOPruebaActiva> obtenerPorVehiculo(Long vehiculoId) {
+        return Optional.ofNullable(porVehiculo.get(vehiculoId));
+    }
+
+    // Todas las pruebas en curso, en el orden en que se crearon
+    public List<DTOPruebaActiva> obtenerTodas() {
+        List<DTOPruebaActiva> activas = new ArrayList<>(porVehiculo.values());
+        activas.sort(Comparator.comparing(DTOPruebaActiva::getPruebaId));
+        return activas;
+    }
+
+    public boolean interesadoRestringido(Long pruebaId) {
+        return interesadosRestringidos.contains(pruebaId);
+    }
+
+    // Se llama recién cuando la escritura que restringe al interesado se confirmó
+    public void marcarInteresadoRestringido(Long pruebaId) {
+        interesadosRestringidos.add(pruebaId);
+    }
+}
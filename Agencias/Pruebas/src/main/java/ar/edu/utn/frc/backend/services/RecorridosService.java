@@ -0,0 +1,310 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.distancias.Simplificacion;
+import ar.edu.utn.frc.backend.distancias.Trayecto;
+import ar.edu.utn.frc.backend.entities.Prueba;
+import ar.edu.utn.frc.backend.entities.RecorridoCompactado;
+import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
+import ar.edu.utn.frc.backend.repositorios.PruebaRepositorio;
+import ar.edu.utn.frc.backend.repositorios.RecorridoCompactadoRepositorio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ciclo de vida de los recorridos de las pruebas finalizadas:
+//   1. Archivo: pasada la espera configurada desde que una prueba finaliza, sus posiciones se guardan como un único
+//      blob binario (distancias/Trayecto) junto con los km, y se borran de la tabla de posiciones. No se borran las
+//      posiciones que también caen en el rango de otra prueba del mismo vehículo que todavía no se archivó
+//      (las pruebas de un vehículo se pueden superponer), ni la última posición del vehículo.
+//   2. Posiciones atrasadas: las que llegan después de archivar (por ejemplo, un lote que se reenvía tarde) se
+//      agregan al recorrido archivado y a sus km mientras la prueba no sea más vieja que la antigüedad de simplificación.
+//   3. Simplificación: los recorridos archivados hace más de la antigüedad configurada se simplifican
+//      con Douglas-Peucker, así la base no crece con el detalle de pruebas de hace meses.
+// Cada prueba se graba como una escritura del escritor de la base (config/EscritorSQLite): si algo falla, esa prueba
+// queda como estaba.
+@Slf4j
+@Service
+public class RecorridosService {
+
+    private static final int TAMANIO_BORRADO = 500;
+
+    private final PruebaRepositorio pruebaRepositorio;
+    private final PosicionRepositorio posicionRepositorio;
+    private final RecorridoCompactadoRepositorio recorridoCompactadoRepositorio;
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
+    private final long esperaArchivoMs;
+    private final long antiguedadSimplificacionMs;
+    private final double toleranciaMetros;
+    private final int pruebasPorEjecucion;
+
+    private final Counter pruebasArchivadas;
+    private final Counter pruebasSimplificadas;
+    private final Counter posicionesEliminadas;
+    private final ReentrantLock compactacion = new ReentrantLock();
+
+    @Autowired
+    public RecorridosService(PruebaRepositorio pruebaRepositorio,
+                             PosicionRepositorio posicionRepositorio,
+                             RecorridoCompactadoRepositorio recorridoCompactadoRepositorio,
+                             EscritorSQLite escritorSQLite,
+                             JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${tpintegrador.recorridos.espera-archivo-minutos}") long esperaArchivoMinutos,
+                             @Value("${tpintegrador.recorridos.antiguedad-simplificacion-dias}") long antiguedadSimplificacionDias,
+                             @Value("${tpintegrador.recorridos.tolerancia-metros}") double toleranciaMetros,
+                             @Value("${tpintegrador.recorridos.pruebas-por-ejecucion}") int pruebasPorEjecucion) {
+        this.pruebaRepositorio = pruebaRepositorio;
+        this.posicionRepositorio = posicionRepositorio;
+        this.recorridoCompactadoRepositorio = recorridoCompactadoRepositorio;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
+        this.esperaArchivoMs = TimeUnit.MINUTES.toMillis(esperaArchivoMinutos);
+        this.antiguedadSimplificacionMs = TimeUnit.DAYS.toMillis(antiguedadSimplificacionDias);
+        this.toleranciaMetros = toleranciaMetros;
+        this.pruebasPorEjecucion = pruebasPorEjecucion;
+        this.pruebasArchivadas = Counter.builder("recorridos.archivo.pruebas").register(meterRegistry);
+        this.pruebasSimplificadas = Counter.builder("recorridos.simplificacion.pruebas").register(meterRegistry);
+        this.posicionesEliminadas = Counter.builder("recorridos.archivo.posiciones.eliminadas").register(meterRegistry);
+    }
+
+    // Devuelve la cantidad de pruebas archivadas, actualizadas o simplificadas en esta ejecución
+    @Scheduled(initialDelayString = "${tpintegrador.recorridos.intervalo-ms}", fixedDelayString = "${tpintegrador.recorridos.intervalo-ms}")
+    public int compactar() {
+        // Lock y no synchronized, para no fijar el hilo del sistema si se ejecuta en un hilo virtual
+        compactacion.lock();
+        try {
+            long ahora = System.currentTimeMillis();
+
+            // La espera deja llegar las posiciones atrasadas (por ejemplo, de un lote) antes de archivar
+            int archivadas = 0;
+            for (Object[] fila : pruebaRepositorio.findPruebasParaArchivar(ahora - esperaArchivoMs, PageRequest.of(0, pruebasPorEjecucion))) {
+                Long pruebaId = (Long) fila[0];
+                try {
+                    escritorSQLite.escribir(() ->
+                            archivarPrueba(pruebaId, (Long) fila[1], (Long) fila[2], (Long) fila[3]));
+                    archivadas++;
+                } catch (Exception e) {
+                    log.error("No se pudo archivar el recorrido de la prueba {}: {}", pruebaId, e.getMessage());
+                }
+            }
+
+            int actualizadas = 0;
+            for (RecorridoCompactado recorrido : recorridoCompactadoRepositorio.findConPosicionesAtrasadas(
+                    ahora - antiguedadSimplificacionMs, PageRequest.of(0, pruebasPorEjecucion))) {
+                try {
+                    escritorSQLite.escribir(() -> agregarPosicionesAtrasadas(recorrido.getPruebaId()));
+                    actualizadas++;
+                } catch (Exception e) {
+                    log.error("No se pudieron agregar posiciones atrasadas a la prueba {}: {}", recorrido.getPruebaId(), e.getMessage());
+                }
+            }
+
+            // Con tolerancia 0 los recorridos se guardan siempre completos
+            int simplificadas = 0;
+            if (toleranciaMetros > 0) {
+                for (RecorridoCompactado recorrido : recorridoCompactadoRepositorio.findParaSimplificar(
+                        ahora - antiguedadSimplificacionMs, PageRequest.of(0, pruebasPorEjecucion))) {
+                    try {
+                        escritorSQLite.escribir(() -> simplificar(recorrido.getPruebaId()));
+                        simplificadas++;
+                    } catch (Exception e) {
+                        log.error("No se pudo simplificar el recorrido de la prueba {}: {}", recorrido.getPruebaId(), e.getMessage());
+                    }
+                }
+            }
+
+            if (archivadas > 0 || actualizadas > 0 || simplificadas > 0) {
+                log.info("Compactación de recorridos: {} pruebas archivadas, {} con posiciones atrasadas, {} simplificadas.",
+                        archivadas, actualizadas, simplificadas);
+            }
+            return archivadas + actualizadas + simplificadas;
+
+        } finally {
+            compactacion.unlock();
+        }
+    }
+
+    // Km de la parte de un recorrido archivado que cae en el rango, o null si la prueba no está archivada
+    public Double calcularKm(Long pruebaId, long fechaHoraDesde, long fechaHoraHasta) {
+        return recorridoCompactadoRepositorio.findById(pruebaId)
+                .map(recorrido -> Trayecto.decodificar(recorrido.getDatos()).longitudEntre(fechaHoraDesde, fechaHoraHasta))
+                .orElse(null);
+    }
+
+    // Recorrido de una prueba en formato binario. Si está archivado se devuelve tal cual; si no (prueba en curso
+    // o todavía no archivada) se codifica a medida que se leen las posiciones, sin cargarlas todas en memoria
+    public StreamingResponseBody exportar(Long pruebaId) {
+        Prueba prueba = pruebaRepositorio.findById(pruebaId)
+                .orElseThrow(() -> new EntityNotFoundException("No se encontró la prueba con id " + pruebaId));
+
+        RecorridoCompactado archivado = recorridoCompactadoRepositorio.findById(pruebaId).orElse(null);
+        if (archivado != null) {
+            return salida -> salida.write(archivado.getDatos());
+        }
+
+        if (prueba.getVehiculo() == null) {
+            throw new EntityNotFoundException("La prueba " + pruebaId + " no tiene vehículo asignado.");
+        }
+        Long vehiculoId = prueba.getVehiculo().getId();
+        long desde = prueba.getFechaHoraInicio();
+        long hasta = prueba.getFechaHoraFin() != null ? prueba.getFechaHoraFin() : System.currentTimeMillis();
+
+        return salida -> {
+            BufferedOutputStream buffer = new BufferedOutputStream(salida, 16 * 1024);
+            Trayecto.Escritor escritor = new Trayecto.Escritor(buffer);
+            jdbcTemplate.query("SELECT LATITUD, LONGITUD, FECHA_HORA_MS FROM Posiciones WHERE ID_VEHICULO = ? " +
+                            "AND FECHA_HORA_MS BETWEEN ? AND ? ORDER BY FECHA_HORA_MS, ID",
+                    (RowCallbackHandler) rs -> escritor.agregar(rs.getDouble(1), rs.getDouble(2), rs.getLong(3)),
+                    vehiculoId, desde, hasta);
+            buffer.flush();
+        };
+    }
+
+    private void archivarPrueba(Long pruebaId, Long vehiculoId, Long fechaHoraInicio, Long fechaHoraFin) {
+        List<Object[]> puntos = posicionRepositorio.findPuntosByVehiculoIdAndFecha(vehiculoId, fechaHoraInicio, fechaHoraFin);
+
+        int cantidad = puntos.size();
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        long[] fechasHora = new long[cantidad];
+        int[] todos = new int[cantidad];
+        long ultimaPosicionId = 0L;
+        for (int i = 0; i < cantidad; i++) {
+            Object[] punto = puntos.get(i);
+            latitudes[i] = (Double) punto[1];
+            longitudes[i] = (Double) punto[2];
+            fechasHora[i] = (Long) punto[3];
+            todos[i] = i;
+            ultimaPosicionId = Math.max(ultimaPosicionId, (Long) punto[0]);
+        }
+
+        double km = ObtenerDistancia.longitudRecorrido(latitudes, longitudes, cantidad);
+        RecorridoCompactado recorrido = new RecorridoCompactado(pruebaId, vehiculoId, fechaHoraInicio, fechaHoraFin, km,
+                cantidad, cantidad, 0.0, Trayecto.codificar(latitudes, longitudes, fechasHora, todos), System.currentTimeMillis(),
+                ultimaPosicionId);
+        recorridoCompactadoRepositorio.save(recorrido);
+        pruebaRepositorio.actualizarKmRecorridos(pruebaId, km);
+
+        int eliminadas = borrarPosiciones(recorrido, puntos);
+        escritorSQLite.despuesDeConfirmar(pruebasArchivadas::increment);
+        log.debug("Prueba {} archivada: {} posiciones ({} borradas), {} bytes, {} km.", pruebaId, cantidad, eliminadas,
+                recorrido.getDatos().length, km);
+    }
+
+    // Las posiciones atrasadas se intercalan por fecha con las del recorrido archivado. A los km guardados se les suma
+    // lo que cambia la longitud del recorrido al intercalarlas (si el recorrido ya se simplificó, la diferencia se
+    // mide sobre los puntos conservados). El recorrido se lee dentro de la escritura: si se repite, parte del guardado
+    private void agregarPosicionesAtrasadas(Long pruebaId) {
+        RecorridoCompactado recorrido = recorridoCompactadoRepositorio.findById(pruebaId).orElseThrow();
+        List<Object[]> atrasadas = posicionRepositorio.findPuntosNuevosByVehiculoIdAndFecha(recorrido.getVehiculoId(),
+                recorrido.getFechaHoraInicio(), recorrido.getFechaHoraFin(), recorrido.getUltimaPosicionId());
+        if (atrasadas.isEmpty()) {
+            return;
+        }
+
+        Trayecto trayecto = Trayecto.decodificar(recorrido.getDatos());
+        int cantidad = trayecto.getCantidad() + atrasadas.size();
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        long[] fechasHora = new long[cantidad];
+        int[] todos = new int[cantidad];
+
+        // Las dos listas ya están en orden cronológico; ante la misma fecha va primero la archivada
+        long ultimaPosicionId = recorrido.getUltimaPosicionId();
+        int a = 0;
+        int n = 0;
+        for (int i = 0; i < cantidad; i++) {
+            if (a < trayecto.getCantidad() && (n == atrasadas.size() || trayecto.getFechasHora()[a] <= (Long) atrasadas.get(n)[3])) {
+                latitudes[i] = trayecto.getLatitudes()[a];
+                longitudes[i] = trayecto.getLongitudes()[a];
+                fechasHora[i] = trayecto.getFechasHora()[a++];
+            } else {
+                Object[] punto = atrasadas.get(n++);
+                latitudes[i] = (Double) punto[1];
+                longitudes[i] = (Double) punto[2];
+                fechasHora[i] = (Long) punto[3];
+                ultimaPosicionId = Math.max(ultimaPosicionId, (Long) punto[0]);
+            }
+            todos[i] = i;
+        }
+
+        double km = recorrido.getKmRecorridos()
+                + ObtenerDistancia.longitudRecorrido(latitudes, longitudes, cantidad) - trayecto.longitud();
+        recorrido.setDatos(Trayecto.codificar(latitudes, longitudes, fechasHora, todos));
+        recorrido.setKmRecorridos(km);
+        recorrido.setCantidadPosiciones(recorrido.getCantidadPosiciones() + atrasadas.size());
+        recorrido.setCantidadPuntos(cantidad);
+        recorrido.setUltimaPosicionId(ultimaPosicionId);
+        recorridoCompactadoRepositorio.save(recorrido);
+        pruebaRepositorio.actualizarKmRecorridos(recorrido.getPruebaId(), km);
+
+        int eliminadas = borrarPosiciones(recorrido, atrasadas);
+        log.debug("Prueba {}: {} posiciones atrasadas agregadas ({} borradas), {} km.", recorrido.getPruebaId(),
+                atrasadas.size(), eliminadas, km);
+    }
+
+    // Borra las posiciones ya guardadas en el recorrido, salvo la última del vehículo (es la que se usa como posición
+    // actual) y las que caen en el rango de otra prueba del vehículo sin archivar, que todavía las necesita
+    private int borrarPosiciones(RecorridoCompactado recorrido, List<Object[]> puntos) {
+        List<Object[]> rangos = pruebaRepositorio.findRangosSinArchivarSuperpuestos(recorrido.getPruebaId(),
+                recorrido.getVehiculoId(), recorrido.getFechaHoraInicio(), recorrido.getFechaHoraFin());
+        Long ultimaPosicionId = posicionRepositorio.findUltimaPosicionIdByVehiculoId(recorrido.getVehiculoId());
+
+        List<Long> ids = new ArrayList<>(puntos.size());
+        for (Object[] punto : puntos) {
+            if (!punto[0].equals(ultimaPosicionId) && !enAlgunRango((Long) punto[3], rangos)) {
+                ids.add((Long) punto[0]);
+            }
+        }
+        for (int desde = 0; desde < ids.size(); desde += TAMANIO_BORRADO) {
+            posicionRepositorio.deleteByIds(ids.subList(desde, Math.min(desde + TAMANIO_BORRADO, ids.size())));
+        }
+
+        escritorSQLite.despuesDeConfirmar(() -> posicionesEliminadas.increment(ids.size()));
+        return ids.size();
+    }
+
+    private boolean enAlgunRango(long fechaHora, List<Object[]> rangos) {
+        for (Object[] rango : rangos) {
+            if (fechaHora >= (Long) rango[0] && (rango[1] == null || fechaHora <= (Long) rango[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Los km guardados siguen siendo los del recorrido completo
+    private void simplificar(Long pruebaId) {
+        RecorridoCompactado recorrido = recorridoCompactadoRepositorio.findById(pruebaId).orElseThrow();
+        Trayecto trayecto = Trayecto.decodificar(recorrido.getDatos());
+        int[] conservados = Simplificacion.douglasPeucker(trayecto.getLatitudes(), trayecto.getLongitudes(),
+                trayecto.getCantidad(), toleranciaMetros / 1000);
+
+        recorrido.setDatos(Trayecto.codificar(trayecto.getLatitudes(), trayecto.getLongitudes(), trayecto.getFechasHora(), conservados));
+        recorrido.setCantidadPuntos(conservados.length);
+        recorrido.setToleranciaMetros(toleranciaMetros);
+        recorrido.setCompactadoEn(System.currentTimeMillis());
+        recorridoCompactadoRepositorio.save(recorrido);
+
+        escritorSQLite.despuesDeConfirmar(pruebasSimplificadas::increment);
+        log.debug("Prueba {} simplificada: {} de {} puntos conservados.", recorrido.getPruebaId(), conservados.length, trayecto.getCantidad());
+    }
+}
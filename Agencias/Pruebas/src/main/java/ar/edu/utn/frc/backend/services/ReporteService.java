@@ -1,18 +1,26 @@
 package ar.edu.utn.frc.backend.services;
 
-import ar.edu.utn.frc.backend.distancias.Coordenada;
-import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
 import ar.edu.utn.frc.backend.dto.DTOReporteDetallePruebaVehiculo;
 import ar.edu.utn.frc.backend.dto.DTOReporteIncidente;
 import ar.edu.utn.frc.backend.dto.DTOReporteIncidenteEmpleado;
 import ar.edu.utn.frc.backend.dto.DTOReporteKilometrosRecorridos;
 import ar.edu.utn.frc.backend.entities.*;
+import ar.edu.utn.frc.backend.repositorios.EmpleadoRepositorio;
+import ar.edu.utn.frc.backend.repositorios.IncidenteRepositorio;
 import ar.edu.utn.frc.backend.repositorios.InteresadoRepositorio;
 import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
 import ar.edu.utn.frc.backend.repositorios.PruebaRepositorio;
 import ar.edu.utn.frc.backend.repositorios.VehiculoRepositorio;
+import ar.edu.utn.frc.backend.utils.Fechas;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -23,172 +31,220 @@ import java.util.stream.Collectors;
 public class ReporteService {
     private final PruebaRepositorio pruebaRepositorio;
     private final VehiculoRepositorio vehiculoRepositorio;
-    private final List<DTOReporteIncidente> incidentes = new ArrayList<>();
+    private final IncidenteRepositorio incidenteRepositorio;
+    private final EmpleadoRepositorio empleadoRepositorio;
+    private final PruebasActivasService pruebasActivasService;
+    private final RecorridosService recorridosService;
     private final PosicionRepositorio posicionRepositorio;
-    private final ObtenerDistancia obtenerDistancia;
+    private final OdometroService odometroService;
     private final DTOReporteKilometrosRecorridos dtoReporteKilometrosRecorridos;
     private final InteresadoRepositorio interesadoRepositorio;
-
-    public ReporteService(PruebaRepositorio pruebaRepositorio, VehiculoRepositorio vehiculoRepositorio, PosicionRepositorio posicionRepositorio, PosicionRepositorio posicionRepositorio1, ObtenerDistancia obtenerDistancia, DTOReporteKilometrosRecorridos dtoReporteKilometrosRecorridos, InteresadoRepositorio interesadoRepositorio) {
+    private final EscritorSQLite escritorSQLite;
+    private final JdbcTemplate jdbcTemplate;
+    private static final int TAMANIO_MAXIMO_PAGINA = 500;
+    private static final String INSERT_INCIDENTE = "INSERT INTO Incidentes (ID, FECHA_HORA, PATENTE, LEGAJO_EMPLEADO, "
+            + "NOMBRE_EMPLEADO, APELLIDO_EMPLEADO, NOMBRE_INTERESADO, APELLIDO_INTERESADO, DESCRIPCION) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public ReporteService(PruebaRepositorio pruebaRepositorio, VehiculoRepositorio vehiculoRepositorio, PosicionRepositorio posicionRepositorio, PosicionRepositorio posicionRepositorio1, OdometroService odometroService, DTOReporteKilometrosRecorridos dtoReporteKilometrosRecorridos, InteresadoRepositorio interesadoRepositorio,
+                          IncidenteRepositorio incidenteRepositorio, EmpleadoRepositorio empleadoRepositorio,
+                          PruebasActivasService pruebasActivasService,
+                          RecorridosService recorridosService, EscritorSQLite escritorSQLite, JdbcTemplate jdbcTemplate) {
         this.pruebaRepositorio = pruebaRepositorio;
         this.vehiculoRepositorio = vehiculoRepositorio;
         this.posicionRepositorio = posicionRepositorio1;
-        this.obtenerDistancia = obtenerDistancia;
+        this.odometroService = odometroService;
         this.dtoReporteKilometrosRecorridos = dtoReporteKilometrosRecorridos;
         this.interesadoRepositorio = interesadoRepositorio;
+        this.incidenteRepositorio = incidenteRepositorio;
+        this.empleadoRepositorio = empleadoRepositorio;
+        this.pruebasActivasService = pruebasActivasService;
+        this.recorridosService = recorridosService;
+        this.escritorSQLite = escritorSQLite;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
-    // agregar un incidente a la lista
+    // Registra un incidente en la tabla de incidentes, por el escritor de la base (es seguro llamarlo desde varios
+    // hilos a la vez; dentro de otra escritura se graba en esa misma transacción)
     public void agregarIncidente(DTOReporteIncidente incidente) {
-        incidentes.add(incidente);
-    }
+        LocalDateTime fechaHora = incidente.getFechaHoraIncidente() != null ? incidente.getFechaHoraIncidente() : LocalDateTime.now();
 
-    // obtener todos los incidentes registrados
-    public List<DTOReporteIncidente> obtenerTodosLosIncidentes() {
-        return new ArrayList<>(incidentes);
+        escritorSQLite.escribir(() -> jdbcTemplate.update(INSERT_INCIDENTE, escritorSQLite.reservarIds("incidentes_seq", 1),
+                Fechas.aMilisegundos(fechaHora), incidente.getPatente(), incidente.getLegajoEmpleado(),
+                incidente.getNombreEmpleado(), incidente.getApellidoEmpleado(), incidente.getInteresadoNombre(),
+                incidente.getInteresadoApellido(), incidente.getDescripcionIncidente()));
     }
 
-    public DTOReporteIncidente obtenerDatosParaReporteIncidente(Long idVehiculo) {
-        // Obtener el ID del vehículo por la patente
-        Vehiculo vehiculo = vehiculoRepositorio.findById(idVehiculo)
-                .orElseThrow(() -> new IllegalArgumentException("No se encontró el vehículo con la patente especificada."));
+    // Incidentes registrados, del más reciente al más antiguo, opcionalmente filtrados por patente y rango de fechas
+    @Transactional(readOnly = true)
+    public List<DTOReporteIncidente> obtenerIncidentes(String patente, String fechaHoraDesde, String fechaHoraHasta, int pagina, int tamanio) {
+        long desde = fechaHoraDesde != null ? Fechas.aMilisegundos(fechaHoraDesde) : 0L;
+        long hasta = fechaHoraHasta != null ? Fechas.aMilisegundos(fechaHoraHasta) : Long.MAX_VALUE;
+        Pageable paginacion = crearPagina(pagina, tamanio);
 
+        List<Incidente> incidentes = patente != null
+                ? incidenteRepositorio.findByPatenteAndFechaHoraBetweenOrderByFechaHoraDescIdDesc(patente, desde, hasta, paginacion)
+                : incidenteRepositorio.findByFechaHoraBetweenOrderByFechaHoraDescIdDesc(desde, hasta, paginacion);
 
-        // Obtener todas las pruebas activas y filtrar por el ID del vehículo
-        Prueba prueba = pruebaRepositorio.findAll().stream()
-                .filter(p -> p.getFechaHoraFin() == null && p.getVehiculo() != null && p.getVehiculo().getId().equals(vehiculo.getId()))
-                .findFirst()
+        return incidentes.stream()
+                .map(incidente -> new DTOReporteIncidente(
+                        incidente.getPatente(),
+                        incidente.getNombreInteresado(),
+                        incidente.getApellidoInteresado(),
+                        incidente.getNombreEmpleado(),
+                        incidente.getApellidoEmpleado(),
+                        Fechas.aFecha(incidente.getFechaHora()),
+                        incidente.getDescripcion(),
+                        incidente.getLegajoEmpleado()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    public DTOReporteIncidente obtenerDatosParaReporteIncidente(Long idVehiculo) {
+        // Obtener la prueba activa del vehículo desde el registro en memoria
+        DTOPruebaActiva prueba = pruebasActivasService.obtenerPorVehiculo(idVehiculo)
                 .orElseThrow(() -> new NoSuchElementException("No se encontró una prueba activa para el id::" + idVehiculo));
 
-        if (prueba == null) {
-            throw new NoSuchElementException("No se encontró una prueba activa para la patente proporcionada.");
-        }
+        return obtenerDatosParaReporteIncidente(prueba);
+    }
 
+    // Arma el incidente solo con los datos de la prueba activa, sin consultar la base
+    public DTOReporteIncidente obtenerDatosParaReporteIncidente(DTOPruebaActiva prueba) {
         DTOReporteIncidente reporteIncidente = new DTOReporteIncidente();
-        reporteIncidente.setPatente(vehiculo.getPatente());
-        reporteIncidente.setInteresadoNombre(prueba.getInteresado().getNombre());
-        reporteIncidente.setInteresadoApellido(prueba.getInteresado().getApellido());
-        reporteIncidente.setNombreEmpleado(prueba.getEmpleado().getNombre());
-        reporteIncidente.setApellidoEmpleado(prueba.getEmpleado().getApellido());
+        reporteIncidente.setPatente(prueba.getPatente());
+        reporteIncidente.setInteresadoNombre(prueba.getNombreInteresado());
+        reporteIncidente.setInteresadoApellido(prueba.getApellidoInteresado());
+        reporteIncidente.setNombreEmpleado(prueba.getNombreEmpleado());
+        reporteIncidente.setApellidoEmpleado(prueba.getApellidoEmpleado());
         reporteIncidente.setFechaHoraIncidente(LocalDateTime.now()); // Fecha y hora actuales para el incidente
         reporteIncidente.setDescripcionIncidente("Incidente detectado en la verificación de zona.");
+        reporteIncidente.setLegajoEmpleado(prueba.getLegajoEmpleado());
 
         return reporteIncidente;
     }
 
-    public List<DTOReporteIncidenteEmpleado> obtenerIncidentesPorEmpleado(String nombreEmpleado, String apellidoEmpleado) {
-        // Obtener todos los incidentes
-        List<DTOReporteIncidente> incidentes = obtenerTodosLosIncidentes();
+    @Transactional(readOnly = true)
+    public List<DTOReporteIncidenteEmpleado> obtenerIncidentesPorEmpleado(String nombreEmpleado, String apellidoEmpleado,
+                                                                          String fechaHoraDesde, String fechaHoraHasta,
+                                                                          int pagina, int tamanio) {
+        long desde = fechaHoraDesde != null ? Fechas.aMilisegundos(fechaHoraDesde) : 0L;
+        long hasta = fechaHoraHasta != null ? Fechas.aMilisegundos(fechaHoraHasta) : Long.MAX_VALUE;
+        Pageable paginacion = crearPagina(pagina, tamanio);
+
+        // El nombre se resuelve a legajos en la tabla de empleados y los incidentes se buscan por el índice de legajo
+        List<Long> legajos = empleadoRepositorio.findLegajosByNombreAndApellido(nombreEmpleado, apellidoEmpleado);
+        if (legajos.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        // Filtrar y mapear a DTOReporteIncidenteEmpleado
-        return incidentes.stream()
-                .filter(incidente -> incidente.getNombreEmpleado().equalsIgnoreCase(nombreEmpleado)
-                        && incidente.getApellidoEmpleado().equalsIgnoreCase(apellidoEmpleado))
+        return incidenteRepositorio.findByLegajoEmpleadoInAndFechaHoraBetweenOrderByFechaHoraDescIdDesc(legajos, desde, hasta, paginacion).stream()
                 .map(incidente -> new DTOReporteIncidenteEmpleado(
                         incidente.getPatente(),
                         incidente.getNombreEmpleado(),
                         incidente.getApellidoEmpleado(),
-                        incidente.getInteresadoNombre(),
-                        incidente.getInteresadoApellido(),
-                        incidente.getFechaHoraIncidente(),
-                        incidente.getDescripcionIncidente()
+                        incidente.getNombreInteresado(),
+                        incidente.getApellidoInteresado(),
+                        Fechas.aFecha(incidente.getFechaHora()),
+                        incidente.getDescripcion()
                 ))
                 .collect(Collectors.toList());
     }
 
+    private Pageable crearPagina(int pagina, int tamanio) {
+        if (pagina < 0 || tamanio < 1 || tamanio > TAMANIO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("La página debe ser mayor o igual a 0 y el tamaño entre 1 y " + TAMANIO_MAXIMO_PAGINA + ".");
+        }
+        return PageRequest.of(pagina, tamanio);
+    }
+
+    // Los km salen de lo guardado por el odómetro al finalizar cada prueba; solo las pruebas que quedan
+    // cortadas por el rango (o que no tienen km guardados) se calculan desde sus posiciones.
+    // Los reportes son transacciones de solo lectura: usan el pool de lectura y no esperan al escritor
+    @Transactional(readOnly = true)
     public Double obtenerKmRecorridoDeVehiculo(DTOReporteKilometrosRecorridos dtoReporteKilometrosRecorridos) {
-        // Obtener el vehículo por su patente
-        Vehiculo vehiculo = vehiculoRepositorio.findByPatente(dtoReporteKilometrosRecorridos.getPatente());
+        // Obtener el id del vehículo por su patente
+        Long vehiculoId = vehiculoRepositorio.findIdByPatente(dtoReporteKilometrosRecorridos.getPatente());
 
-        if (vehiculo == null) {
+        if (vehiculoId == null) {
             log.error("Vehículo no encontrado con patente: " + dtoReporteKilometrosRecorridos.getPatente());
             throw new IllegalArgumentException("Vehículo no encontrado con la patente: " + dtoReporteKilometrosRecorridos.getPatente());
         }
 
-        // Obtener las posiciones del vehículo dentro del rango de fechas
-        List<Posicion> posicionesVehiculo = posicionRepositorio.findPosicionsByVehiculoAndFecha(
-                vehiculo,
-                dtoReporteKilometrosRecorridos.getFechaHoraInicio(),
-                dtoReporteKilometrosRecorridos.getFechaHoraFin()
-        );
-
-        if (posicionesVehiculo.isEmpty()) {
-            log.error("No se encontraron posiciones para el vehículo con patente: " + dtoReporteKilometrosRecorridos.getPatente() + " en el rango de fechas.");
-            throw new IllegalArgumentException("No se encontraron posiciones para el vehículo con patente: " + dtoReporteKilometrosRecorridos.getPatente());
+        if (dtoReporteKilometrosRecorridos.getFechaHoraInicio() == null || dtoReporteKilometrosRecorridos.getFechaHoraFin() == null) {
+            throw new IllegalArgumentException("Las fechas de inicio y fin son obligatorias.");
         }
+        long fechaHoraDesde = Fechas.aMilisegundos(dtoReporteKilometrosRecorridos.getFechaHoraInicio());
+        long fechaHoraHasta = Fechas.aMilisegundos(dtoReporteKilometrosRecorridos.getFechaHoraFin());
 
-        // Coordenadas de la agencia (punto de inicio)
-        Coordenada coordenadaAgencia = new Coordenada(42.50886738457441, 1.5347139324337429); // Lat y Lon de la agencia
-
-        Double distanciaTotalKm = 0.0;
-
-        Coordenada coordenadaAnterior = coordenadaAgencia; // La agencia es el primer punto de referencia
-
-        for (Posicion posicionActual : posicionesVehiculo) {
-            // Crear la coordenada actual del vehículo
-            Coordenada coordenadaActual = new Coordenada(posicionActual.getLatitud(), posicionActual.getLongitud());
+        // Obtener las pruebas del vehículo que se superponen con el rango de fechas
+        List<Object[]> pruebasVehiculo = pruebaRepositorio.findKmPruebasByVehiculoIdEnRango(vehiculoId, fechaHoraDesde, fechaHoraHasta);
 
-            // Calcular la distancia entre la coordenada anterior (agencia o punto anterior) y la actual
-            Double distanciaKm = obtenerDistancia.calcularDistancia(coordenadaAnterior, coordenadaActual);
+        if (pruebasVehiculo.isEmpty()) {
+            log.error("No se encontraron pruebas para el vehículo con patente: " + dtoReporteKilometrosRecorridos.getPatente() + " en el rango de fechas.");
+            throw new IllegalArgumentException("No se encontraron pruebas para el vehículo con patente: " + dtoReporteKilometrosRecorridos.getPatente());
+        }
 
-            distanciaTotalKm += distanciaKm;
+        long ahora = System.currentTimeMillis();
+        Double distanciaTotalKm = 0.0;
 
-            coordenadaAnterior = coordenadaActual; // la "coordenadaAnterior" se convierte en la "coordenadaActual"
+        for (Object[] fila : pruebasVehiculo) {
+            long fechaHoraInicio = (Long) fila[1];
+            Long fechaHoraFin = (Long) fila[2];
+            Double kmRecorridos = (Double) fila[3];
+
+            boolean empiezaEnRango = fechaHoraInicio >= fechaHoraDesde;
+
+            // Prueba finalizada dentro del rango: se usan los km guardados
+            if (fechaHoraFin != null && kmRecorridos != null && empiezaEnRango && fechaHoraFin <= fechaHoraHasta) {
+                distanciaTotalKm += kmRecorridos;
+                continue;
+            }
+
+            // Prueba en curso que el rango cubre completa: se usa lo acumulado hasta ahora
+            if (fechaHoraFin == null && empiezaEnRango && fechaHoraHasta >= ahora) {
+                Double kmEnCurso = odometroService.obtenerKmEnCurso(vehiculoId);
+                if (kmEnCurso != null) {
+                    distanciaTotalKm += kmEnCurso;
+                    continue;
+                }
+            }
+
+            // En el resto de los casos se calcula solo la parte de la prueba que cae en el rango,
+            // desde el recorrido archivado si sus posiciones ya se borraron
+            long desde = Math.max(fechaHoraInicio, fechaHoraDesde);
+            long hasta = fechaHoraFin != null ? Math.min(fechaHoraFin, fechaHoraHasta) : fechaHoraHasta;
+            Double kmCompactado = fechaHoraFin != null ? recorridosService.calcularKm((Long) fila[0], desde, hasta) : null;
+            distanciaTotalKm += kmCompactado != null ? kmCompactado : odometroService.calcularKm(vehiculoId, desde, hasta);
         }
 
         return distanciaTotalKm;
     }
 
-    public List<DTOReporteDetallePruebaVehiculo> obtenerDetalleDePruebasPorVehiculo(Long idVehiculo) {
-        // Obtengo las pruebas asociadas al vehículo
-        List<Prueba> pruebas = pruebaRepositorio.findByVehiculoId(idVehiculo);
-        String patente = vehiculoRepositorio.findVehiculoPatenteById(idVehiculo);
+    // Recalcula los km de todas las pruebas desde las posiciones guardadas (para conciliar con el odómetro)
+    public int recalcularKmRecorridos() {
+        return odometroService.recalcularTodo();
+    }
 
-        // Si no hay pruebas, retorno una lista vacía
-        if (pruebas.isEmpty()) {
-            return Collections.emptyList();
-        }
+    // Archiva y simplifica en el momento los recorridos pendientes (además de la ejecución periódica)
+    public int compactarRecorridos() {
+        return recorridosService.compactar();
+    }
 
-        // Mapear las pruebas a DTOs
-        List<DTOReporteDetallePruebaVehiculo> reportePruebas = pruebas.stream()
-                .map(prueba -> {
-                    // Obtengo los datos relacionados con la prueba: Interesado y Empleado
-                    Optional<Interesado> interesado = interesadoRepositorio.findInteresadoByPruebaId(prueba.getId());
-                    Optional<Empleado> empleado = pruebaRepositorio.findEmpleadoByPruebaId(prueba.getId());
-
-                    // Creo el DTO para la prueba
-                    DTOReporteDetallePruebaVehiculo dto = new DTOReporteDetallePruebaVehiculo();
-                    dto.setPruebaId(prueba.getId());
-                    dto.setPatente(patente);
-
-                    // Verifico si el interesado existe, sino asigno un valor por defecto
-                    if (interesado.isPresent()) {
-                        dto.setNombreInteresado(interesado.get().getNombre());
-                        dto.setApellidoInteresado(interesado.get().getApellido());
-                    } else {
-                        dto.setNombreInteresado("Desconocido");
-                        dto.setApellidoInteresado("Desconocido");
-                    }
-
-                    // Verifico si el empleado existe, sino asigno un valor por defecto
-                    if (empleado.isPresent()) {
-                        dto.setNombreEmpleado(empleado.get().getNombre());
-                        dto.setApellidoEmpleado(empleado.get().getApellido());
-                    } else {
-                        dto.setNombreEmpleado("Desconocido");
-                        dto.setApellidoEmpleado("Desconocido");
-                    }
-
-                    // Seteo las fechas y comentarios
-                    dto.setFechaHoraInicio(prueba.getFechaHoraInicio());
-                    dto.setFechaHoraFin(prueba.getFechaHoraFin());
-                    dto.setComentarios(Optional.ofNullable(prueba.getComentarios()).orElse("Sin comentarios"));
-
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    // Recorrido de una prueba en el formato binario de distancias/Trayecto
+    public StreamingResponseBody exportarRecorrido(Long idPrueba) {
+        return recorridosService.exportar(idPrueba);
+    }
 
-        // Retorno el reporte con los detalles de las pruebas
-        return reportePruebas;
+    // Detalle de las pruebas de un vehículo en una sola consulta con los datos del interesado y del empleado.
+    // Se pagina por id de prueba: para la página siguiente se pasa en despuesDe el último pruebaId recibido
+    @Transactional(readOnly = true)
+    public List<DTOReporteDetallePruebaVehiculo> obtenerDetalleDePruebasPorVehiculo(Long idVehiculo, Long despuesDe,
+                                                                                  String fechaHoraDesde, String fechaHoraHasta,
+                                                                                  int tamanio) {
+        return pruebaRepositorio.findDetalleByVehiculoId(
+                idVehiculo,
+                despuesDe != null ? despuesDe : 0L,
+                fechaHoraDesde != null ? Fechas.aMilisegundos(fechaHoraDesde) : 0L,
+                fechaHoraHasta != null ? Fechas.aMilisegundos(fechaHoraHasta) : Long.MAX_VALUE,
+                crearPagina(0, tamanio));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.dto.DTOUltimaPosicion;
+import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
+import ar.edu.utn.frc.backend.repositorios.VehiculoRepositorio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache en memoria de la última posición conocida de cada vehículo, por id y por patente.
+// Se precarga al iniciar y se actualiza cada vez que se guarda una posición, así las consultas
+// de "dónde está el vehículo" no tienen que ordenar el historial de posiciones en la base.
+@Slf4j
+@Service
+@DependsOn("migracionEsquema")
+public class UltimaPosicionService {
+
+    private final PosicionRepositorio posicionRepositorio;
+    private final VehiculoRepositorio vehiculoRepositorio;
+
+    private final Map<Long, DTOUltimaPosicion> porVehiculo = new ConcurrentHashMap<>();
+    private final Map<String, Long> idPorPatente = new ConcurrentHashMap<>();
+    // Vehículos que se buscaron en la base y no tenían posiciones: no se vuelven a buscar hasta que llegue una
+    private final Set<Long> sinPosicion = ConcurrentHashMap.newKeySet();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    @Autowired
+    public UltimaPosicionService(PosicionRepositorio posicionRepositorio,
+                                 VehiculoRepositorio vehiculoRepositorio,
+                                 MeterRegistry meterRegistry) {
+        this.posicionRepositorio = posicionRepositorio;
+        this.vehiculoRepositorio = vehiculoRepositorio;
+        this.aciertos = Counter.builder("posiciones.ultima.cache").tag("resultado", "acierto").register(meterRegistry);
+        this.fallos = Counter.builder("posiciones.ultima.cache").tag("resultado", "fallo").register(meterRegistry);
+        Gauge.builder("posiciones.ultima.cache.vehiculos", porVehiculo, Map::size).register(meterRegistry);
+    }
+
+    // Precarga de todas las patentes y de la última posición de cada vehículo
+    @PostConstruct
+    public void precargar() {
+        for (Object[] fila : vehiculoRepositorio.findIdsYPatentes()) {
+            idPorPatente.put((String) fila[1], (Long) fila[0]);
+        }
+
+        for (DTOUltimaPosicion posicion : posicionRepositorio.findUltimasPosiciones()) {
+            guardarSiEsMasReciente(posicion);
+        }
+        log.info("Cache de últimas posiciones precargada: {} vehículos, {} con posición.", idPorPatente.size(), porVehiculo.size());
+    }
+
+    // Se llama cada vez que se guarda una posición nueva
+    public void actualizar(Long vehiculoId, String patente, Double latitud, Double longitud, Long fechaHora) {
+        if (patente != null) {
+            idPorPatente.put(patente, vehiculoId);
+        }
+        guardarSiEsMasReciente(new DTOUltimaPosicion(vehiculoId, patente, latitud, longitud, fechaHora));
+        sinPosicion.remove(vehiculoId);
+    }
+
+    public Optional<DTOUltimaPosicion> obtenerPorVehiculo(Long vehiculoId) {
+        DTOUltimaPosicion posicion = porVehiculo.get(vehiculoId);
+        if (posicion != null) {
+            aciertos.increment();
+            return Optional.of(posicion);
+        }
+        if (sinPosicion.contains(vehiculoId)) {
+            aciertos.increment();
+            return Optional.empty();
+        }
+
+        // Si no está en memoria se busca en la base y se deja cargada para la próxima (o se recuerda que no tiene).
+        // Si justo llega una posición mientras se consulta, queda en porVehiculo, que se mira antes que sinPosicion
+        fallos.increment();
+        posicion = posicionRepositorio.findUltimaPosicionByVehiculoId(vehiculoId);
+        if (posicion != null) {
+            guardarSiEsMasReciente(posicion);
+        } else {
+            sinPosicion.add(vehiculoId);
+        }
+        return Optional.ofNullable(posicion);
+    }
+
+    // Solo lo que ya está en memoria, sin ir a la base si el vehículo no está
+    public Optional<DTOUltimaPosicion> obtenerEnMemoria(Long vehiculoId) {
+        return Optional.ofNullable(porVehiculo.get(vehiculoId));
+    }
+
+    public Optional<DTOUltimaPosicion> obtenerPorPatente(String patente) {
+        Long vehiculoId = buscarIdPorPatente(patente);
+        return vehiculoId == null ? Optional.empty() : obtenerPorVehiculo(vehiculoId);
+    }
+
+    public Long buscarIdPorPatente(String patente) {
+        Long vehiculoId = idPorPatente.get(patente);
+        if (vehiculoId == null) {
+            vehiculoId = vehiculoRepositorio.findIdByPatente(patente);
+            if (vehiculoId != null) {
+                idPorPatente.put(patente, vehiculoId);
+            }
+        }
+        return vehiculoId;
+    }
+
+    // Las posiciones de un lote pueden traer su propia fecha, por eso solo se reemplaza si la nueva no es más vieja
+    private void guardarSiEsMasReciente(DTOUltimaPosicion nueva) {
+        porVehiculo.merge(nueva.getVehiculoId(), nueva, (anterior, actual) ->
+                anterior.getFechaHora() != null && actual.getFechaHora() != null
+                        && anterior.getFechaHora() > actual.getFechaHora() ? anterior : actual);
+    }
+}
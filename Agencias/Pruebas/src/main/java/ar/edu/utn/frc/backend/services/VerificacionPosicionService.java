@@ -0,0 +1,182 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.distancias.Coordenada;
+import ar.edu.utn.frc.backend.distancias.RadioAdmitido;
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
+import ar.edu.utn.frc.backend.dto.DTOReporteIncidente;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Evalúa una posición contra las zonas restringidas y el radio de la agencia, y ante una infracción
+// restringe al interesado y registra el incidente junto con la notificación a enviar.
+// Cada vehículo tiene un estado en memoria (dentro, en infracción, regresado) y los efectos se producen solo
+// al cambiar de estado: un vehículo detenido en una zona restringida genera un único incidente, y las
+// verificaciones siguientes no escriben nada. Para salir de la infracción el vehículo tiene que volver al menos
+// "histeresis-metros" adentro del área permitida, así no alterna de estado si queda justo sobre el borde.
+@Slf4j
+@Service
+public class VerificacionPosicionService {
+
+    private static final String MENSAJE_INFRACCION = "¡Atención!, Regresar el vehículo de manera inmediata.";
+
+    public enum EstadoGeocerca {
+        DENTRO, EN_INFRACCION, REGRESADO
+    }
+
+    // Estado de un vehículo dentro de una prueba: si el vehículo empieza otra prueba se arranca de nuevo como DENTRO
+    private record Seguimiento(Long pruebaId, EstadoGeocerca estado, long desde) {
+    }
+
+    // Radio de regreso (el admitido menos la histéresis), calculado una vez por configuración
+    private record RadioRegreso(ConfiguracionZonas configuracion, RadioAdmitido radio) {
+    }
+
+    private final PruebaService pruebaService;
+    private final ReporteService reporteService;
+    private final PruebasActivasService pruebasActivasService;
+    private final DespachoNotificacionesService despachoNotificacionesService;
+    private final EscritorSQLite escritorSQLite;
+    private final EventosEnVivoService eventosEnVivoService;
+    private final double histeresisKm;
+
+    private final Map<Long, Seguimiento> estados = new ConcurrentHashMap<>();
+    private volatile RadioRegreso radioRegreso;
+
+    private final Counter infracciones;
+    private final Counter regresos;
+
+    @Autowired
+    public VerificacionPosicionService(PruebaService pruebaService,
+                                       ReporteService reporteService,
+                                       PruebasActivasService pruebasActivasService,
+                                       DespachoNotificacionesService despachoNotificacionesService,
+                                       EscritorSQLite escritorSQLite,
+                                       EventosEnVivoService eventosEnVivoService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${tpintegrador.verificacion.histeresis-metros}") double histeresisMetros) {
+        this.pruebaService = pruebaService;
+        this.reporteService = reporteService;
+        this.pruebasActivasService = pruebasActivasService;
+        this.despachoNotificacionesService = despachoNotificacionesService;
+        this.escritorSQLite = escritorSQLite;
+        this.eventosEnVivoService = eventosEnVivoService;
+        this.histeresisKm = Math.max(0, histeresisMetros) / 1000;
+        this.infracciones = Counter.builder("geocerca.transiciones").tag("hacia", "en_infraccion").register(meterRegistry);
+        this.regresos = Counter.builder("geocerca.transiciones").tag("hacia", "regresado").register(meterRegistry);
+    }
+
+    // Retorna true si el vehículo está en infracción: dentro de una zona restringida o fuera del radio de la agencia
+    // (o, si ya estaba en infracción, todavía sin volver más allá de la histéresis)
+    public boolean verificarPunto(Long vehiculoId, Coordenada punto, ConfiguracionZonas configuracion) {
+        Long pruebaId = pruebasActivasService.obtenerPorVehiculo(vehiculoId).map(DTOPruebaActiva::getPruebaId).orElse(null);
+
+        Seguimiento anterior = estados.get(vehiculoId);
+        boolean mismaPrueba = anterior != null && Objects.equals(anterior.pruebaId(), pruebaId);
+        EstadoGeocerca estadoAnterior = mismaPrueba ? anterior.estado() : EstadoGeocerca.DENTRO;
+        EstadoGeocerca estadoNuevo = evaluar(estadoAnterior, punto, configuracion);
+
+        // Sin cambio de estado no hay nada que hacer (ni escrituras ni notificaciones)
+        if (mismaPrueba && estadoNuevo == estadoAnterior) {
+            return estadoNuevo == EstadoGeocerca.EN_INFRACCION;
+        }
+
+        Seguimiento nuevo = new Seguimiento(pruebaId, estadoNuevo, System.currentTimeMillis());
+        // Si otro hilo verificó el mismo vehículo al mismo tiempo, gana el primero y este no repite los efectos
+        boolean reemplazado = anterior == null ? estados.putIfAbsent(vehiculoId, nuevo) == null : estados.replace(vehiculoId, anterior, nuevo);
+        if (!reemplazado) {
+            return estados.get(vehiculoId).estado() == EstadoGeocerca.EN_INFRACCION;
+        }
+
+        if (estadoNuevo == EstadoGeocerca.EN_INFRACCION && estadoAnterior != EstadoGeocerca.EN_INFRACCION) {
+            try {
+                registrarInfraccion(vehiculoId);
+                infracciones.increment();
+            } catch (RuntimeException e) {
+                // Si no se pudo registrar se vuelve al estado anterior, así la próxima verificación lo reintenta
+                estados.remove(vehiculoId, nuevo);
+                throw e;
+            }
+
+        } else if (estadoNuevo == EstadoGeocerca.REGRESADO) {
+            regresos.increment();
+            log.info("El vehículo con id {} regresó al área permitida.", vehiculoId);
+        }
+
+        if (estadoNuevo != estadoAnterior) {
+            eventosEnVivoService.publicarGeocerca(vehiculoId, estadoNuevo.name());
+        }
+        return estadoNuevo == EstadoGeocerca.EN_INFRACCION;
+    }
+
+    // Estado actual del vehículo en su prueba en curso (DENTRO si todavía no se verificó ninguna posición)
+    public EstadoGeocerca obtenerEstado(Long vehiculoId) {
+        Long pruebaId = pruebasActivasService.obtenerPorVehiculo(vehiculoId).map(DTOPruebaActiva::getPruebaId).orElse(null);
+        Seguimiento seguimiento = estados.get(vehiculoId);
+        return seguimiento != null && Objects.equals(seguimiento.pruebaId(), pruebaId)
+                ? seguimiento.estado() : EstadoGeocerca.DENTRO;
+    }
+
+    private EstadoGeocerca evaluar(EstadoGeocerca anterior, Coordenada punto, ConfiguracionZonas configuracion) {
+        RadioAdmitido radioAdmitido = configuracion.getRadioAdmitido();
+
+        if (anterior != EstadoGeocerca.EN_INFRACCION) {
+            // La zona ya viene indexada en la configuración; sin radio informado el vehículo se considera afuera
+            boolean dentroDeZonaRestringida = configuracion.dentroDeZonaRestringida(punto);
+            boolean dentroDelRadio = radioAdmitido != null && radioAdmitido.contiene(punto.getLatitud(), punto.getLongitud());
+            return dentroDeZonaRestringida || !dentroDelRadio ? EstadoGeocerca.EN_INFRACCION : anterior;
+        }
+
+        // Para salir de la infracción se exige el margen de histéresis respecto de ambos bordes
+        boolean cercaDeZona = configuracion.cercaDeZonaRestringida(punto, histeresisKm);
+        RadioAdmitido radio = obtenerRadioRegreso(configuracion);
+        boolean dentroDelRadio = radio != null && radio.contiene(punto.getLatitud(), punto.getLongitud());
+        return !cercaDeZona && dentroDelRadio ? EstadoGeocerca.REGRESADO : EstadoGeocerca.EN_INFRACCION;
+    }
+
+    private RadioAdmitido obtenerRadioRegreso(ConfiguracionZonas configuracion) {
+        RadioRegreso actual = radioRegreso;
+        if (actual == null || actual.configuracion() != configuracion) {
+            RadioAdmitido radio = configuracion.getRadioAdmitido() != null ? configuracion.getRadioAdmitido().reducido(histeresisKm) : null;
+            actual = new RadioRegreso(configuracion, radio);
+            radioRegreso = actual;
+        }
+        return actual.radio();
+    }
+
+    // Todo lo necesario sale del registro de pruebas en curso: el único acceso a la base es para escribir
+    private void registrarInfraccion(Long vehiculoId) {
+        // Solo hay a quién avisar si el vehículo está en una prueba en curso
+        Optional<DTOPruebaActiva> prueba = pruebasActivasService.obtenerPorVehiculo(vehiculoId);
+        if (prueba.isEmpty()) {
+            log.warn("El vehículo con id {} está fuera de la zona permitida pero no tiene una prueba en curso.", vehiculoId);
+            return;
+        }
+
+        // El interesado, el incidente y la notificación se guardan en una sola escritura: la notificación la envía
+        // después el despacho en segundo plano
+        DTOReporteIncidente incidente = reporteService.obtenerDatosParaReporteIncidente(prueba.get());
+        Long legajo = prueba.get().getLegajoEmpleado();
+        if (legajo == null) {
+            log.warn("La prueba {} no tiene empleado asignado: no se notifica la infracción.", prueba.get().getPruebaId());
+        }
+        escritorSQLite.escribir(() -> {
+            pruebaService.actualizarEstadoInteresado(prueba.get());
+            reporteService.agregarIncidente(incidente);
+            if (legajo != null) {
+                despachoNotificacionesService.encolar(MENSAJE_INFRACCION, legajo);
+            }
+        });
+        log.info("Infracción registrada para el vehículo con id {} en la prueba {}.", vehiculoId, prueba.get().getPruebaId());
+    }
+}
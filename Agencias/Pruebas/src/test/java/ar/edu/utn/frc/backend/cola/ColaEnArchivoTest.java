@@ -0,0 +1,228 @@
+package ar.edu.utn.frc.backend.cola;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ColaEnArchivo está en Comun, que no tiene pom propio: sus pruebas viven en Pruebas, que compila ese código.
+// La escritura y la lectura se hacen con instancias distintas, como en Pruebas y Notificaciones. Cada escritor se
+// cierra antes de abrir el siguiente, porque mientras está abierto tiene tomado el bloqueo del directorio
+class ColaEnArchivoTest {
+
+    private static final int SEGMENTO = 64;
+
+    @TempDir
+    Path directorio;
+
+    private static byte[] texto(String valor) {
+        return valor.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] relleno(int largo, char caracter) {
+        return texto(String.valueOf(caracter).repeat(largo));
+    }
+
+    private static List<String> textos(List<ColaEnArchivo.Registro> registros) {
+        List<String> resultado = new ArrayList<>();
+        for (ColaEnArchivo.Registro registro : registros) {
+            resultado.add(new String(registro.datos(), StandardCharsets.UTF_8));
+        }
+        return resultado;
+    }
+
+    private ColaEnArchivo cola() {
+        return new ColaEnArchivo(directorio, SEGMENTO);
+    }
+
+    // Abre un escritor, agrega y lo cierra (suelta el bloqueo)
+    private long agregar(List<byte[]> registros) throws IOException {
+        try (ColaEnArchivo escritor = cola()) {
+            return escritor.agregar(registros);
+        }
+    }
+
+    private void escribirEnSegmento(long indice, int posicion, ByteBuffer bytes) throws IOException {
+        try (FileChannel canal = FileChannel.open(directorio.resolve(String.format("cola-%010d.dat", indice)), StandardOpenOption.WRITE)) {
+            canal.write(bytes, posicion);
+        }
+    }
+
+    @Test
+    void seLeenLosRegistrosEnElOrdenEnQueSeAgregaron() throws IOException {
+        long fin = agregar(List.of(texto("uno"), texto("dos"), texto("tres")));
+
+        List<ColaEnArchivo.Registro> registros = cola().leer(0, 10);
+
+        assertEquals(List.of("uno", "dos", "tres"), textos(registros));
+        assertEquals(0, registros.get(0).posicion());
+        assertEquals(registros.get(0).siguiente(), registros.get(1).posicion());
+        assertEquals(fin, registros.get(2).siguiente());
+    }
+
+    @Test
+    void leeDeAMaximoRegistrosYSigueDesdeLaPosicionSiguiente() throws IOException {
+        agregar(List.of(texto("a"), texto("b"), texto("c")));
+        ColaEnArchivo lector = cola();
+
+        List<ColaEnArchivo.Registro> primeros = lector.leer(0, 2);
+        List<ColaEnArchivo.Registro> resto = lector.leer(primeros.get(1).siguiente(), 2);
+
+        assertEquals(List.of("a", "b"), textos(primeros));
+        assertEquals(List.of("c"), textos(resto));
+        assertTrue(lector.leer(resto.get(0).siguiente(), 2).isEmpty());
+    }
+
+    @Test
+    void elLectorVeLoQueSeAgregaDespues() throws IOException {
+        try (ColaEnArchivo escritor = cola()) {
+            ColaEnArchivo lector = cola();
+
+            assertTrue(lector.leer(0, 10).isEmpty());
+            long siguiente = escritor.agregar(List.of(texto("primero")));
+            assertEquals(List.of("primero"), textos(lector.leer(0, 10)));
+
+            escritor.agregar(List.of(texto("segundo")));
+            assertEquals(List.of("segundo"), textos(lector.leer(siguiente, 10)));
+        }
+    }
+
+    @Test
+    void rechazaRegistrosVaciosOQueNoEntranEnUnSegmento() throws IOException {
+        try (ColaEnArchivo escritor = cola()) {
+            assertThrows(IllegalArgumentException.class, () -> escritor.agregar(List.of(new byte[0])));
+            assertThrows(IllegalArgumentException.class, () -> escritor.agregar(List.of(new byte[SEGMENTO - 8])));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ColaEnArchivo(directorio, 8));
+    }
+
+    // 20 + 8 bytes por registro: entran dos por segmento de 64 y el tercero pasa al siguiente
+    @Test
+    void alLlenarseUnSegmentoSigueEnElProximo() throws IOException {
+        List<byte[]> registros = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            registros.add(relleno(20, (char) ('a' + i)));
+        }
+        agregar(registros);
+
+        List<ColaEnArchivo.Registro> leidos = cola().leer(0, 100);
+
+        assertEquals(7, leidos.size());
+        for (int i = 0; i < 7; i++) {
+            assertArrayEquals(registros.get(i), leidos.get(i).datos());
+            assertEquals(i / 2, leidos.get(i).posicion() / SEGMENTO);
+        }
+        assertTrue(Files.exists(directorio.resolve("cola-0000000003.dat")));
+    }
+
+    // Un registro que terminaría justo en el final del segmento pasa al siguiente, igual que uno que deja menos
+    // lugar que un largo (sin marca de fin de segmento)
+    @Test
+    void bordesDelSegmento() throws IOException {
+        try (ColaEnArchivo escritor = cola()) {
+            escritor.agregar(List.of(relleno(20, 'a'), relleno(28, 'b')));
+            escritor.agregar(List.of(relleno(53, 'c'), relleno(5, 'd')));
+        }
+
+        List<ColaEnArchivo.Registro> leidos = cola().leer(0, 10);
+
+        assertEquals(List.of(0L, 64L, 128L, 192L), leidos.stream().map(ColaEnArchivo.Registro::posicion).toList());
+        assertEquals("ddddd", textos(leidos).get(3));
+    }
+
+    @Test
+    void borraLosSegmentosYaLeidos() throws IOException {
+        List<byte[]> registros = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            registros.add(relleno(20, 'x'));
+        }
+        agregar(registros);
+        ColaEnArchivo lector = cola();
+        List<ColaEnArchivo.Registro> leidos = lector.leer(0, 5);
+        long siguiente = leidos.get(4).siguiente();
+
+        lector.borrarAnteriores(siguiente);
+
+        assertEquals(2L * SEGMENTO, lector.primeraPosicion());
+        assertFalse(lector.existeSegmento(0));
+        assertTrue(lector.existeSegmento(siguiente));
+        assertEquals(1, lector.leer(siguiente, 10).size());
+    }
+
+    @Test
+    void unaColaVaciaNoTienePrimeraPosicion() throws IOException {
+        assertEquals(-1, cola().primeraPosicion());
+        assertFalse(cola().existeSegmento(0));
+    }
+
+    // Un registro cortado por una caída (con el largo escrito pero datos que no coinciden con el crc) no se lee,
+    // y al volver a abrir para escribir se pisa
+    @Test
+    void unRegistroCortadoNoSeLeeYSeReemplazaAlReabrir() throws IOException {
+        long siguiente = agregar(List.of(texto("uno"), texto("dos")));
+        escribirEnSegmento(0, (int) siguiente, ByteBuffer.allocate(12).putInt(4).putInt(12345).put(texto("xxxx")).flip());
+
+        assertEquals(List.of("uno", "dos"), textos(cola().leer(0, 10)));
+
+        assertEquals(siguiente + 8 + 4, agregar(List.of(texto("tres"))));
+        assertEquals(List.of("uno", "dos", "tres"), textos(cola().leer(0, 10)));
+    }
+
+    // Un largo que se pasa del segmento (basura después del último registro) tampoco se lee
+    @Test
+    void unLargoInvalidoNoSeLeeYSeReemplazaAlReabrir() throws IOException {
+        long siguiente = agregar(List.of(texto("uno")));
+        escribirEnSegmento(0, (int) siguiente, ByteBuffer.allocate(4).putInt(1000).flip());
+
+        assertEquals(List.of("uno"), textos(cola().leer(0, 10)));
+
+        agregar(List.of(texto("dos")));
+        assertEquals(List.of("uno", "dos"), textos(cola().leer(0, 10)));
+    }
+
+    // Al reabrir después de pasar a otro segmento se sigue en el último, sin volver a escribir sobre los anteriores
+    @Test
+    void alReabrirSigueDespuesDelUltimoRegistroDelUltimoSegmento() throws IOException {
+        agregar(List.of(relleno(20, 'a'), relleno(20, 'b'), relleno(20, 'c')));
+
+        long siguiente = agregar(List.of(relleno(20, 'd')));
+
+        assertEquals(SEGMENTO + 56, siguiente);
+        assertEquals(List.of("a", "b", "c", "d"), textos(cola().leer(0, 10)).stream().map(t -> t.substring(0, 1)).toList());
+    }
+
+    // Un segundo escritor sobre el mismo directorio no puede abrir mientras el primero está abierto; los lectores sí
+    @Test
+    void soloUnEscritorPorDirectorio() throws IOException {
+        try (ColaEnArchivo escritor = cola(); ColaEnArchivo otro = cola()) {
+            escritor.agregar(List.of(texto("uno")));
+
+            assertThrows(IOException.class, () -> otro.agregar(List.of(texto("dos"))));
+            assertEquals(List.of("uno"), textos(cola().leer(0, 10)));
+        }
+
+        agregar(List.of(texto("dos")));
+        assertEquals(List.of("uno", "dos"), textos(cola().leer(0, 10)));
+    }
+
+    // El bloqueo es sobre cola.lock: si otro lo tiene tomado (por ejemplo otro proceso) no se puede abrir para escribir
+    @Test
+    void elBloqueoDeOtroProcesoImpideEscribir() throws IOException {
+        try (FileChannel canal = FileChannel.open(directorio.resolve("cola.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignorado = canal.lock();
+             ColaEnArchivo escritor = cola()) {
+            assertThrows(IOException.class, () -> escritor.agregar(List.of(texto("uno"))));
+        }
+    }
+}
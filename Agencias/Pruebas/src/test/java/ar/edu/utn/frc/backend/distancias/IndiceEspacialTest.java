@@ -0,0 +1,112 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceEspacialTest {
+
+    private static Area area(double latNorte, double lonOeste, double latSur, double lonEste) {
+        return new Area(new Coordenada(latNorte, lonOeste), new Coordenada(latSur, lonEste));
+    }
+
+    // Lo que tiene que responder el índice: la primera área en orden de carga que contiene el punto
+    private static Area buscarLineal(List<Area> areas, double latitud, double longitud) {
+        Coordenada punto = new Coordenada(latitud, longitud);
+        for (Area area : areas) {
+            if (area.contiene(punto)) {
+                return area;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void sinAreasNoEncuentraNada() {
+        IndiceEspacial indice = new IndiceEspacial(List.of());
+
+        assertEquals(0, indice.cantidadAreas());
+        assertNull(indice.buscar(42.5, 1.5));
+        assertNull(indice.buscar(42.5, 1.5, 1, 1));
+    }
+
+    @Test
+    void losBordesDelAreaEstanAdentro() {
+        Area area = area(42.6, 1.4, 42.5, 1.6);
+        IndiceEspacial indice = new IndiceEspacial(List.of(area));
+
+        assertSame(area, indice.buscar(42.6, 1.4));
+        assertSame(area, indice.buscar(42.5, 1.6));
+        assertSame(area, indice.buscar(42.55, 1.5));
+        assertNull(indice.buscar(42.6 + 1e-9, 1.5));
+        assertNull(indice.buscar(42.55, 1.4 - 1e-9));
+    }
+
+    @Test
+    void conAreasSuperpuestasDevuelveLaPrimeraCargada() {
+        Area grande = area(43, 1, 42, 2);
+        Area chica = area(42.6, 1.4, 42.5, 1.6);
+
+        assertSame(grande, new IndiceEspacial(List.of(grande, chica)).buscar(42.55, 1.5));
+        assertSame(chica, new IndiceEspacial(List.of(chica, grande)).buscar(42.55, 1.5));
+    }
+
+    // Con las esquinas invertidas el área no contiene ningún punto (Area.contiene decide, no la caja del índice)
+    @Test
+    void unAreaConLasEsquinasInvertidasNoContieneNada() {
+        Area invertida = area(42.5, 1.6, 42.6, 1.4);
+
+        assertNull(new IndiceEspacial(List.of(invertida)).buscar(42.55, 1.5));
+    }
+
+    // Tampoco con margen: la caja del índice la cubre, pero un área que no contiene nada no tiene puntos cerca
+    @Test
+    void unAreaConLasEsquinasInvertidasNoSeEncuentraConMargen() {
+        Area invertida = area(42.5, 1.6, 42.6, 1.4);
+        Area soloLatitudInvertida = area(42.5, 1.4, 42.6, 1.6);
+
+        assertNull(new IndiceEspacial(List.of(invertida)).buscar(42.55, 1.5, 0.1, 0.1));
+        assertNull(new IndiceEspacial(List.of(soloLatitudInvertida)).buscar(42.65, 1.5, 0.1, 0.1));
+    }
+
+    @Test
+    void conMargenEncuentraLasAreasCercanas() {
+        Area area = area(42.6, 1.4, 42.5, 1.6);
+        IndiceEspacial indice = new IndiceEspacial(List.of(area));
+
+        assertNull(indice.buscar(42.65, 1.5));
+        assertSame(area, indice.buscar(42.65, 1.5, 0.1, 0));
+        assertSame(area, indice.buscar(42.55, 1.35, 0, 0.1));
+        assertNull(indice.buscar(42.55, 1.35, 0.1, 0.01));
+    }
+
+    // Varios niveles del árbol (más de CAPACIDAD_NODO² áreas): mismo resultado que la búsqueda lineal
+    @Test
+    void coincideConLaBusquedaLinealEnMuchasAreas() {
+        Random azar = new Random(7);
+        List<Area> areas = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            double lat = 40 + azar.nextDouble() * 5;
+            double lon = azar.nextDouble() * 5;
+            areas.add(area(lat + azar.nextDouble() * 0.2, lon, lat, lon + azar.nextDouble() * 0.2));
+        }
+        IndiceEspacial indice = new IndiceEspacial(areas);
+
+        assertEquals(areas.size(), indice.cantidadAreas());
+        int aciertos = 0;
+        for (int i = 0; i < 20000; i++) {
+            double latitud = 39.9 + azar.nextDouble() * 5.4;
+            double longitud = -0.1 + azar.nextDouble() * 5.4;
+            Area esperada = buscarLineal(areas, latitud, longitud);
+            assertSame(esperada, indice.buscar(latitud, longitud), "punto " + latitud + ", " + longitud);
+            if (esperada != null) {
+                aciertos++;
+            }
+        }
+        assertTrue(aciertos > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimplificacionTest {
+
+    private static final double KM_POR_GRADO = 6371.0 * Math.PI / 180;
+
+    @Test
+    void conDosPuntosOMenosLosConservaTodos() {
+        assertArrayEquals(new int[0], Simplificacion.douglasPeucker(new double[0], new double[0], 0, 0.01));
+        assertArrayEquals(new int[]{0}, Simplificacion.douglasPeucker(new double[]{42.5}, new double[]{1.5}, 1, 0.01));
+        assertArrayEquals(new int[]{0, 1},
+                Simplificacion.douglasPeucker(new double[]{42.5, 42.6}, new double[]{1.5, 1.5}, 2, 0.01));
+    }
+
+    @Test
+    void enUnaRectaQuedanSoloLosExtremos() {
+        double[] latitudes = new double[100];
+        double[] longitudes = new double[100];
+        for (int i = 0; i < 100; i++) {
+            latitudes[i] = 42.5 + i * 1e-4;
+            longitudes[i] = 1.5;
+        }
+
+        assertArrayEquals(new int[]{0, 99}, Simplificacion.douglasPeucker(latitudes, longitudes, 100, 0.001));
+    }
+
+    // Un desvío de 11 m: se conserva con tolerancia de 10 m y se descarta con tolerancia de 12 m
+    @Test
+    void unDesvioSeConservaSoloSiSuperaLaTolerancia() {
+        double desvio = 0.011 / KM_POR_GRADO;
+        double[] latitudes = {42.5, 42.5, 42.5 + desvio, 42.5, 42.5};
+        double[] longitudes = {1.50, 1.501, 1.502, 1.503, 1.504};
+
+        assertArrayEquals(new int[]{0, 2, 4}, Simplificacion.douglasPeucker(latitudes, longitudes, 5, 0.010));
+        assertArrayEquals(new int[]{0, 4}, Simplificacion.douglasPeucker(latitudes, longitudes, 5, 0.012));
+    }
+
+    // Un punto que vuelve sobre el anterior se mide contra el segmento, no contra la recta que lo contiene
+    @Test
+    void unRegresoMasAllaDelExtremoSeConserva() {
+        double[] latitudes = {42.5, 42.505, 42.51};
+        double[] longitudes = {1.5, 1.5, 1.5};
+        double[] conVuelta = {42.5, 42.52, 42.51};
+
+        assertArrayEquals(new int[]{0, 2}, Simplificacion.douglasPeucker(latitudes, longitudes, 3, 0.01));
+        assertArrayEquals(new int[]{0, 1, 2}, Simplificacion.douglasPeucker(conVuelta, longitudes, 3, 0.01));
+    }
+
+    @Test
+    void soloConsideraLosPrimerosCantidadPuntos() {
+        double[] latitudes = {42.5, 42.6, 42.7, 50};
+        double[] longitudes = {1.5, 1.5, 1.5, 20};
+
+        assertArrayEquals(new int[]{0, 2}, Simplificacion.douglasPeucker(latitudes, longitudes, 3, 0.01));
+    }
+
+    // Cada punto descartado queda a menos de la tolerancia del tramo conservado que lo cubre
+    @Test
+    void losPuntosDescartadosQuedanDentroDeLaTolerancia() {
+        int cantidad = 200_000;
+        double tolerancia = 0.005;
+        Random azar = new Random(11);
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        latitudes[0] = 42.5;
+        longitudes[0] = 1.5;
+        for (int i = 1; i < cantidad; i++) {
+            latitudes[i] = latitudes[i - 1] + (azar.nextDouble() - 0.45) * 5e-5;
+            longitudes[i] = longitudes[i - 1] + (azar.nextDouble() - 0.45) * 5e-5;
+        }
+
+        int[] conservados = Simplificacion.douglasPeucker(latitudes, longitudes, cantidad, tolerancia);
+
+        assertEquals(0, conservados[0]);
+        assertEquals(cantidad - 1, conservados[conservados.length - 1]);
+        assertTrue(conservados.length < cantidad);
+        for (int k = 1; k < conservados.length; k++) {
+            int desde = conservados[k - 1];
+            int hasta = conservados[k];
+            assertTrue(desde < hasta);
+            for (int i = desde + 1; i < hasta; i++) {
+                double distancia = distanciaASegmento(latitudes[i], longitudes[i],
+                        latitudes[desde], longitudes[desde], latitudes[hasta], longitudes[hasta]);
+                assertTrue(distancia <= tolerancia * 1.01, "punto " + i + " a " + distancia + " km");
+            }
+        }
+    }
+
+    // Distancia de un punto a un segmento corto, en km, sobre un plano tangente en el punto
+    private static double distanciaASegmento(double lat, double lon, double latA, double lonA, double latB, double lonB) {
+        double coseno = Math.cos(Math.toRadians(lat));
+        double ax = (lonA - lon) * coseno * KM_POR_GRADO;
+        double ay = (latA - lat) * KM_POR_GRADO;
+        double bx = (lonB - lon) * coseno * KM_POR_GRADO;
+        double by = (latB - lat) * KM_POR_GRADO;
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largoCuadrado = dx * dx + dy * dy;
+        double t = largoCuadrado == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / largoCuadrado));
+        return Math.hypot(ax + t * dx, ay + t * dy);
+    }
+}
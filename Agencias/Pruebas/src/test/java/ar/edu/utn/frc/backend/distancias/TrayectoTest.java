@@ -0,0 +1,167 @@
+package ar.edu.utn.frc.backend.distancias;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrayectoTest {
+
+    private static final double PRECISION = 1e-7;
+
+    // Recorrido de una prueba: un punto por segundo, moviéndose unos metros por vez
+    private static double[][] recorrido(int cantidad, long semilla) {
+        Random azar = new Random(semilla);
+        double[] latitudes = new double[cantidad];
+        double[] longitudes = new double[cantidad];
+        double[] fechasHora = new double[cantidad];
+        double lat = 42.50886738457441;
+        double lon = 1.5347139324337429;
+        long fechaHora = 1_700_000_000_000L;
+        for (int i = 0; i < cantidad; i++) {
+            lat += (azar.nextDouble() - 0.5) * 1e-4;
+            lon += (azar.nextDouble() - 0.5) * 1e-4;
+            fechaHora += 900 + azar.nextInt(200);
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+            fechasHora[i] = fechaHora;
+        }
+        return new double[][]{latitudes, longitudes, fechasHora};
+    }
+
+    private static long[] comoLong(double[] valores) {
+        long[] resultado = new long[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            resultado[i] = (long) valores[i];
+        }
+        return resultado;
+    }
+
+    private static int[] todos(int cantidad) {
+        int[] indices = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    @Test
+    void idaYVueltaConservaLosPuntosConPrecisionDeUnCentimetro() {
+        double[][] r = recorrido(1000, 1);
+        long[] fechasHora = comoLong(r[2]);
+
+        byte[] datos = Trayecto.codificar(r[0], r[1], fechasHora, todos(1000));
+        Trayecto trayecto = Trayecto.decodificar(datos);
+
+        assertEquals(1000, trayecto.getCantidad());
+        assertArrayEquals(fechasHora, trayecto.getFechasHora());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(r[0][i], trayecto.getLatitudes()[i], PRECISION);
+            assertEquals(r[1][i], trayecto.getLongitudes()[i], PRECISION);
+        }
+        // Pasos de segundos y metros: menos de 8 bytes por punto
+        assertTrue(datos.length < 4 + 1000 * 8, "bytes: " + datos.length);
+    }
+
+    @Test
+    void codificaSoloLosIndicesIndicados() {
+        double[][] r = recorrido(10, 2);
+        long[] fechasHora = comoLong(r[2]);
+
+        Trayecto trayecto = Trayecto.decodificar(Trayecto.codificar(r[0], r[1], fechasHora, new int[]{0, 4, 9}));
+
+        assertArrayEquals(new long[]{fechasHora[0], fechasHora[4], fechasHora[9]}, trayecto.getFechasHora());
+        assertEquals(r[0][4], trayecto.getLatitudes()[1], PRECISION);
+    }
+
+    @Test
+    void elEscritorProduceLosMismosBytesQueCodificar() {
+        double[][] r = recorrido(300, 3);
+        long[] fechasHora = comoLong(r[2]);
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        Trayecto.Escritor escritor = new Trayecto.Escritor(salida);
+        for (int i = 0; i < 300; i++) {
+            escritor.agregar(r[0][i], r[1][i], fechasHora[i]);
+        }
+
+        assertEquals(300, escritor.getCantidad());
+        assertArrayEquals(Trayecto.codificar(r[0], r[1], fechasHora, todos(300)), salida.toByteArray());
+    }
+
+    @Test
+    void unRecorridoVacioEsSoloLaCabecera() {
+        byte[] datos = Trayecto.codificar(new double[0], new double[0], new long[0], new int[0]);
+
+        assertEquals(4, datos.length);
+        assertEquals(0, Trayecto.decodificar(datos).getCantidad());
+        assertEquals(0, Trayecto.decodificar(datos).longitud());
+    }
+
+    // Saltos de punta a punta del mapa y fechas en los extremos: diferencias negativas y varints de 10 bytes
+    @Test
+    void valoresExtremosIdaYVuelta() {
+        double[] latitudes = {-90, 90, 0, -89.9999999};
+        double[] longitudes = {180, -180, 179.9999999, -0.0000001};
+        long[] fechasHora = {0, Long.MAX_VALUE, Long.MIN_VALUE, -1};
+
+        Trayecto trayecto = Trayecto.decodificar(Trayecto.codificar(latitudes, longitudes, fechasHora, todos(4)));
+
+        assertArrayEquals(fechasHora, trayecto.getFechasHora());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(latitudes[i], trayecto.getLatitudes()[i], PRECISION);
+            assertEquals(longitudes[i], trayecto.getLongitudes()[i], PRECISION);
+        }
+    }
+
+    @Test
+    void rechazaDatosSinCabecera() {
+        assertThrows(IllegalArgumentException.class, () -> Trayecto.decodificar(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> Trayecto.decodificar(new byte[]{'T', 'R', 'K'}));
+        assertThrows(IllegalArgumentException.class, () -> Trayecto.decodificar(new byte[]{'T', 'R', 'K', 2, 0, 0, 0}));
+        // Una polilínea de texto de las versiones anteriores
+        assertThrows(IllegalArgumentException.class, () -> Trayecto.decodificar("_p~iF~ps|U".getBytes()));
+    }
+
+    // Cortado en cualquier byte: o se detecta el corte, o (si cae justo entre dos puntos) quedan los primeros puntos
+    @Test
+    void unRecorridoTruncadoFallaODevuelveLosPrimerosPuntos() {
+        double[][] r = recorrido(50, 4);
+        long[] fechasHora = comoLong(r[2]);
+        byte[] datos = Trayecto.codificar(r[0], r[1], fechasHora, todos(50));
+
+        int detectados = 0;
+        for (int largo = 4; largo < datos.length; largo++) {
+            byte[] cortado = Arrays.copyOf(datos, largo);
+            Trayecto trayecto;
+            try {
+                trayecto = Trayecto.decodificar(cortado);
+            } catch (IllegalArgumentException e) {
+                detectados++;
+                continue;
+            }
+
+            int cantidad = trayecto.getCantidad();
+            assertTrue(cantidad < 50);
+            assertArrayEquals(Arrays.copyOf(fechasHora, cantidad), trayecto.getFechasHora());
+        }
+        assertTrue(detectados > 0);
+    }
+
+    @Test
+    void longitudEntreCuentaLosTramosCortadosEnProporcion() {
+        double[] latitudes = {42.5, 42.51, 42.52};
+        double[] longitudes = {1.5, 1.5, 1.5};
+        long[] fechasHora = {1000, 2000, 3000};
+        Trayecto trayecto = Trayecto.decodificar(Trayecto.codificar(latitudes, longitudes, fechasHora, todos(3)));
+        double tramo = ObtenerDistancia.distanciaKm(42.5, 1.5, 42.51, 1.5);
+
+        assertEquals(trayecto.longitud(), trayecto.longitudEntre(Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+        assertEquals(tramo, trayecto.longitudEntre(1000, 2000), 1e-6);
+        assertEquals(tramo, trayecto.longitudEntre(1500, 2500), 1e-6);
+        assertEquals(0, trayecto.longitudEntre(4000, 5000));
+    }
+}
@@ -0,0 +1,90 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.distancias.ObtenerDistancia;
+import ar.edu.utn.frc.backend.entities.Prueba;
+import ar.edu.utn.frc.backend.entities.Vehiculo;
+import ar.edu.utn.frc.backend.repositorios.PosicionRepositorio;
+import ar.edu.utn.frc.backend.repositorios.PruebaRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Reconstrucción del odómetro de una prueba en curso a partir de sus posiciones guardadas
+class OdometroServiceTest {
+
+    private static final long VEHICULO = 7L;
+    private static final long PRUEBA = 3L;
+
+    private PosicionRepositorio posicionRepositorio;
+    private OdometroService odometro;
+
+    @BeforeEach
+    void preparar() {
+        posicionRepositorio = mock(PosicionRepositorio.class);
+        PruebaRepositorio pruebaRepositorio = mock(PruebaRepositorio.class);
+
+        Vehiculo vehiculo = new Vehiculo();
+        vehiculo.setId(VEHICULO);
+        Prueba prueba = new Prueba();
+        prueba.setId(PRUEBA);
+        prueba.setFechaHoraInicio(1000L);
+        prueba.setVehiculo(vehiculo);
+        when(pruebaRepositorio.findByFechaHoraFinIsNull()).thenReturn(List.of(prueba));
+
+        odometro = new OdometroService(posicionRepositorio, pruebaRepositorio, mock(EscritorSQLite.class));
+    }
+
+    private static List<Object[]> coordenadas(Object[]... filas) {
+        return new ArrayList<>(List.of(filas));
+    }
+
+    @Test
+    void sumaLosTramosDeLasPosicionesGuardadas() {
+        when(posicionRepositorio.findCoordenadasByVehiculoIdAndFecha(eq(VEHICULO), eq(1000L), anyLong()))
+                .thenReturn(coordenadas(new Object[]{42.50, 1.5, 1000L}, new Object[]{42.51, 1.5, 2000L}));
+
+        odometro.precargar();
+
+        assertEquals(ObtenerDistancia.distanciaKm(42.50, 1.5, 42.51, 1.5), odometro.obtenerKmEnCurso(VEHICULO), 1e-9);
+    }
+
+    // Una posición que se registra mientras se leen las guardadas se suma después de la lectura (sin esperar a que
+    // termine la consulta), y una que ya estaba en la lectura no se suma dos veces
+    @Test
+    void lasPosicionesRegistradasDuranteLaLecturaSeSumanUnaSolaVez() {
+        when(posicionRepositorio.findCoordenadasByVehiculoIdAndFecha(eq(VEHICULO), eq(1000L), anyLong())).thenAnswer(invocacion -> {
+            odometro.registrarPosicion(VEHICULO, 42.51, 1.5, 2000L);
+            odometro.registrarPosicion(VEHICULO, 42.52, 1.5, 3000L);
+            return coordenadas(new Object[]{42.50, 1.5, 1000L}, new Object[]{42.51, 1.5, 2000L});
+        });
+
+        odometro.precargar();
+
+        assertEquals(ObtenerDistancia.distanciaKm(42.50, 1.5, 42.51, 1.5) + ObtenerDistancia.distanciaKm(42.51, 1.5, 42.52, 1.5),
+                odometro.obtenerKmEnCurso(VEHICULO), 1e-9);
+
+        // Terminada la reconstrucción las posiciones se suman como siempre
+        odometro.registrarPosicion(VEHICULO, 42.53, 1.5, 4000L);
+        assertEquals(ObtenerDistancia.distanciaKm(42.50, 1.5, 42.53, 1.5), odometro.obtenerKmEnCurso(VEHICULO), 1e-6);
+    }
+
+    @Test
+    void siLaLecturaFallaElOdometroSigueSumando() {
+        when(posicionRepositorio.findCoordenadasByVehiculoIdAndFecha(eq(VEHICULO), eq(1000L), anyLong()))
+                .thenThrow(new IllegalStateException("base ocupada"));
+        odometro.iniciarPrueba(VEHICULO, PRUEBA);
+        odometro.registrarPosicion(VEHICULO, 42.50, 1.5, 1000L);
+
+        assertThrows(IllegalStateException.class, () -> odometro.precargar());
+        odometro.registrarPosicion(VEHICULO, 42.51, 1.5, 2000L);
+
+        assertEquals(ObtenerDistancia.distanciaKm(42.50, 1.5, 42.51, 1.5), odometro.obtenerKmEnCurso(VEHICULO), 1e-9);
+    }
+}
@@ -0,0 +1,158 @@
+package ar.edu.utn.frc.backend.services;
+
+import ar.edu.utn.frc.backend.config.EscritorSQLite;
+import ar.edu.utn.frc.backend.distancias.ConfiguracionZonas;
+import ar.edu.utn.frc.backend.distancias.Coordenada;
+import ar.edu.utn.frc.backend.dto.DTOPruebaActiva;
+import ar.edu.utn.frc.backend.dto.DTOReporteIncidente;
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOCoordenada;
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOPosicionAPI;
+import ar.edu.utn.frc.backend.dtosApiExterna.DTOZonaRestringida;
+import ar.edu.utn.frc.backend.services.VerificacionPosicionService.EstadoGeocerca;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Máquina de estados de la geocerca: agencia en (42.5, 1.5) con 5 km de radio, una zona restringida al norte
+// (42.51..42.52, 1.50..1.51) y 50 m de histéresis
+class VerificacionPosicionServiceTest {
+
+    private static final long VEHICULO = 7L;
+    private static final double KM_POR_GRADO = 6371.0 * Math.PI / 180;
+
+    private ReporteService reporteService;
+    private PruebasActivasService pruebasActivasService;
+    private DespachoNotificacionesService despachoNotificacionesService;
+    private EscritorSQLite escritorSQLite;
+    private EventosEnVivoService eventosEnVivoService;
+    private VerificacionPosicionService verificacion;
+    private ConfiguracionZonas configuracion;
+
+    @BeforeEach
+    void preparar() {
+        reporteService = mock(ReporteService.class);
+        pruebasActivasService = mock(PruebasActivasService.class);
+        despachoNotificacionesService = mock(DespachoNotificacionesService.class);
+        escritorSQLite = mock(EscritorSQLite.class);
+        eventosEnVivoService = mock(EventosEnVivoService.class);
+
+        // El escritor ejecuta la escritura en el momento, como desde una transacción abierta
+        doAnswer(invocacion -> {
+            invocacion.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(escritorSQLite).escribir(any(Runnable.class));
+        when(reporteService.obtenerDatosParaReporteIncidente(any(DTOPruebaActiva.class))).thenReturn(new DTOReporteIncidente());
+        enPrueba(1L);
+
+        verificacion = new VerificacionPosicionService(mock(PruebaService.class), reporteService, pruebasActivasService,
+                despachoNotificacionesService, escritorSQLite, eventosEnVivoService, new SimpleMeterRegistry(), 50);
+
+        DTOZonaRestringida zona = new DTOZonaRestringida(new DTOCoordenada(42.52, 1.50), new DTOCoordenada(42.51, 1.51));
+        configuracion = ConfiguracionZonas.desde(new DTOPosicionAPI(new DTOCoordenada(42.5, 1.5), 5.0, List.of(zona)));
+    }
+
+    private void enPrueba(Long pruebaId) {
+        DTOPruebaActiva prueba = new DTOPruebaActiva();
+        prueba.setPruebaId(pruebaId);
+        prueba.setVehiculoId(VEHICULO);
+        prueba.setInteresadoId(3L);
+        prueba.setLegajoEmpleado(11L);
+        when(pruebasActivasService.obtenerPorVehiculo(VEHICULO)).thenReturn(Optional.of(prueba));
+    }
+
+    private boolean verificar(double latitud, double longitud) {
+        return verificacion.verificarPunto(VEHICULO, new Coordenada(latitud, longitud), configuracion);
+    }
+
+    // Punto a km kilómetros al sur de la agencia (lejos de la zona restringida)
+    private boolean verificarAlSur(double km) {
+        return verificar(42.5 - km / KM_POR_GRADO, 1.5);
+    }
+
+    private void verificarInfracciones(int cantidad) {
+        verify(reporteService, times(cantidad)).agregarIncidente(any());
+        verify(despachoNotificacionesService, times(cantidad)).encolar(any(), eq(11L));
+    }
+
+    @Test
+    void dentroDelAreaPermitidaNoHaceNada() {
+        assertFalse(verificar(42.5, 1.5));
+        assertFalse(verificarAlSur(4.9));
+
+        assertEquals(EstadoGeocerca.DENTRO, verificacion.obtenerEstado(VEHICULO));
+        verifyNoInteractions(escritorSQLite, eventosEnVivoService);
+    }
+
+    @Test
+    void unVehiculoDetenidoEnUnaZonaRestringidaGeneraUnSoloIncidente() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(verificar(42.515, 1.505));
+        }
+
+        assertEquals(EstadoGeocerca.EN_INFRACCION, verificacion.obtenerEstado(VEHICULO));
+        verificarInfracciones(1);
+        verify(eventosEnVivoService, times(1)).publicarGeocerca(VEHICULO, "EN_INFRACCION");
+    }
+
+    @Test
+    void paraSalirDeLaZonaHayQueAlejarseMasQueLaHisteresis() {
+        assertTrue(verificar(42.515, 1.505));
+
+        // 30 m al norte del borde: fuera de la zona pero dentro del margen de histéresis
+        assertTrue(verificar(42.52 + 0.030 / KM_POR_GRADO, 1.505));
+        assertEquals(EstadoGeocerca.EN_INFRACCION, verificacion.obtenerEstado(VEHICULO));
+
+        assertFalse(verificar(42.52 + 0.5 / KM_POR_GRADO, 1.505));
+        assertEquals(EstadoGeocerca.REGRESADO, verificacion.obtenerEstado(VEHICULO));
+
+        // Volver a entrar es una infracción nueva
+        assertTrue(verificar(42.515, 1.505));
+        verificarInfracciones(2);
+    }
+
+    @Test
+    void paraVolverAlRadioHayQueEntrarMasQueLaHisteresis() {
+        assertTrue(verificarAlSur(5.05));
+
+        assertTrue(verificarAlSur(4.97));
+        assertEquals(EstadoGeocerca.EN_INFRACCION, verificacion.obtenerEstado(VEHICULO));
+
+        assertFalse(verificarAlSur(4.8));
+        assertEquals(EstadoGeocerca.REGRESADO, verificacion.obtenerEstado(VEHICULO));
+
+        // Ya de regreso, el radio que cuenta es el admitido: a 4.97 km está adentro
+        assertFalse(verificarAlSur(4.97));
+        verificarInfracciones(1);
+    }
+
+    @Test
+    void otraPruebaDelMismoVehiculoEmpiezaDeNuevo() {
+        assertTrue(verificarAlSur(6));
+        assertTrue(verificarAlSur(6));
+
+        enPrueba(2L);
+        assertEquals(EstadoGeocerca.DENTRO, verificacion.obtenerEstado(VEHICULO));
+        assertTrue(verificarAlSur(6));
+
+        verificarInfracciones(2);
+    }
+
+    @Test
+    void siNoSePudoRegistrarLaInfraccionLaProximaVerificacionLaReintenta() {
+        doThrow(new IllegalStateException("base ocupada")).when(reporteService).agregarIncidente(any());
+        assertThrows(IllegalStateException.class, () -> verificarAlSur(6));
+        assertEquals(EstadoGeocerca.DENTRO, verificacion.obtenerEstado(VEHICULO));
+
+        doNothing().when(reporteService).agregarIncidente(any());
+        assertTrue(verificarAlSur(6));
+        assertEquals(EstadoGeocerca.EN_INFRACCION, verificacion.obtenerEstado(VEHICULO));
+        verify(reporteService, times(2)).agregarIncidente(any());
+    }
+}